@@ -0,0 +1,10 @@
+rootProject.name = "autoTunedMatrixMultiplication"
+
+// shared flat matrix type
+includeBuild("../matrix")
+// the engines the cost model picks from
+includeBuild("../naiveMatrixMultiplication")
+includeBuild("../threadedNaiveMatrixMultiplication")
+includeBuild("../strassen")
+includeBuild("../threadedStrassenMatrixMultiplication")
+includeBuild("../sparseMatrixMultiplication")
@@ -0,0 +1,295 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+// Single entry point over the four multipliers: the engine, its parallelism and the Strassen leaf size are picked from
+// the shape of the operands by a MultiplicationCostModel, so tiny products skip any threading overhead and big ones
+// get Strassen on every core without the caller having to know the crossovers of this machine.
+// The model starts from analytic defaults, or from the file named by the "matrices.costModel" system property when it
+// exists. Run calibrate() once at startup, or this class main offline to save a calibrated model to that file.
+// Operands mostly made of zeros (density at most the sparseDensityThreshold of the model) are compressed and sent to
+// the SparseMatrixMultiplication kernels instead, counting their non zeros is negligible next to a dense product.
+public class AutoTunedMatrixMultiplication {
+    private static final int parallelism = Runtime.getRuntime().availableProcessors();
+    private static final ThreadLocal<StrassenWorkspace> workspaces = ThreadLocal.withInitial(StrassenWorkspace::new);
+    private static volatile MultiplicationCostModel costModel = initialCostModel();
+
+    private static MultiplicationCostModel initialCostModel() {
+        var file = System.getProperty("matrices.costModel");
+        if (file != null && Files.exists(Path.of(file))) {
+            try {
+                return MultiplicationCostModel.load(Path.of(file));
+            } catch (Exception exception) {
+                System.err.println("Ignoring the cost model " + file + ": " + exception.getMessage());
+            }
+        }
+        return MultiplicationCostModel.defaults(parallelism, StrassenMatrixMultiply.getLeafSize());
+    }
+
+    public static MultiplicationCostModel getCostModel() {
+        return costModel;
+    }
+
+    public static void setCostModel(MultiplicationCostModel newCostModel) {
+        costModel = newCostModel;
+    }
+
+    // the engine multiply would use for an m x k by k x n product
+    public static MultiplicationCostModel.Engine chooseEngine(int rows, int interlacedAxisSize, int columns) {
+        return costModel.choose(rows, interlacedAxisSize, columns);
+    }
+
+    public static int[][] multiply(int[][] matrixA, int[][] matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new int[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        }
+
+        return multiply(Matrix.of(matrixA), Matrix.of(matrixB)).toArray();
+    }
+
+    public static Matrix multiply(Matrix matrixA, Matrix matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+            return new Matrix(0, 0);
+        } else if (matrixA.rows() == 0 ^ matrixB.rows() == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (matrixA.columns() != matrixB.rows()) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        }
+
+        // reported as autoTuned/<engine>, the engines it dispatches to may report their own call too
+        var metrics = MultiplicationMetrics.start("autoTuned", matrixA.rows(), matrixA.columns(), matrixB.columns());
+        var model = costModel;
+        var engine = model.choose(matrixA.rows(), matrixA.columns(), matrixB.columns());
+        Matrix product = null;
+        // tiny products are cheaper than compressing their operands
+        if (engine != MultiplicationCostModel.Engine.NAIVE) {
+            product = multiplySparse(model, matrixA, matrixB, metrics);
+        }
+        if (product == null) {
+            if (metrics != null) {
+                metrics.setEngine("autoTuned/" + engine);
+            }
+            product = multiply(engine, model.leafSize(), matrixA, matrixB);
+        }
+
+        if (metrics != null) {
+            metrics.addAllocatedBytes((long) product.rows() * product.columns() * Integer.BYTES);
+            metrics.finish();
+        }
+        return product;
+    }
+
+    // Write the product into a caller owned matrixC, which can be a view into a bigger buffer but must not alias the
+    // operands. The dense engines write straight into it, so nothing of the product size is allocated, only a sparse
+    // product is computed aside then copied.
+    public static void multiply(Matrix matrixA, Matrix matrixB, Matrix matrixC) throws Exception {
+        // validate the matrices
+        if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+            return;
+        } else if (matrixA.rows() == 0 ^ matrixB.rows() == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (matrixA.columns() != matrixB.rows()) {
+            throw new Exception("The matrices have an invalid shape");
+        } else if (matrixC.rows() != matrixA.rows() || matrixC.columns() != matrixB.columns()) {
+            throw new Exception("The output matrix does not have the shape of the product");
+        }
+
+        var metrics = MultiplicationMetrics.start("autoTuned", matrixA.rows(), matrixA.columns(), matrixB.columns());
+        var model = costModel;
+        var engine = model.choose(matrixA.rows(), matrixA.columns(), matrixB.columns());
+        Matrix product = null;
+        if (engine != MultiplicationCostModel.Engine.NAIVE) {
+            product = multiplySparse(model, matrixA, matrixB, metrics);
+        }
+        if (product != null) {
+            matrixC.copyFrom(product);
+        } else {
+            if (metrics != null) {
+                metrics.setEngine("autoTuned/" + engine);
+            }
+            multiply(engine, model.leafSize(), matrixA, matrixB, matrixC);
+        }
+
+        if (metrics != null) {
+            metrics.finish();
+        }
+    }
+
+    // the product through the sparse kernels when an operand is sparse enough, null otherwise
+    private static Matrix multiplySparse(MultiplicationCostModel model, Matrix matrixA, Matrix matrixB,
+                                         MultiplicationMetrics metrics) throws Exception {
+        boolean sparseA = model.isSparse(CsrMatrix.density(matrixA));
+        boolean sparseB = model.isSparse(CsrMatrix.density(matrixB));
+
+        if (sparseA && sparseB) {
+            var compressedA = CsrMatrix.of(matrixA);
+            var compressedB = CsrMatrix.of(matrixB);
+            // SpGEMM only pays off when the product is sparse too (about densityA * densityB * k non zeros per
+            // cell), otherwise scattering into a dense row of C is cheaper
+            double productDensity = compressedA.density() * compressedB.density() * matrixA.columns();
+            if (model.isSparse(productDensity)) {
+                nameSparseEngine(metrics, "SPARSE_SPARSE");
+                return SparseMatrixMultiplication.parallelSparseSparseMultiply(compressedA, compressedB).toMatrix();
+            }
+            nameSparseEngine(metrics, "SPARSE_DENSE");
+            return SparseMatrixMultiplication.parallelSparseDenseMultiply(compressedA, matrixB);
+        } else if (sparseA) {
+            nameSparseEngine(metrics, "SPARSE_DENSE");
+            return SparseMatrixMultiplication.parallelSparseDenseMultiply(CsrMatrix.of(matrixA), matrixB);
+        } else if (sparseB) {
+            nameSparseEngine(metrics, "DENSE_SPARSE");
+            return SparseMatrixMultiplication.parallelDenseSparseMultiply(matrixA, CscMatrix.of(matrixB));
+        }
+        return null;
+    }
+
+    private static void nameSparseEngine(MultiplicationMetrics metrics, String kernel) {
+        if (metrics != null) {
+            metrics.setEngine("autoTuned/" + kernel);
+        }
+    }
+
+    private static Matrix multiply(MultiplicationCostModel.Engine engine, int leafSize,
+                                   Matrix matrixA, Matrix matrixB) throws Exception {
+        switch (engine) {
+            case NAIVE:
+                return NaiveMatrixMultiplication.naiveMatrixMultiply(matrixA, matrixB);
+            case BLOCKED:
+                return NaiveMatrixMultiplication.blockedMatrixMultiply(matrixA, matrixB);
+            case THREADED:
+                return ParallelMatrixMultiplier.shared().multiply(matrixA, matrixB);
+            case STRASSEN:
+                return StrassenMatrixMultiply.strassenMatrixMultiply(matrixA, matrixB, workspaces.get(), leafSize);
+            case PARALLEL_STRASSEN:
+                return ParallelStrassenMatrixMultiplication.parallelStrassenMatrixMultiply(matrixA, matrixB,
+                        new ParallelStrassenOptions().setLeafSize(leafSize));
+            default:
+                throw new Exception("Unknown engine " + engine);
+        }
+    }
+
+    private static void multiply(MultiplicationCostModel.Engine engine, int leafSize,
+                                 Matrix matrixA, Matrix matrixB, Matrix matrixC) throws Exception {
+        switch (engine) {
+            case NAIVE:
+                NaiveMatrixMultiplication.naiveMatrixMultiply(matrixA, matrixB, matrixC, 1, 0);
+                break;
+            case BLOCKED:
+                NaiveMatrixMultiplication.blockedMatrixMultiply(matrixA, matrixB, matrixC, 1, 0);
+                break;
+            case THREADED:
+                ParallelMatrixMultiplier.shared().multiply(matrixA, matrixB, matrixC, 1, 0);
+                break;
+            case STRASSEN:
+                StrassenMatrixMultiply.strassenMatrixMultiply(matrixA, matrixB, matrixC, workspaces.get(), leafSize);
+                break;
+            case PARALLEL_STRASSEN:
+                ParallelStrassenMatrixMultiplication.parallelStrassenMatrixMultiply(matrixA, matrixB, matrixC,
+                        new ParallelStrassenOptions().setLeafSize(leafSize), new ParallelStrassenStats());
+                break;
+            default:
+                throw new Exception("Unknown engine " + engine);
+        }
+    }
+
+    // Time every engine on square products of power of two lengths up to maxLength (at least 8) and install the
+    // resulting model, the Strassen leaf size is calibrated first since the Strassen timings depend on it.
+    // The naive loop is only timed up to 256, it is never picked above. Takes seconds for maxLength = 1024.
+    public static MultiplicationCostModel calibrate(int maxLength) throws Exception {
+        int leafSize = StrassenMatrixMultiply.calibrateLeafSize(Math.max(16, Math.min(maxLength, 512)));
+
+        int count = 0;
+        for (int length = 8; length <= Math.max(8, maxLength); length *= 2) {
+            count++;
+        }
+        var lengths = new int[count];
+        var costs = new double[MultiplicationCostModel.Engine.values().length][count];
+        var random = new Random(42);
+
+        for (int i = 0; i < count; i++) {
+            lengths[i] = 8 << i;
+            var matrixA = randomMatrix(lengths[i], random);
+            var matrixB = randomMatrix(lengths[i], random);
+            double volume = Math.pow(lengths[i], 3);
+
+            for (var engine : MultiplicationCostModel.Engine.values()) {
+                if (engine == MultiplicationCostModel.Engine.NAIVE && lengths[i] > 256) {
+                    costs[engine.ordinal()][i] = Double.POSITIVE_INFINITY;
+                    continue;
+                }
+
+                // enough repetitions to measure something above the timer resolution, the first one warms up
+                int runs = (int) Math.max(3, Math.min(50, 1e7 / volume));
+                long best = Long.MAX_VALUE;
+                multiply(engine, leafSize, matrixA, matrixB);
+                for (int run = 0; run < runs; run++) {
+                    long start = System.nanoTime();
+                    multiply(engine, leafSize, matrixA, matrixB);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                costs[engine.ordinal()][i] = best / volume;
+            }
+        }
+
+        var model = new MultiplicationCostModel(parallelism, leafSize, lengths, costs);
+        setCostModel(model);
+        return model;
+    }
+
+    private static Matrix randomMatrix(int length, Random random) {
+        var matrix = new Matrix(length, length);
+        for (int i = 0; i < length; i++) {
+            for (int j = 0; j < length; j++) {
+                matrix.set(i, j, random.nextInt(100));
+            }
+        }
+        return matrix;
+    }
+
+    // offline calibration: AutoTunedMatrixMultiplication <output file> [max length], then start the application with
+    // -Dmatrices.costModel=<output file>. Without arguments only the bundled sanity checks run.
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            var model = calibrate(args.length > 1 ? Integer.parseInt(args[1]) : 1024);
+            model.save(Path.of(args[0]));
+            System.out.println(model);
+            return;
+        }
+
+        int[][] matrixA = {{1, 2, 3},
+                           {4, 5, 6}};
+        int[][] matrixB = {{10, 11},
+                           {20, 21},
+                           {30, 31}};
+        int[][] expectedReferenceResult = {{140, 146},
+                                           {320, 335}};
+
+        var result = multiply(Matrix.of(matrixA), Matrix.of(matrixB));
+        assert result.contentEquals(Matrix.of(expectedReferenceResult));
+
+        // tiny products never pay for threads, big ones use Strassen and every core when there are several
+        var model = MultiplicationCostModel.defaults(8, 64);
+        assert model.choose(2, 3, 2) == MultiplicationCostModel.Engine.NAIVE;
+        assert model.choose(4096, 4096, 4096) == MultiplicationCostModel.Engine.PARALLEL_STRASSEN;
+        assert model.choose(4096, 32, 4096) != MultiplicationCostModel.Engine.PARALLEL_STRASSEN;
+
+        // a 99% sparse operand takes the sparse path, with the same result
+        var random = new Random(42);
+        var sparseA = new Matrix(200, 200);
+        for (int i = 0; i < 200; i++) {
+            sparseA.set(i, random.nextInt(200), random.nextInt(100));
+            sparseA.set(random.nextInt(200), i, random.nextInt(100));
+        }
+        var denseB = randomMatrix(200, random);
+        assert costModel.isSparse(CsrMatrix.density(sparseA));
+        assert multiply(sparseA, denseB).contentEquals(NaiveMatrixMultiplication.naiveMatrixMultiply(sparseA, denseB));
+        assert multiply(denseB, sparseA).contentEquals(NaiveMatrixMultiplication.naiveMatrixMultiply(denseB, sparseA));
+        assert multiply(sparseA, sparseA)
+                .contentEquals(NaiveMatrixMultiplication.naiveMatrixMultiply(sparseA, sparseA));
+    }
+}
@@ -0,0 +1,167 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Powers and chained products on top of AutoTunedMatrixMultiplication, every step goes through the engine its cost
+// model picks (Strassen and parallel Strassen included) and writes into a buffer owned by this class.
+// power(A, k) is binary exponentiation read from the highest bit: square the running result, then multiply it by A
+// when the bit is set. That is floor(log2 k) squarings plus popcount(k) - 1 products instead of k - 1 products, and
+// only two buffers of the size of A: each step writes into the spare one and they swap.
+// multiplyChain(A1, ..., An) first picks the parenthesization of least predicted time by dynamic programming over the
+// shapes (the textbook matrix chain order, O(n^3) in the number of matrices), then multiplies in that order. A step
+// costs the time the cost model predicts for the engine it would pick rather than rows * k * columns, so sub-cubic
+// Strassen products and the fixed overhead of small products weigh in the choice.
+public class MatrixChainMultiplication {
+    public static Matrix power(Matrix matrix, int exponent) throws Exception {
+        if (matrix.rows() != matrix.columns()) {
+            throw new Exception("Only a square matrix has powers");
+        } else if (exponent < 0) {
+            throw new Exception("The exponent must not be negative");
+        }
+
+        int length = matrix.rows();
+        if (exponent == 0) {
+            return identity(length);
+        }
+
+        // the operand is only read, the running result is never the caller matrix once a step ran
+        var result = matrix;
+        var spare = new Matrix(length, length);
+        for (int bit = 30 - Integer.numberOfLeadingZeros(exponent); bit >= 0; bit--) {
+            AutoTunedMatrixMultiplication.multiply(result, result, spare);
+            var previous = result;
+            result = spare;
+            spare = previous == matrix ? new Matrix(length, length) : previous;
+
+            if ((exponent >>> bit & 1) != 0) {
+                AutoTunedMatrixMultiplication.multiply(result, matrix, spare);
+                previous = result;
+                result = spare;
+                spare = previous;
+            }
+        }
+        return result == matrix ? matrix.copy() : result;
+    }
+
+    public static Matrix identity(int length) {
+        var identity = new Matrix(length, length);
+        for (int i = 0; i < length; i++) {
+            identity.set(i, i, 1);
+        }
+        return identity;
+    }
+
+    public static Matrix multiplyChain(Matrix... matrices) throws Exception {
+        return multiplyChain(Arrays.asList(matrices));
+    }
+
+    // the product of the whole chain, a chain of one matrix gives a copy of it
+    public static Matrix multiplyChain(List<Matrix> matrices) throws Exception {
+        var split = optimalOrder(dimensions(matrices), AutoTunedMatrixMultiplication.getCostModel());
+        var product = multiply(matrices, split, 0, matrices.size() - 1);
+        return product == matrices.get(0) ? product.copy() : product;
+    }
+
+    // matrix i of the chain is dimensions[i] x dimensions[i + 1]
+    static int[] dimensions(List<Matrix> matrices) throws Exception {
+        if (matrices.isEmpty()) {
+            throw new Exception("The chain is empty");
+        }
+
+        var dimensions = new int[matrices.size() + 1];
+        dimensions[0] = matrices.get(0).rows();
+        for (int i = 0; i < matrices.size(); i++) {
+            if (matrices.get(i).rows() != dimensions[i]) {
+                // the number of columns of a matrix must be equal to the number of rows of the next one
+                throw new Exception("The matrices have an invalid shape");
+            }
+            dimensions[i + 1] = matrices.get(i).columns();
+        }
+        return dimensions;
+    }
+
+    // Cheapest order for a chain whose matrix i is dimensions[i] x dimensions[i + 1]: split[i][j] = s means the
+    // product of the matrices i to j is best computed as (i..s)(s+1..j). Only the upper triangle is filled.
+    public static int[][] optimalOrder(int[] dimensions, MultiplicationCostModel model) {
+        int count = dimensions.length - 1;
+        var cost = new double[count][count];
+        var split = new int[count][count];
+
+        for (int span = 1; span < count; span++) {
+            for (int i = 0; i + span < count; i++) {
+                int j = i + span;
+                cost[i][j] = Double.POSITIVE_INFINITY;
+                for (int s = i; s < j; s++) {
+                    double candidate = cost[i][s] + cost[s + 1][j]
+                            + model.predictNanos(dimensions[i], dimensions[s + 1], dimensions[j + 1]);
+                    if (candidate < cost[i][j]) {
+                        cost[i][j] = candidate;
+                        split[i][j] = s;
+                    }
+                }
+            }
+        }
+        return split;
+    }
+
+    // the order as text, e.g. ((A1 A2) A3), for logs
+    public static String parenthesize(int[][] split, int i, int j) {
+        if (i == j) {
+            return "A" + (i + 1);
+        }
+        return "(" + parenthesize(split, i, split[i][j]) + " " + parenthesize(split, split[i][j] + 1, j) + ")";
+    }
+
+    private static Matrix multiply(List<Matrix> matrices, int[][] split, int i, int j) throws Exception {
+        if (i == j) {
+            return matrices.get(i);
+        }
+
+        var left = multiply(matrices, split, i, split[i][j]);
+        var right = multiply(matrices, split, split[i][j] + 1, j);
+        var product = new Matrix(left.rows(), right.columns());
+        AutoTunedMatrixMultiplication.multiply(left, right, product);
+        return product;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var random = new Random(42);
+        var matrix = new Matrix(50, 50);
+        for (int i = 0; i < 50; i++) {
+            for (int j = 0; j < 50; j++) {
+                matrix.set(i, j, random.nextInt(7) - 3);
+            }
+        }
+
+        // every exponent up to 20 against repeated products, the operand is left untouched
+        var original = matrix.copy();
+        var expected = identity(50);
+        for (int exponent = 0; exponent <= 20; exponent++) {
+            assert power(matrix, exponent).contentEquals(expected);
+            expected = NaiveMatrixMultiplication.naiveMatrixMultiply(expected, matrix);
+        }
+        assert matrix.contentEquals(original);
+
+        // 10x100, 100x5 and 5x50: (A1 A2) A3 does 7500 multiply-adds, A1 (A2 A3) 75000
+        var model = MultiplicationCostModel.defaults(1, 64);
+        assert parenthesize(optimalOrder(new int[]{10, 100, 5, 50}, model), 0, 2).equals("((A1 A2) A3)");
+        assert parenthesize(optimalOrder(new int[]{50, 5, 100, 10}, model), 0, 2).equals("(A1 (A2 A3))");
+
+        int[] dimensions = {30, 35, 15, 5, 10, 20, 25};
+        var chain = new Matrix[dimensions.length - 1];
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = new Matrix(dimensions[i], dimensions[i + 1]);
+            for (int row = 0; row < dimensions[i]; row++) {
+                for (int column = 0; column < dimensions[i + 1]; column++) {
+                    chain[i].set(row, column, random.nextInt(100));
+                }
+            }
+        }
+        expected = chain[0];
+        for (int i = 1; i < chain.length; i++) {
+            expected = NaiveMatrixMultiplication.naiveMatrixMultiply(expected, chain[i]);
+        }
+        assert multiplyChain(chain).contentEquals(expected);
+        assert multiplyChain(chain[0]).contentEquals(chain[0]) && multiplyChain(chain[0]) != chain[0];
+    }
+}
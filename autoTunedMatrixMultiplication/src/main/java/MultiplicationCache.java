@@ -0,0 +1,310 @@
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Random;
+
+// Optional layer in front of any engine that remembers recent products, for workloads multiplying the same operands
+// again and again (a transition matrix squared at every step, one weight matrix applied to the same inputs...).
+// Operands are identified either by content or by identity plus a version stamp the caller bumps whenever it modifies
+// the matrix, which costs nothing per call. By content, the cache keeps a copy of the operands next to their product:
+// a 64 bits hash of the shape and cells finds the entry, and a hit is only taken once the cached operands compare
+// equal to the given ones cell by cell, so a hash collision is a miss and never a wrong product. Both are one pass
+// over each operand, negligible next to the product.
+// Entries are kept in an LRU map bounded by their total size in bytes (products plus the operand copies of content
+// keys): the least recently used ones are evicted once the budget is exceeded, an entry bigger than the whole budget
+// is never kept.
+// Hits return a copy of the cached product, so callers can modify what they get. Two threads missing on the same
+// operands at the same time both compute the product, the cache itself is thread safe.
+public class MultiplicationCache {
+    // an engine the cache can sit in front of, e.g. AutoTunedMatrixMultiplication::multiply or
+    // StrassenMatrixMultiply::strassenMatrixMultiply
+    public interface Multiplier {
+        Matrix multiply(Matrix matrixA, Matrix matrixB) throws Exception;
+    }
+
+    private final Multiplier multiplier;
+    private final long maxBytes;
+    private final LinkedHashMap<ProductKey, Matrix> products = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public MultiplicationCache(Multiplier multiplier, long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("The cache size must not be negative");
+        }
+        this.multiplier = multiplier;
+        this.maxBytes = maxBytes;
+    }
+
+    // identify the operands by content
+    public Matrix multiply(Matrix matrixA, Matrix matrixB) throws Exception {
+        var fingerprintA = ContentKey.of(matrixA);
+        // a squared matrix is only hashed once
+        var fingerprintB = matrixB == matrixA ? fingerprintA : ContentKey.of(matrixB);
+        return multiply(new ProductKey(fingerprintA, fingerprintB), matrixA, matrixB);
+    }
+
+    // identify the operands by their buffer and region plus the given versions, the caller must bump the version of
+    // a matrix each time it modifies its content
+    public Matrix multiply(Matrix matrixA, long versionA, Matrix matrixB, long versionB) throws Exception {
+        return multiply(new ProductKey(new IdentityKey(matrixA, versionA), new IdentityKey(matrixB, versionB)),
+                matrixA, matrixB);
+    }
+
+    private Matrix multiply(ProductKey key, Matrix matrixA, Matrix matrixB) throws Exception {
+        Matrix product;
+        synchronized (this) {
+            product = products.get(key);
+            if (product != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        if (product != null) {
+            return product.copy();
+        }
+
+        product = multiplier.multiply(matrixA, matrixB);
+        put(key, product);
+        return product;
+    }
+
+    private void put(ProductKey key, Matrix product) {
+        if (bytes(key, product) > maxBytes) {
+            return;
+        }
+        // copied outside of the lock, the caller keeps its operands and product
+        var storedKey = key.stored();
+        var storedProduct = product.copy();
+
+        synchronized (this) {
+            // an equal key already in the map is kept, it holds operands of the same size
+            var previous = products.put(storedKey, storedProduct);
+            bytes += bytes(storedKey, storedProduct) - (previous != null ? bytes(storedKey, previous) : 0);
+
+            var eldest = products.entrySet().iterator();
+            while (bytes > maxBytes) {
+                var entry = eldest.next();
+                bytes -= bytes(entry.getKey(), entry.getValue());
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+
+    private static long bytes(ProductKey key, Matrix product) {
+        return bytes(product) + key.operandBytes();
+    }
+
+    private static long bytes(Matrix matrix) {
+        return (long) matrix.rows() * matrix.columns() * Integer.BYTES;
+    }
+
+    public synchronized void clear() {
+        products.clear();
+        bytes = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getEntries() {
+        return products.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized double getHitRatio() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "hits: " + hits + ", misses: " + misses + ", evictions: " + evictions
+                + ", entries: " + products.size() + ", " + bytes / 1024 + " KB of " + maxBytes / 1024 + " KB";
+    }
+
+    private record ProductKey(Object keyA, Object keyB) {
+        // the key kept in the map: content keys hold a copy of their operand instead of the caller's matrix, a squared
+        // matrix is copied once
+        ProductKey stored() {
+            var storedA = stored(keyA);
+            return new ProductKey(storedA, keyB == keyA ? storedA : stored(keyB));
+        }
+
+        long operandBytes() {
+            long operandBytes = operandBytes(keyA);
+            return keyB == keyA ? operandBytes : operandBytes + operandBytes(keyB);
+        }
+
+        private static Object stored(Object key) {
+            return key instanceof ContentKey ? ((ContentKey) key).stored() : key;
+        }
+
+        private static long operandBytes(Object key) {
+            return key instanceof ContentKey ? bytes(((ContentKey) key).matrix) : 0;
+        }
+    }
+
+    // a 64 bits hash of the shape and of the cells row after row, a view hashes like its content; two keys are only
+    // equal when their matrices have the same content
+    private static final class ContentKey {
+        private final Matrix matrix;
+        private final long hash;
+
+        private ContentKey(Matrix matrix, long hash) {
+            this.matrix = matrix;
+            this.hash = hash;
+        }
+
+        static ContentKey of(Matrix matrix) {
+            int[] data = matrix.data();
+            long hash = 0x9E3779B97F4A7C15L ^ ((long) matrix.rows() << 32 | matrix.columns());
+
+            for (int i = 0; i < matrix.rows(); i++) {
+                int row = matrix.index(i, 0);
+                for (int j = 0; j < matrix.columns(); j++) {
+                    hash = (hash ^ data[row + j]) * 0x100000001B3L;
+                }
+            }
+            return new ContentKey(matrix, mix(hash));
+        }
+
+        // the same key over a private copy of the matrix, the caller can modify its own afterwards
+        ContentKey stored() {
+            return new ContentKey(matrix.copy(), hash);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof ContentKey)) {
+                return false;
+            }
+            var key = (ContentKey) other;
+            return hash == key.hash && matrix.contentEquals(key.matrix);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+
+        // the murmur3 finalizer, spreads every input bit over the whole hash
+        private static long mix(long hash) {
+            hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+            hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return hash ^ (hash >>> 33);
+        }
+    }
+
+    // the buffer is weakly referenced, a dropped matrix does not stay in memory because of its key (its product is
+    // still evicted in LRU order)
+    private static final class IdentityKey {
+        private final WeakReference<int[]> data;
+        private final int identity;
+        private final int offset;
+        private final int rows;
+        private final int columns;
+        private final int stride;
+        private final long version;
+
+        IdentityKey(Matrix matrix, long version) {
+            this.data = new WeakReference<>(matrix.data());
+            this.identity = System.identityHashCode(matrix.data());
+            this.offset = matrix.offset();
+            this.rows = matrix.rows();
+            this.columns = matrix.columns();
+            this.stride = matrix.stride();
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof IdentityKey)) {
+                return false;
+            }
+            var key = (IdentityKey) other;
+            int[] buffer = data.get();
+            return buffer != null && buffer == key.data.get() && offset == key.offset && rows == key.rows
+                    && columns == key.columns && stride == key.stride && version == key.version;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(identity, offset, rows, columns, stride, version);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[][] matrixA = {{1, 2, 3},
+                           {4, 5, 6}};
+        int[][] matrixB = {{10, 11},
+                           {20, 21},
+                           {30, 31}};
+        int[][] expectedReferenceResult = {{140, 146},
+                                           {320, 335}};
+
+        var cache = new MultiplicationCache(AutoTunedMatrixMultiplication::multiply, 1 << 20);
+        assert cache.multiply(Matrix.of(matrixA), Matrix.of(matrixB)).contentEquals(Matrix.of(expectedReferenceResult));
+        // equal content in other buffers is a hit, and the returned copy can be modified freely
+        var result = cache.multiply(Matrix.of(matrixA), Matrix.of(matrixB));
+        assert result.contentEquals(Matrix.of(expectedReferenceResult));
+        result.fill(0);
+        assert cache.multiply(Matrix.of(matrixA), Matrix.of(matrixB)).contentEquals(Matrix.of(expectedReferenceResult));
+        assert cache.getHits() == 2 && cache.getMisses() == 1;
+        // the cache holds its own copy of the operands: changing them afterwards is a miss, and the entry accounts for
+        // the 2x3 and 3x2 operands next to the 2x2 product
+        var changedA = Matrix.of(matrixA);
+        changedA.set(0, 0, 2);
+        assert !cache.multiply(changedA, Matrix.of(matrixB)).contentEquals(Matrix.of(expectedReferenceResult));
+        assert cache.getHits() == 2 && cache.getMisses() == 2 && cache.getBytes() == 2 * (2 * 2 + 2 * 6) * 4;
+
+        // by identity, a new version of the same matrix is a miss
+        var transition = new Matrix(64, 64);
+        var random = new Random(42);
+        for (int i = 0; i < 64; i++) {
+            for (int j = 0; j < 64; j++) {
+                transition.set(i, j, random.nextInt(10));
+            }
+        }
+        var squared = cache.multiply(transition, 0, transition, 0);
+        assert cache.multiply(transition, 0, transition, 0).contentEquals(squared);
+        transition.set(0, 0, transition.get(0, 0) + 1);
+        assert !cache.multiply(transition, 1, transition, 1).contentEquals(squared);
+        assert cache.getHits() == 3 && cache.getMisses() == 4;
+
+        // a budget of two 64x64 products keeps the two most recent ones
+        var small = new MultiplicationCache(NaiveMatrixMultiplication::naiveMatrixMultiply, 2 * 64 * 64 * 4);
+        for (int version = 0; version < 3; version++) {
+            small.multiply(transition, version, transition, version);
+        }
+        assert small.getEntries() == 2 && small.getEvictions() == 1 && small.getBytes() == 2 * 64 * 64 * 4;
+        small.multiply(transition, 2, transition, 2);
+        small.multiply(transition, 0, transition, 0);
+        assert small.getHits() == 1 && small.getMisses() == 4;
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+// Predicted cost of every engine for an m x k by k x n product, used by AutoTunedMatrixMultiplication to dispatch.
+// For each engine the model stores nanoseconds per multiply-add measured on square products of a few lengths, a shape
+// is mapped to the length of the square of same volume (cbrt(mkn)) and the cost is interpolated between the two
+// closest lengths, on a log scale. Small products are dominated by fixed overheads (forking, packing) and big ones by
+// throughput, which the per length costs capture without any formula.
+// An infinite cost means the engine was not measured at that length and is never picked there.
+// Sparse operands are a matter of content, not shape: an operand whose density (fraction of non zero cells) is at most
+// sparseDensityThreshold goes to the sparse kernels, whose work is proportional to the non zeros.
+// A model comes from calibrate (timed on this machine), from defaults (rough analytic estimates) or from a file.
+public class MultiplicationCostModel {
+    public enum Engine {
+        NAIVE, // flat i-j-k loop, no packing: only worth it for tiny products
+        BLOCKED, // cache blocked, register tiled kernel
+        THREADED, // tiles of the blocked kernel on the shared fork-join pool
+        STRASSEN, // sequential Strassen with a reused workspace
+        PARALLEL_STRASSEN // fork-join Strassen on the common pool
+    }
+
+    // about where the slowest sparse kernel (dense x CSC) stops beating the blocked one on 1024 products
+    public static final double DEFAULT_SPARSE_DENSITY_THRESHOLD = 0.05;
+
+    private final int parallelism;
+    private final int leafSize;
+    private final double sparseDensityThreshold;
+    private final int[] lengths;
+    private final double[][] nanosPerMultiplyAdd; // [engine][length]
+
+    public MultiplicationCostModel(int parallelism, int leafSize, int[] lengths, double[][] nanosPerMultiplyAdd) {
+        this(parallelism, leafSize, lengths, nanosPerMultiplyAdd, DEFAULT_SPARSE_DENSITY_THRESHOLD);
+    }
+
+    // a sparseDensityThreshold of 0 disables the sparse kernels
+    public MultiplicationCostModel(int parallelism, int leafSize, int[] lengths, double[][] nanosPerMultiplyAdd,
+                                   double sparseDensityThreshold) {
+        if (!(sparseDensityThreshold >= 0 && sparseDensityThreshold <= 1)) {
+            throw new IllegalArgumentException("The sparse density threshold must be between 0 and 1");
+        } else if (parallelism < 1 || leafSize < 1) {
+            throw new IllegalArgumentException("The parallelism and the leaf size must be at least 1");
+        } else if (lengths.length == 0 || nanosPerMultiplyAdd.length != Engine.values().length) {
+            throw new IllegalArgumentException("The model needs at least one length and a cost row per engine");
+        }
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] < 1 || (i > 0 && lengths[i] <= lengths[i - 1])) {
+                throw new IllegalArgumentException("The lengths must be positive and increasing");
+            }
+        }
+        for (double[] costs : nanosPerMultiplyAdd) {
+            if (costs.length != lengths.length) {
+                throw new IllegalArgumentException("Every engine needs one cost per length");
+            }
+        }
+
+        this.parallelism = parallelism;
+        this.leafSize = leafSize;
+        this.sparseDensityThreshold = sparseDensityThreshold;
+        this.lengths = lengths.clone();
+        this.nanosPerMultiplyAdd = new double[nanosPerMultiplyAdd.length][];
+        for (int engine = 0; engine < nanosPerMultiplyAdd.length; engine++) {
+            this.nanosPerMultiplyAdd[engine] = nanosPerMultiplyAdd[engine].clone();
+        }
+    }
+
+    // Uncalibrated estimates: a nominal kernel throughput, a fixed cost for every fork-join call, Strassen saving 1/8
+    // of the work per level below the product length, and perfect scaling of the parallel engines. Good enough to
+    // keep small products sequential and send big ones to parallel Strassen, calibrate for real crossovers.
+    public static MultiplicationCostModel defaults(int parallelism, int leafSize) {
+        final double kernelNanos = 0.1;
+        final double naiveNanos = 1.0;
+        final double forkJoinNanos = 50_000;
+
+        int[] lengths = {8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096};
+        var costs = new double[Engine.values().length][lengths.length];
+        for (int i = 0; i < lengths.length; i++) {
+            double volume = Math.pow(lengths[i], 3);
+            int levels = 0;
+            for (int length = lengths[i]; length > leafSize; length /= 2) {
+                levels++;
+            }
+            double strassenNanos = kernelNanos * Math.pow(7.0 / 8.0, levels);
+
+            costs[Engine.NAIVE.ordinal()][i] = lengths[i] <= 64 ? naiveNanos / 4 : naiveNanos;
+            costs[Engine.BLOCKED.ordinal()][i] = kernelNanos + 2_000 / volume;
+            costs[Engine.THREADED.ordinal()][i] = kernelNanos / parallelism + forkJoinNanos / volume;
+            costs[Engine.STRASSEN.ordinal()][i] = strassenNanos + 2_000 / volume;
+            costs[Engine.PARALLEL_STRASSEN.ordinal()][i] = strassenNanos / parallelism + forkJoinNanos / volume;
+        }
+        return new MultiplicationCostModel(parallelism, leafSize, lengths, costs);
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    public int leafSize() {
+        return leafSize;
+    }
+
+    public double sparseDensityThreshold() {
+        return sparseDensityThreshold;
+    }
+
+    // whether an operand with this fraction of non zero cells should be multiplied in a compressed form
+    public boolean isSparse(double density) {
+        return density <= sparseDensityThreshold && sparseDensityThreshold > 0;
+    }
+
+    // predicted nanoseconds of the given engine for an m x k by k x n product
+    public double predictNanos(Engine engine, int rows, int interlacedAxisSize, int columns) {
+        double volume = (double) rows * interlacedAxisSize * columns;
+        double length = Math.cbrt(volume);
+        double[] costs = nanosPerMultiplyAdd[engine.ordinal()];
+
+        if (length <= lengths[0]) {
+            return costs[0] * volume;
+        } else if (length >= lengths[lengths.length - 1]) {
+            return costs[lengths.length - 1] * volume;
+        }
+
+        int upper = 1;
+        while (lengths[upper] < length) {
+            upper++;
+        }
+        double weight = Math.log(length / lengths[upper - 1]) / Math.log((double) lengths[upper] / lengths[upper - 1]);
+        // an unmeasured side makes the whole interval unusable, infinity times a zero weight would be NaN
+        if (Double.isInfinite(costs[upper - 1]) || Double.isInfinite(costs[upper])) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (costs[upper - 1] + weight * (costs[upper] - costs[upper - 1])) * volume;
+    }
+
+    // predicted nanoseconds of the engine choose picks for the shape
+    public double predictNanos(int rows, int interlacedAxisSize, int columns) {
+        return predictNanos(choose(rows, interlacedAxisSize, columns), rows, interlacedAxisSize, columns);
+    }
+
+    // cheapest engine for the shape, the Strassen engines only compete once every dimension is above the leaf size
+    // (below it they are the blocked kernel plus bookkeeping)
+    public Engine choose(int rows, int interlacedAxisSize, int columns) {
+        boolean strassenApplies = Math.min(rows, Math.min(interlacedAxisSize, columns)) > leafSize;
+        Engine best = Engine.BLOCKED;
+        double bestNanos = predictNanos(best, rows, interlacedAxisSize, columns);
+
+        for (Engine engine : Engine.values()) {
+            if (!strassenApplies && (engine == Engine.STRASSEN || engine == Engine.PARALLEL_STRASSEN)) {
+                continue;
+            }
+            double nanos = predictNanos(engine, rows, interlacedAxisSize, columns);
+            if (nanos < bestNanos) {
+                best = engine;
+                bestNanos = nanos;
+            }
+        }
+        return best;
+    }
+
+    // plain properties file: parallelism, leafSize, sparseDensityThreshold, lengths and one comma separated cost list
+    // per engine
+    public void save(Path path) throws IOException {
+        var properties = new Properties();
+        properties.setProperty("parallelism", Integer.toString(parallelism));
+        properties.setProperty("leafSize", Integer.toString(leafSize));
+        properties.setProperty("sparseDensityThreshold", Double.toString(sparseDensityThreshold));
+        properties.setProperty("lengths", Arrays.stream(lengths).mapToObj(Integer::toString)
+                .collect(Collectors.joining(",")));
+        for (Engine engine : Engine.values()) {
+            properties.setProperty(engine.name(), Arrays.stream(nanosPerMultiplyAdd[engine.ordinal()])
+                    .mapToObj(Double::toString).collect(Collectors.joining(",")));
+        }
+
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            properties.store(writer, "matrix multiplication cost model, nanoseconds per multiply-add");
+        }
+    }
+
+    public static MultiplicationCostModel load(Path path) throws IOException {
+        var properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+
+        try {
+            int[] lengths = Arrays.stream(required(properties, "lengths").split(","))
+                    .mapToInt(value -> Integer.parseInt(value.trim())).toArray();
+            var costs = new double[Engine.values().length][];
+            for (Engine engine : Engine.values()) {
+                costs[engine.ordinal()] = Arrays.stream(required(properties, engine.name()).split(","))
+                        .mapToDouble(value -> Double.parseDouble(value.trim())).toArray();
+            }
+            // absent from the files saved before the sparse kernels
+            double sparseDensityThreshold = Double.parseDouble(properties.getProperty("sparseDensityThreshold",
+                    Double.toString(DEFAULT_SPARSE_DENSITY_THRESHOLD)).trim());
+            return new MultiplicationCostModel(Integer.parseInt(required(properties, "parallelism").trim()),
+                    Integer.parseInt(required(properties, "leafSize").trim()), lengths, costs, sparseDensityThreshold);
+        } catch (IllegalArgumentException exception) {
+            throw new IOException("Invalid cost model in " + path + ": " + exception.getMessage(), exception);
+        }
+    }
+
+    private static String required(Properties properties, String key) {
+        var value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("missing " + key);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("parallelism " + parallelism + ", leaf size " + leafSize
+                + ", sparse density threshold " + sparseDensityThreshold);
+        for (Engine engine : Engine.values()) {
+            builder.append('\n').append(engine).append(": ");
+            for (int i = 0; i < lengths.length; i++) {
+                builder.append(lengths[i]).append('=')
+                        .append(String.format("%.3f", nanosPerMultiplyAdd[engine.ordinal()][i])).append(' ');
+            }
+        }
+        return builder.toString();
+    }
+}
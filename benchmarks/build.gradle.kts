@@ -0,0 +1,44 @@
+plugins {
+    java
+    id("me.champeau.gradle.jmh") version "0.5.2"
+}
+
+group = "org.example"
+version = "1.0-SNAPSHOT"
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    implementation("org.example", "matrix", "1.0-SNAPSHOT")
+    implementation("org.example", "naiveMatrixMultiplication", "1.0-SNAPSHOT")
+    implementation("org.example", "threadedNaiveMatrixMultiplication", "1.0-SNAPSHOT")
+    implementation("org.example", "strassen", "1.0-SNAPSHOT")
+    implementation("org.example", "threadedStrassenMatrixMultiplication", "1.0-SNAPSHOT")
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }
+}
+
+// ./gradlew jmh runs every engine, shape and thread count (hours), narrow it with -Pjmh.includes=<regexp>.
+// The results are written as JSON to build/results/jmh/results-<jmh.tag>.json, e.g. run once with -Pjmh.tag=before
+// and once with -Pjmh.tag=after to diff two builds. The gc profiler adds the allocation rate (gc.alloc.rate.norm is
+// bytes per multiplication). For finer selections use the standalone jar:
+// java -jar build/libs/benchmarks-1.0-SNAPSHOT-jmh.jar Sequential -p shape=1025x1025x1025 -prof gc -rf json
+jmh {
+    jmhVersion = "1.26"
+    include = listOf(project.findProperty("jmh.includes")?.toString() ?: ".*")
+    resultFormat = "JSON"
+    resultsFile = file("build/results/jmh/results-${project.findProperty("jmh.tag") ?: "latest"}.json")
+    profilers = listOf("gc")
+    // the forked benchmark JVM is not covered by the toolchain, point it at the same JDK
+    jvm = javaToolchains.launcherFor {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }.get().executablePath.asFile.absolutePath
+    jvmArgsAppend = listOf("--add-modules", "jdk.incubator.vector")
+    failOnError = true
+}
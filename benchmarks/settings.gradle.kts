@@ -0,0 +1,8 @@
+rootProject.name = "benchmarks"
+
+// every multiplier under benchmark, each one is its own build
+includeBuild("../matrix")
+includeBuild("../naiveMatrixMultiplication")
+includeBuild("../threadedNaiveMatrixMultiplication")
+includeBuild("../strassen")
+includeBuild("../threadedStrassenMatrixMultiplication")
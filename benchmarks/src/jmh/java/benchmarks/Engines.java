@@ -0,0 +1,130 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// The multipliers live in the unnamed package, which a named package cannot import, while JMH refuses benchmarks in
+// the unnamed package. So every engine is looked up once per trial and bound into a method handle, the measured loop
+// only pays one invokeExact per multiplication (nanoseconds against microseconds for the smallest 16x16 product).
+final class Engines {
+    private static final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+    // one multiplier ready to run, with everything it needs (workspace, pool) already created
+    static final class Engine implements AutoCloseable {
+        private final MethodHandle multiply; // (Object, Object)Object
+        private final Runnable close;
+
+        private Engine(MethodHandle multiply, Runnable close) {
+            this.multiply = multiply.asType(MethodType.genericMethodType(2));
+            this.close = close;
+        }
+
+        Object multiply(Object matrixA, Object matrixB) throws Throwable {
+            return (Object) multiply.invokeExact(matrixA, matrixB);
+        }
+
+        @Override
+        public void close() {
+            close.run();
+        }
+    }
+
+    // threads is ignored by the sequential engines
+    static Engine create(String name, int threads) throws Throwable {
+        var matrix = type("Matrix");
+        var binary = MethodType.methodType(matrix, matrix, matrix);
+
+        switch (name) {
+            case "naive":
+                return new Engine(lookup.findStatic(type("NaiveMatrixMultiplication"), "naiveMatrixMultiply",
+                        MethodType.methodType(int[][].class, int[][].class, int[][].class)), () -> { });
+            case "naiveFlat":
+                return new Engine(lookup.findStatic(type("NaiveMatrixMultiplication"), "naiveMatrixMultiply", binary),
+                        () -> { });
+            case "blocked":
+                return new Engine(lookup.findStatic(type("NaiveMatrixMultiplication"), "blockedMatrixMultiply", binary),
+                        () -> { });
+            case "strassen": {
+                // the workspace is reused across invocations, like a caller multiplying in a loop would
+                var workspace = type("StrassenWorkspace");
+                var multiply = lookup.findStatic(type("StrassenMatrixMultiply"), "strassenMatrixMultiply",
+                        binary.appendParameterTypes(workspace));
+                var newWorkspace = lookup.findConstructor(workspace, MethodType.methodType(void.class));
+                return new Engine(MethodHandles.insertArguments(multiply, 2, newWorkspace.invoke()), () -> { });
+            }
+            case "winograd": {
+                var workspace = type("StrassenWorkspace");
+                var multiply = lookup.findStatic(type("WinogradStrassenMatrixMultiply"), "winogradMatrixMultiply",
+                        binary.appendParameterTypes(workspace));
+                var newWorkspace = lookup.findConstructor(workspace, MethodType.methodType(void.class));
+                return new Engine(MethodHandles.insertArguments(multiply, 2, newWorkspace.invoke()), () -> { });
+            }
+            case "threadedNaive": {
+                var multiplierType = type("ParallelMatrixMultiplier");
+                Object multiplier = lookup.findConstructor(multiplierType, MethodType.methodType(void.class, int.class))
+                        .invoke(threads);
+                var multiply = lookup.findVirtual(multiplierType, "multiply", binary).bindTo(multiplier);
+                var close = lookup.findVirtual(multiplierType, "close", MethodType.methodType(void.class));
+                return new Engine(multiply, () -> invokeUnchecked(close, multiplier));
+            }
+            case "parallelStrassen":
+            case "parallelWinograd": {
+                var optionsType = type("ParallelStrassenOptions");
+                var pool = new ForkJoinPool(threads);
+                Object options = lookup.findConstructor(optionsType, MethodType.methodType(void.class)).invoke();
+                lookup.findVirtual(optionsType, "setPool", MethodType.methodType(optionsType, ForkJoinPool.class))
+                        .invoke(options, pool);
+                var multiply = name.equals("parallelStrassen")
+                        ? lookup.findStatic(type("ParallelStrassenMatrixMultiplication"),
+                                "parallelStrassenMatrixMultiply", binary.appendParameterTypes(optionsType))
+                        : lookup.findStatic(type("ParallelWinogradMatrixMultiplication"),
+                                "parallelWinogradMatrixMultiply", binary.appendParameterTypes(optionsType));
+                return new Engine(MethodHandles.insertArguments(multiply, 2, options), pool::shutdown);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown engine " + name);
+        }
+    }
+
+    // random operand of the representation the engine takes: the jagged array for naive, Matrix for the others
+    static Object operand(String engine, int rows, int columns, long seed) throws Throwable {
+        var random = new Random(seed);
+        var values = new int[rows][columns];
+        for (int[] row : values) {
+            for (int j = 0; j < columns; j++) {
+                row[j] = random.nextInt(100);
+            }
+        }
+
+        if (engine.equals("naive")) {
+            return values;
+        }
+        var matrix = type("Matrix");
+        return lookup.findStatic(matrix, "of", MethodType.methodType(matrix, int[][].class)).invoke(values);
+    }
+
+    // "m x k x n" shape parameter of an m x k by k x n product
+    static int[] shape(String shape) {
+        var dimensions = shape.split("x");
+        if (dimensions.length != 3) {
+            throw new IllegalArgumentException("The shape must be written m x k x n, e.g. 64x128x32: " + shape);
+        }
+        return new int[]{Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]),
+                Integer.parseInt(dimensions[2])};
+    }
+
+    private static Class<?> type(String name) throws ClassNotFoundException {
+        return Class.forName(name, true, Engines.class.getClassLoader());
+    }
+
+    private static void invokeUnchecked(MethodHandle handle, Object receiver) {
+        try {
+            handle.invoke(receiver);
+        } catch (Throwable throwable) {
+            throw new IllegalStateException(throwable);
+        }
+    }
+}
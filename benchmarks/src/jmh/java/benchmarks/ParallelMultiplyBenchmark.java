@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Fork-join multipliers, each on a dedicated pool of the given number of threads so the scaling can be read off one
+// run. JMH itself drives a single benchmark thread, the parallelism is entirely the engine's.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelMultiplyBenchmark {
+    @Param({"threadedNaive", "parallelStrassen", "parallelWinograd"})
+    public String engine;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"16x16x16", "64x64x64", "256x256x256", "1024x1024x1024", "4096x4096x4096",
+            "17x17x17", "1023x1023x1023", "1025x1025x1025", "3000x3000x3000",
+            "64x1024x64", "1024x64x1024", "1000x300x2000"})
+    public String shape;
+
+    private Engines.Engine multiplier;
+    private Object matrixA;
+    private Object matrixB;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        int[] dimensions = Engines.shape(shape);
+        multiplier = Engines.create(engine, threads);
+        matrixA = Engines.operand(engine, dimensions[0], dimensions[1], 1);
+        matrixB = Engines.operand(engine, dimensions[1], dimensions[2], 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        multiplier.close();
+    }
+
+    @Benchmark
+    public Object multiply() throws Throwable {
+        return multiplier.multiply(matrixA, matrixB);
+    }
+}
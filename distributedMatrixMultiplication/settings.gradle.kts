@@ -0,0 +1,11 @@
+rootProject.name = "distributedMatrixMultiplication"
+
+// shared flat matrix type
+includeBuild("../matrix")
+// the workers multiply their blocks with the auto-tuned facade, which needs every engine
+includeBuild("../autoTunedMatrixMultiplication")
+includeBuild("../naiveMatrixMultiplication")
+includeBuild("../threadedNaiveMatrixMultiplication")
+includeBuild("../strassen")
+includeBuild("../threadedStrassenMatrixMultiplication")
+includeBuild("../sparseMatrixMultiplication")
@@ -0,0 +1,380 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Coordinator of a product spread over MatrixWorker processes, on other machines or launched locally on loopback.
+// C is cut in a 2D grid of blocks like SUMMA does, block C_ij only needs the row panel A_i and the column panel B_j.
+// Unlike SUMMA the k panels are not broadcast one after the other between peers: the coordinator ships both panels
+// in a single task and the worker reduces over k itself (with every core of its node), so C never travels but once.
+// The tasks sit in a shared queue that every worker connection pulls from, so faster workers get more blocks, and
+// the tasks of a worker that fails are put back in the queue for the others.
+// Traffic is (m * k * columns of blocks + k * n * rows of blocks + m * n) ints, hence the blocks stay large.
+public class DistributedMatrixMultiplication implements AutoCloseable {
+    // no block smaller than this edge, below it shipping the panels costs more than multiplying them
+    static final int MIN_BLOCK_SIZE = 128;
+    // blocks per worker of the automatic grid, a few so faster workers can take more of them
+    static final int BLOCKS_PER_WORKER = 4;
+    // longest wait for a byte from a worker, a worker that stays silent longer is considered stalled and its block
+    // goes to another one: it must cover the time a worker takes to multiply one block
+    static final int DEFAULT_READ_TIMEOUT_MILLIS = 300_000;
+
+    private final List<WorkerConnection> connections;
+    private final List<Process> processes;
+    private int blockSize = 0; // 0 derives it from the shape and the number of workers
+    private int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+
+    private DistributedMatrixMultiplication(List<WorkerConnection> connections, List<Process> processes) {
+        this.connections = connections;
+        this.processes = processes;
+    }
+
+    // connect to MatrixWorker processes already running at these addresses
+    public static DistributedMatrixMultiplication connect(List<InetSocketAddress> workers) throws IOException {
+        var connections = new ArrayList<WorkerConnection>();
+        try {
+            for (var worker : workers) {
+                connections.add(new WorkerConnection(worker));
+            }
+        } catch (IOException exception) {
+            for (var connection : connections) {
+                connection.close();
+            }
+            throw exception;
+        }
+        return new DistributedMatrixMultiplication(connections, List.of());
+    }
+
+    // Start workers child processes on this machine, listening on loopback only, with the java binary, class path
+    // and matrices.* system properties of this JVM. They are stopped by close, or die with this JVM.
+    public static DistributedMatrixMultiplication launchLocal(int workers) throws IOException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+
+        var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        // the SIMD kernels need the incubator module in the workers as well
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            command.add("--add-modules");
+            command.add("jdk.incubator.vector");
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("matrices.")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("MatrixWorker");
+        command.add("--local");
+
+        var processes = new ArrayList<Process>();
+        var addresses = new ArrayList<InetSocketAddress>();
+        try {
+            for (int worker = 0; worker < workers; worker++) {
+                var process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+                processes.add(process);
+                var line = new BufferedReader(new InputStreamReader(process.getInputStream())).readLine();
+                if (line == null || !line.startsWith(MatrixWorker.LISTENING)) {
+                    throw new IOException("The worker process did not start: " + line);
+                }
+                int port = Integer.parseInt(line.substring(MatrixWorker.LISTENING.length()).trim());
+                addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            }
+
+            var coordinator = connect(addresses);
+            return new DistributedMatrixMultiplication(coordinator.connections, processes);
+        } catch (IOException | RuntimeException exception) {
+            for (var process : processes) {
+                process.destroyForcibly();
+            }
+            throw exception;
+        }
+    }
+
+    // number of workers still usable
+    public int workers() {
+        return connections.size();
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    // edge of the blocks of C sent to the workers, 0 (the default) picks it from the shape and the workers
+    public DistributedMatrixMultiplication setBlockSize(int blockSize) {
+        if (blockSize < 0) {
+            throw new IllegalArgumentException("The block size cannot be negative");
+        }
+        this.blockSize = blockSize;
+        return this;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    // how long a worker may stay silent, while computing a block included, before its block is given to another
+    // worker and its connection dropped, 0 waits forever
+    public synchronized DistributedMatrixMultiplication setReadTimeoutMillis(int readTimeoutMillis)
+            throws IOException {
+        if (readTimeoutMillis < 0) {
+            throw new IllegalArgumentException("The read timeout cannot be negative");
+        }
+        for (var connection : connections) {
+            connection.socket.setSoTimeout(readTimeoutMillis);
+        }
+        this.readTimeoutMillis = readTimeoutMillis;
+        return this;
+    }
+
+    public int[][] multiply(int[][] matrixA, int[][] matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new int[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        }
+
+        return multiply(Matrix.of(matrixA), Matrix.of(matrixB)).toArray();
+    }
+
+    // one product at a time per coordinator, the workers are shared by all its blocks
+    public synchronized Matrix multiply(Matrix matrixA, Matrix matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+            return new Matrix(0, 0);
+        } else if (matrixA.rows() == 0 ^ matrixB.rows() == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (matrixA.columns() != matrixB.rows()) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        } else if (connections.isEmpty()) {
+            throw new Exception("No worker is available");
+        }
+
+        int rows = matrixA.rows();
+        int interlacedAxisSize = matrixA.columns();
+        int columns = matrixB.columns();
+        var matrixC = new Matrix(rows, columns);
+
+        // the blocks of C, each one as {startRow, rows, startColumn, columns}
+        int edge = blockSize > 0 ? blockSize : blockSize(rows, columns, connections.size());
+        var blocks = new ArrayList<int[]>();
+        for (int i = 0; i < rows; i += edge) {
+            for (int j = 0; j < columns; j += edge) {
+                blocks.add(new int[]{i, Math.min(edge, rows - i), j, Math.min(edge, columns - j)});
+            }
+        }
+
+        var queue = new LinkedBlockingQueue<Integer>();
+        for (int block = 0; block < blocks.size(); block++) {
+            queue.add(block);
+        }
+        var remaining = new CountDownLatch(blocks.size());
+        var alive = new AtomicInteger(connections.size());
+        var failure = new AtomicReference<Exception>();
+
+        // one thread per worker connection, each one pulls blocks until there are none left
+        var threads = new ArrayList<Thread>();
+        for (var connection : connections) {
+            var thread = new Thread(() -> {
+                try {
+                    while (remaining.getCount() > 0 && failure.get() == null) {
+                        Integer block = queue.poll(10, TimeUnit.MILLISECONDS);
+                        if (block == null) {
+                            continue; // every block is taken, but one may come back from a failing worker
+                        }
+
+                        int[] region = blocks.get(block);
+                        try {
+                            var product = connection.multiply(block,
+                                    matrixA.view(region[0], 0, region[1], interlacedAxisSize),
+                                    matrixB.view(0, region[2], interlacedAxisSize, region[3]));
+                            matrixC.view(region[0], region[2], region[1], region[3]).copyFrom(product);
+                            remaining.countDown();
+                        } catch (IOException exception) {
+                            // the worker is gone or stalled past the read timeout (a SocketTimeoutException),
+                            // another one will take its block
+                            queue.add(block);
+                            connection.broken = true;
+                            alive.decrementAndGet();
+                            return;
+                        }
+                    }
+                } catch (Exception exception) {
+                    failure.compareAndSet(null, exception);
+                }
+            }, "matrix-coordinator-" + connection.address);
+            thread.start();
+            threads.add(thread);
+        }
+
+        while (!remaining.await(10, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                break;
+            } else if (alive.get() == 0) {
+                failure.compareAndSet(null, new Exception("Every worker failed before the product was complete"));
+                break;
+            }
+        }
+        // the threads stop after their current block, the connections stay in step with their workers
+        for (var thread : threads) {
+            thread.join();
+        }
+        for (var connection : connections) {
+            if (connection.broken) {
+                connection.close();
+            }
+        }
+        connections.removeIf(connection -> connection.broken);
+
+        if (failure.get() != null) {
+            throw new Exception("The distributed product failed: " + failure.get().getMessage(), failure.get());
+        }
+        return matrixC;
+    }
+
+    // about BLOCKS_PER_WORKER square blocks per worker, never below MIN_BLOCK_SIZE
+    static int blockSize(int rows, int columns, int workers) {
+        double area = (double) rows * columns / ((double) BLOCKS_PER_WORKER * workers);
+        return (int) Math.max(MIN_BLOCK_SIZE, Math.ceil(Math.sqrt(area)));
+    }
+
+    // tell the workers this coordinator is done, and stop the local worker processes
+    @Override
+    public synchronized void close() {
+        for (var connection : connections) {
+            connection.close();
+        }
+        connections.clear();
+
+        for (var process : processes) {
+            try {
+                process.getOutputStream().close(); // a local worker exits at the end of its stdin
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (IOException | InterruptedException exception) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    // a connection to one worker, used by one coordinator thread at a time
+    private static class WorkerConnection {
+        final InetSocketAddress address;
+        final Socket socket;
+        final DataInputStream input;
+        final DataOutputStream output;
+        volatile boolean broken = false;
+
+        WorkerConnection(InetSocketAddress address) throws IOException {
+            this.address = address;
+            this.socket = new Socket();
+            try {
+                socket.connect(address, 10_000);
+                socket.setTcpNoDelay(true);
+                // a read blocked longer than this fails with a SocketTimeoutException, the handshake included
+                socket.setSoTimeout(DEFAULT_READ_TIMEOUT_MILLIS);
+                input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+                output.writeInt(MatrixWorker.MAGIC);
+                output.writeInt(MatrixWorker.VERSION);
+                output.flush();
+                if (input.readInt() != MatrixWorker.MAGIC || input.readInt() != MatrixWorker.VERSION) {
+                    throw new IOException(address + " is not a matrix worker of version " + MatrixWorker.VERSION);
+                }
+            } catch (IOException exception) {
+                socket.close();
+                throw exception;
+            }
+        }
+
+        // IOException when the connection is lost, Exception when the worker could not compute the product
+        Matrix multiply(int task, Matrix matrixA, Matrix matrixB) throws Exception {
+            output.writeByte(MatrixWorker.MULTIPLY);
+            output.writeInt(task);
+            MatrixCodec.write(output, matrixA);
+            MatrixCodec.write(output, matrixB);
+            output.flush();
+
+            byte response = input.readByte();
+            if (input.readInt() != task) {
+                throw new IOException("Out of order response from " + address);
+            } else if (response == MatrixWorker.ERROR) {
+                throw new Exception("Worker " + address + " failed: " + input.readUTF());
+            } else if (response != MatrixWorker.RESULT) {
+                throw new IOException("Unknown response " + response + " from " + address);
+            }
+
+            var product = MatrixCodec.read(input);
+            if (product.rows() != matrixA.rows() || product.columns() != matrixB.columns()) {
+                throw new IOException("Worker " + address + " sent a product of the wrong shape");
+            }
+            return product;
+        }
+
+        void close() {
+            try (socket) {
+                if (!broken) {
+                    output.writeByte(MatrixWorker.SHUTDOWN);
+                    output.flush();
+                }
+            } catch (IOException exception) {
+                // closing anyway
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[][] matrixA = {{1, 2, 3},
+                           {4, 5, 6}};
+        int[][] matrixB = {{10, 11},
+                           {20, 21},
+                           {30, 31}};
+        int[][] expectedReferenceResult = {{140, 146},
+                                           {320, 335}};
+
+        try (var coordinator = launchLocal(2)) {
+            var result = coordinator.multiply(Matrix.of(matrixA), Matrix.of(matrixB));
+            assert result.contentEquals(Matrix.of(expectedReferenceResult));
+
+            // odd shapes over a grid of blocks, against the local product
+            var random = new Random(42);
+            var largeA = new Matrix(300, 170);
+            var largeB = new Matrix(170, 250);
+            for (int i = 0; i < 300; i++) {
+                for (int j = 0; j < 250; j++) {
+                    if (j < 170) {
+                        largeA.set(i, j, random.nextInt(100));
+                    }
+                    if (i < 170) {
+                        largeB.set(i, j, random.nextInt(2000) - 1000);
+                    }
+                }
+            }
+            coordinator.setBlockSize(64);
+            assert coordinator.multiply(largeA, largeB)
+                    .contentEquals(NaiveMatrixMultiplication.naiveMatrixMultiply(largeA, largeB));
+            assert coordinator.workers() == 2;
+        }
+    }
+}
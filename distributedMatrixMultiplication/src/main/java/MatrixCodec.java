@@ -0,0 +1,144 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Binary encoding of a Matrix on the wire: one encoding byte, rows and columns (big-endian ints), then the cells row
+// after row. The cells are either raw 4 bytes ints or zigzag varints (1 byte from -64 to 63, 2 bytes from -8192 to
+// 8191...), the encoder picks whichever is smaller for the matrix at hand: small values and zeros are common.
+// A view is encoded like the contiguous matrix it looks like, the stride never goes on the wire.
+public class MatrixCodec {
+    static final byte RAW = 0;
+    static final byte VARINT = 1;
+
+    // raw cells are converted through a buffer of this many bytes at most
+    private static final int CHUNK_BYTES = 1 << 16;
+    // cells allocated before any of them is read, the buffer then grows with the data received
+    private static final int INITIAL_CELLS = 1 << 16;
+
+    public static void write(DataOutputStream output, Matrix matrix) throws IOException {
+        long varintBytes = 0;
+        for (int i = 0; i < matrix.rows(); i++) {
+            for (int j = 0; j < matrix.columns(); j++) {
+                varintBytes += varintLength(zigzag(matrix.get(i, j)));
+            }
+        }
+        boolean varint = varintBytes < (long) matrix.rows() * matrix.columns() * Integer.BYTES;
+
+        output.writeByte(varint ? VARINT : RAW);
+        output.writeInt(matrix.rows());
+        output.writeInt(matrix.columns());
+        if (varint) {
+            writeVarints(output, matrix);
+        } else {
+            writeRaw(output, matrix);
+        }
+    }
+
+    // The header is not trusted: the cells buffer starts small and grows as they actually arrive, so a peer claiming
+    // a huge shape costs at most twice the memory of what it really sent before the stream ends.
+    public static Matrix read(DataInputStream input) throws IOException {
+        byte encoding = input.readByte();
+        int rows = input.readInt();
+        int columns = input.readInt();
+        if (rows < 0 || columns < 0 || (long) rows * columns > Integer.MAX_VALUE - 8) {
+            throw new IOException("Invalid matrix shape " + rows + "x" + columns + " on the wire");
+        }
+
+        int cells = rows * columns;
+        int[] data;
+        if (encoding == VARINT) {
+            data = readVarints(input, cells);
+        } else if (encoding == RAW) {
+            data = readRaw(input, cells);
+        } else {
+            throw new IOException("Unknown matrix encoding " + encoding);
+        }
+        return new Matrix(data, 0, rows, columns, columns);
+    }
+
+    private static void writeRaw(DataOutputStream output, Matrix matrix) throws IOException {
+        int rowsPerChunk = Math.max(1, CHUNK_BYTES / Math.max(1, matrix.columns() * Integer.BYTES));
+        var buffer = ByteBuffer.allocate(Math.max(Integer.BYTES, rowsPerChunk * matrix.columns() * Integer.BYTES));
+        var ints = buffer.asIntBuffer();
+
+        for (int i = 0; i < matrix.rows(); i += rowsPerChunk) {
+            int chunkRows = Math.min(rowsPerChunk, matrix.rows() - i);
+            ints.clear();
+            for (int row = i; row < i + chunkRows; row++) {
+                ints.put(matrix.data(), matrix.index(row, 0), matrix.columns());
+            }
+            output.write(buffer.array(), 0, ints.position() * Integer.BYTES);
+        }
+    }
+
+    private static int[] readRaw(DataInputStream input, int cells) throws IOException {
+        var buffer = ByteBuffer.allocate(CHUNK_BYTES);
+        var ints = buffer.asIntBuffer();
+        int[] data = new int[Math.min(cells, INITIAL_CELLS)];
+
+        for (int index = 0; index < cells; ) {
+            int chunkCells = Math.min(CHUNK_BYTES / Integer.BYTES, cells - index);
+            input.readFully(buffer.array(), 0, chunkCells * Integer.BYTES);
+            data = ensureCapacity(data, index + chunkCells, cells);
+            ints.clear();
+            ints.get(data, index, chunkCells);
+            index += chunkCells;
+        }
+        return data;
+    }
+
+    // LEB128: 7 bits per byte, low bits first, the high bit tells whether another byte follows
+    private static void writeVarints(DataOutputStream output, Matrix matrix) throws IOException {
+        for (int i = 0; i < matrix.rows(); i++) {
+            for (int j = 0; j < matrix.columns(); j++) {
+                int value = zigzag(matrix.get(i, j));
+                while ((value & ~0x7F) != 0) {
+                    output.writeByte((value & 0x7F) | 0x80);
+                    value >>>= 7;
+                }
+                output.writeByte(value);
+            }
+        }
+    }
+
+    private static int[] readVarints(DataInputStream input, int cells) throws IOException {
+        int[] data = new int[Math.min(cells, INITIAL_CELLS)];
+        for (int index = 0; index < cells; index++) {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (shift > 28) {
+                    throw new IOException("Malformed varint cell");
+                }
+                int part = input.readUnsignedByte();
+                value |= (part & 0x7F) << shift;
+                if ((part & 0x80) == 0) {
+                    break;
+                }
+            }
+            if (index == data.length) {
+                data = ensureCapacity(data, index + 1, cells);
+            }
+            data[index] = (value >>> 1) ^ -(value & 1);
+        }
+        return data;
+    }
+
+    // at least required cells, doubling but never past the cells of the whole matrix
+    private static int[] ensureCapacity(int[] data, int required, int cells) {
+        if (required <= data.length) {
+            return data;
+        }
+        return Arrays.copyOf(data, (int) Math.min(cells, Math.max(required, 2L * data.length)));
+    }
+
+    // maps small negative values to small unsigned ones: 0, -1, 1, -2, 2... become 0, 1, 2, 3, 4...
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int varintLength(int value) {
+        return value == 0 ? 1 : (38 - Integer.numberOfLeadingZeros(value)) / 7;
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+// Worker process of DistributedMatrixMultiplication: it accepts coordinator connections and computes the block
+// products they send with AutoTunedMatrixMultiplication, so a worker uses every core of its node.
+// Protocol, over one TCP connection per coordinator, all integers big-endian:
+// - handshake: the coordinator sends MAGIC and VERSION, the worker answers the same two ints or closes
+// - MULTIPLY, task id (int), A, B (MatrixCodec): answered by RESULT, task id, A * B or by ERROR, task id, message (UTF)
+// - SHUTDOWN: the worker closes the connection
+// Requests on a connection are served in order, a coordinator gets parallelism across workers by using several.
+public class MatrixWorker {
+    static final int MAGIC = 0x4D545257; // "MTRW"
+    static final int VERSION = 1;
+
+    static final byte MULTIPLY = 1;
+    static final byte SHUTDOWN = 2;
+    static final byte RESULT = 1;
+    static final byte ERROR = 2;
+
+    // the line printed on stdout once listening, followed by the port
+    static final String LISTENING = "MatrixWorker listening on port ";
+
+    private final ServerSocket server;
+
+    public MatrixWorker(ServerSocket server) {
+        this.server = server;
+    }
+
+    // accept connections until the server socket is closed, each one is served by its own thread
+    public void serve() {
+        while (!server.isClosed()) {
+            try {
+                var socket = server.accept();
+                var thread = new Thread(() -> serve(socket), "matrix-worker-" + socket.getRemoteSocketAddress());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException exception) {
+                if (!server.isClosed()) {
+                    System.err.println("Cannot accept a connection: " + exception.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            var input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            var output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return; // not a coordinator of this version
+            }
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.flush();
+
+            while (true) {
+                byte request = input.readByte();
+                if (request == SHUTDOWN) {
+                    return;
+                } else if (request != MULTIPLY) {
+                    throw new IOException("Unknown request " + request);
+                }
+
+                int task = input.readInt();
+                var matrixA = MatrixCodec.read(input);
+                var matrixB = MatrixCodec.read(input);
+                Matrix product;
+                try {
+                    product = AutoTunedMatrixMultiplication.multiply(matrixA, matrixB);
+                } catch (Exception exception) {
+                    output.writeByte(ERROR);
+                    output.writeInt(task);
+                    output.writeUTF(String.valueOf(exception.getMessage()));
+                    output.flush();
+                    continue;
+                }
+
+                output.writeByte(RESULT);
+                output.writeInt(task);
+                MatrixCodec.write(output, product);
+                output.flush();
+            }
+        } catch (EOFException exception) {
+            // the coordinator went away
+        } catch (IOException exception) {
+            System.err.println("Connection " + socket.getRemoteSocketAddress() + " failed: " + exception.getMessage());
+        }
+    }
+
+    // MatrixWorker [port] [--bind address] [--local]: listen on the port (0 picks a free one) and print it on stdout.
+    // The worker has no authentication, it only listens on the loopback interface unless --bind gives the address of
+    // another one (0.0.0.0 for all of them), which should only be done on a trusted network.
+    // --local exits when stdin is closed, which is how the coordinator that launched it as a child process stops it
+    // (and how it never outlives that coordinator).
+    public static void main(String[] args) throws Exception {
+        int port = 0;
+        boolean local = false;
+        var address = InetAddress.getLoopbackAddress();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--local")) {
+                local = true;
+            } else if (args[i].equals("--bind") && i + 1 < args.length) {
+                address = InetAddress.getByName(args[++i]);
+            } else {
+                port = Integer.parseInt(args[i]);
+            }
+        }
+
+        var server = new ServerSocket(port, 50, address);
+        System.out.println(LISTENING + server.getLocalPort());
+        System.out.flush();
+
+        if (local) {
+            var worker = new Thread(new MatrixWorker(server)::serve, "matrix-worker-accept");
+            worker.setDaemon(true);
+            worker.start();
+            while (System.in.read() >= 0) {
+                // nothing is expected on stdin, only its end
+            }
+            System.exit(0);
+        }
+        new MatrixWorker(server).serve();
+    }
+}
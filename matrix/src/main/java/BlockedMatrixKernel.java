@@ -0,0 +1,311 @@
+// Cache blocked, register tiled classical product, used directly and as the leaf of the Strassen recursions.
+// The classic GEMM layering: a KC x NC panel of B is packed so it stays in L2/L3, an MC x KC block of A is packed so
+// it stays in L2, and a micro-kernel keeps a MICRO_ROWS x MICRO_COLUMNS tile of C in local accumulators while it
+// streams one packed sliver of each through L1. The packed buffers are zero padded up to full slivers so the
+// micro-kernel never needs bound checks of its own. When VectorSupport is enabled the SIMD kernel of
+// VectorMatrixKernel replaces the scalar one.
+public class BlockedMatrixKernel {
+    public static final int MICRO_ROWS = 4;
+    public static final int MICRO_COLUMNS = 8;
+    public static final int BLOCK_ROWS = 128; // MC, multiple of MICRO_ROWS
+    public static final int BLOCK_DEPTH = 256; // KC
+    public static final int BLOCK_COLUMNS = 1024; // NC, multiple of MICRO_COLUMNS
+
+    // packing buffers are reused by every call made from the same thread (including the Strassen leaves)
+    private static final ThreadLocal<int[][]> packingBuffers = ThreadLocal.withInitial(() -> new int[3][0]);
+
+    // matrixC = matrixA * matrixB, all three can be views, matrixC must not alias the operands
+    public static void multiply(Matrix matrixA, Matrix matrixB, Matrix matrixC) {
+        multiplyAdd(matrixA, matrixB, matrixC, 1, 0);
+    }
+
+    // GEMM, matrixC = alpha * matrixA * matrixB + beta * matrixC in wrapping int arithmetic. matrixC is scaled in
+    // place first and the products are added into it, no memory is allocated once the packing buffers are grown.
+    // A beta of 0 ignores the previous content of matrixC, it does not need to be initialized.
+    public static void multiplyAdd(Matrix matrixA, Matrix matrixB, Matrix matrixC, int alpha, int beta) {
+        int rows = matrixA.rows();
+        int columns = matrixB.columns();
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+
+        scale(matrixC, beta);
+        if (alpha == 0 || rows == 0 || columns == 0 || interlacedAxisSize == 0) {
+            return;
+        }
+
+        if (usesVectorKernel(columns)) {
+            VectorMatrixKernel.multiplyAdd(matrixA, matrixB, matrixC, alpha);
+            return;
+        }
+
+        int[][] buffers = packingBuffers.get();
+        int maxDepth = Math.min(BLOCK_DEPTH, interlacedAxisSize);
+        int[] packedA = buffer(buffers, 0, roundUp(Math.min(BLOCK_ROWS, rows), MICRO_ROWS) * maxDepth);
+        int[] packedB = buffer(buffers, 1, roundUp(Math.min(BLOCK_COLUMNS, columns), MICRO_COLUMNS) * maxDepth);
+        int[] edgeTile = buffer(buffers, 2, MICRO_ROWS * MICRO_COLUMNS);
+
+        for (int blockJ = 0; blockJ < columns; blockJ += BLOCK_COLUMNS) {
+            int blockColumns = Math.min(BLOCK_COLUMNS, columns - blockJ);
+            for (int blockK = 0; blockK < interlacedAxisSize; blockK += BLOCK_DEPTH) {
+                int depth = Math.min(BLOCK_DEPTH, interlacedAxisSize - blockK);
+                packB(matrixB, blockK, blockJ, depth, blockColumns, packedB);
+                multiplyPanel(matrixA, packedA, packedB, 0, blockK, blockJ, depth, blockColumns, matrixC, alpha,
+                        edgeTile);
+            }
+        }
+    }
+
+    // a product narrower than one vector (8 columns with AVX-512) is faster packed through the scalar micro-kernel
+    private static boolean usesVectorKernel(int columns) {
+        return VectorSupport.isEnabled() && columns >= VectorMatrixKernel.lanes();
+    }
+
+    // B prepared once for good, for workloads where the same B meets many A, e.g. the row blocks of a stream. It is
+    // private to the PackedMatrix, B can change afterwards, and costs about as much memory as B. When the SIMD kernel
+    // will handle the products it is a plain contiguous copy of B, since that kernel does not pack, otherwise it
+    // holds the panels in the order multiplyAdd walks them.
+    public static final class PackedMatrix {
+        private final int rows;
+        private final int columns;
+        private final Matrix copy; // null when packed into panels
+        private final int[] panels; // null when copied for the SIMD kernel
+
+        private PackedMatrix(int rows, int columns, Matrix copy, int[] panels) {
+            this.rows = rows;
+            this.columns = columns;
+            this.copy = copy;
+            this.panels = panels;
+        }
+
+        public int rows() {
+            return rows;
+        }
+
+        public int columns() {
+            return columns;
+        }
+    }
+
+    public static PackedMatrix pack(Matrix matrixB) {
+        int interlacedAxisSize = matrixB.rows();
+        int columns = matrixB.columns();
+        if (usesVectorKernel(columns)) {
+            return new PackedMatrix(interlacedAxisSize, columns, matrixB.copy(), null);
+        }
+
+        var panels = new int[Math.toIntExact((long) interlacedAxisSize * roundUp(columns, MICRO_COLUMNS))];
+        int offset = 0;
+        for (int blockJ = 0; blockJ < columns; blockJ += BLOCK_COLUMNS) {
+            int blockColumns = Math.min(BLOCK_COLUMNS, columns - blockJ);
+            for (int blockK = 0; blockK < interlacedAxisSize; blockK += BLOCK_DEPTH) {
+                int depth = Math.min(BLOCK_DEPTH, interlacedAxisSize - blockK);
+                packB(matrixB, blockK, blockJ, depth, blockColumns, panels, offset);
+                offset += depth * roundUp(blockColumns, MICRO_COLUMNS);
+            }
+        }
+        return new PackedMatrix(interlacedAxisSize, columns, null, panels);
+    }
+
+    // same as multiplyAdd with a B packed beforehand, only A is packed during the call
+    public static void multiplyAdd(Matrix matrixA, PackedMatrix matrixB, Matrix matrixC, int alpha, int beta) {
+        int rows = matrixA.rows();
+        int columns = matrixB.columns();
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+
+        scale(matrixC, beta);
+        if (alpha == 0 || rows == 0 || columns == 0 || interlacedAxisSize == 0) {
+            return;
+        }
+
+        if (matrixB.panels == null) {
+            VectorMatrixKernel.multiplyAdd(matrixA, matrixB.copy, matrixC, alpha);
+            return;
+        }
+
+        int[][] buffers = packingBuffers.get();
+        int maxDepth = Math.min(BLOCK_DEPTH, interlacedAxisSize);
+        int[] packedA = buffer(buffers, 0, roundUp(Math.min(BLOCK_ROWS, rows), MICRO_ROWS) * maxDepth);
+        int[] edgeTile = buffer(buffers, 2, MICRO_ROWS * MICRO_COLUMNS);
+
+        int offset = 0;
+        for (int blockJ = 0; blockJ < columns; blockJ += BLOCK_COLUMNS) {
+            int blockColumns = Math.min(BLOCK_COLUMNS, columns - blockJ);
+            for (int blockK = 0; blockK < interlacedAxisSize; blockK += BLOCK_DEPTH) {
+                int depth = Math.min(BLOCK_DEPTH, interlacedAxisSize - blockK);
+                multiplyPanel(matrixA, packedA, matrixB.panels, offset, blockK, blockJ, depth, blockColumns, matrixC,
+                        alpha, edgeTile);
+                offset += depth * roundUp(blockColumns, MICRO_COLUMNS);
+            }
+        }
+    }
+
+    // every row of A against one packed depth x blockColumns panel of B starting at packedB[panelOffset]
+    private static void multiplyPanel(Matrix matrixA, int[] packedA, int[] packedB, int panelOffset, int blockK,
+                                      int blockJ, int depth, int blockColumns, Matrix matrixC, int alpha,
+                                      int[] edgeTile) {
+        int rows = matrixA.rows();
+
+        for (int blockI = 0; blockI < rows; blockI += BLOCK_ROWS) {
+            int blockRows = Math.min(BLOCK_ROWS, rows - blockI);
+            packA(matrixA, blockI, blockK, blockRows, depth, packedA);
+
+            for (int j = 0; j < blockColumns; j += MICRO_COLUMNS) {
+                for (int i = 0; i < blockRows; i += MICRO_ROWS) {
+                    microKernel(packedA, i * depth, packedB, panelOffset + j * depth, depth, matrixC, alpha,
+                            blockI + i, blockJ + j,
+                            Math.min(MICRO_ROWS, blockRows - i), Math.min(MICRO_COLUMNS, blockColumns - j),
+                            edgeTile);
+                }
+            }
+        }
+    }
+
+    // B[k..k+depth][j..j+width] as consecutive slivers of MICRO_COLUMNS columns, each stored row after row
+    private static void packB(Matrix matrixB, int startK, int startJ, int depth, int width, int[] packedB) {
+        packB(matrixB, startK, startJ, depth, width, packedB, 0);
+    }
+
+    private static void packB(Matrix matrixB, int startK, int startJ, int depth, int width, int[] packedB,
+                              int offset) {
+        int[] b = matrixB.data();
+
+        for (int sliver = 0; sliver < width; sliver += MICRO_COLUMNS) {
+            int sliverWidth = Math.min(MICRO_COLUMNS, width - sliver);
+            int destination = offset + sliver * depth;
+            for (int k = 0; k < depth; k++, destination += MICRO_COLUMNS) {
+                int source = matrixB.index(startK + k, startJ + sliver);
+                System.arraycopy(b, source, packedB, destination, sliverWidth);
+                for (int j = sliverWidth; j < MICRO_COLUMNS; j++) {
+                    packedB[destination + j] = 0;
+                }
+            }
+        }
+    }
+
+    // A[i..i+height][k..k+depth] as consecutive slivers of MICRO_ROWS rows, each stored column after column
+    private static void packA(Matrix matrixA, int startI, int startK, int height, int depth, int[] packedA) {
+        int[] a = matrixA.data();
+
+        for (int sliver = 0; sliver < height; sliver += MICRO_ROWS) {
+            int sliverHeight = Math.min(MICRO_ROWS, height - sliver);
+            int destination = sliver * depth;
+            for (int i = 0; i < MICRO_ROWS; i++) {
+                if (i < sliverHeight) {
+                    int source = matrixA.index(startI + sliver + i, startK);
+                    for (int k = 0; k < depth; k++) {
+                        packedA[destination + k * MICRO_ROWS + i] = a[source + k];
+                    }
+                } else {
+                    for (int k = 0; k < depth; k++) {
+                        packedA[destination + k * MICRO_ROWS + i] = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    // C[i..i+4][j..j+8] += alpha * packed A sliver * packed B sliver, the 32 accumulators stay in locals for the
+    // whole depth and are only scaled by alpha when they are written back
+    private static void microKernel(int[] packedA, int positionA, int[] packedB, int positionB, int depth,
+                                    Matrix matrixC, int alpha, int i, int j, int height, int width, int[] edgeTile) {
+        int c00 = 0, c01 = 0, c02 = 0, c03 = 0, c04 = 0, c05 = 0, c06 = 0, c07 = 0;
+        int c10 = 0, c11 = 0, c12 = 0, c13 = 0, c14 = 0, c15 = 0, c16 = 0, c17 = 0;
+        int c20 = 0, c21 = 0, c22 = 0, c23 = 0, c24 = 0, c25 = 0, c26 = 0, c27 = 0;
+        int c30 = 0, c31 = 0, c32 = 0, c33 = 0, c34 = 0, c35 = 0, c36 = 0, c37 = 0;
+
+        for (int k = 0; k < depth; k++, positionA += MICRO_ROWS, positionB += MICRO_COLUMNS) {
+            int a0 = packedA[positionA];
+            int a1 = packedA[positionA + 1];
+            int a2 = packedA[positionA + 2];
+            int a3 = packedA[positionA + 3];
+
+            int b0 = packedB[positionB];
+            int b1 = packedB[positionB + 1];
+            int b2 = packedB[positionB + 2];
+            int b3 = packedB[positionB + 3];
+            int b4 = packedB[positionB + 4];
+            int b5 = packedB[positionB + 5];
+            int b6 = packedB[positionB + 6];
+            int b7 = packedB[positionB + 7];
+
+            c00 += a0 * b0; c01 += a0 * b1; c02 += a0 * b2; c03 += a0 * b3;
+            c04 += a0 * b4; c05 += a0 * b5; c06 += a0 * b6; c07 += a0 * b7;
+            c10 += a1 * b0; c11 += a1 * b1; c12 += a1 * b2; c13 += a1 * b3;
+            c14 += a1 * b4; c15 += a1 * b5; c16 += a1 * b6; c17 += a1 * b7;
+            c20 += a2 * b0; c21 += a2 * b1; c22 += a2 * b2; c23 += a2 * b3;
+            c24 += a2 * b4; c25 += a2 * b5; c26 += a2 * b6; c27 += a2 * b7;
+            c30 += a3 * b0; c31 += a3 * b1; c32 += a3 * b2; c33 += a3 * b3;
+            c34 += a3 * b4; c35 += a3 * b5; c36 += a3 * b6; c37 += a3 * b7;
+        }
+
+        if (alpha != 1) {
+            c00 *= alpha; c01 *= alpha; c02 *= alpha; c03 *= alpha;
+            c04 *= alpha; c05 *= alpha; c06 *= alpha; c07 *= alpha;
+            c10 *= alpha; c11 *= alpha; c12 *= alpha; c13 *= alpha;
+            c14 *= alpha; c15 *= alpha; c16 *= alpha; c17 *= alpha;
+            c20 *= alpha; c21 *= alpha; c22 *= alpha; c23 *= alpha;
+            c24 *= alpha; c25 *= alpha; c26 *= alpha; c27 *= alpha;
+            c30 *= alpha; c31 *= alpha; c32 *= alpha; c33 *= alpha;
+            c34 *= alpha; c35 *= alpha; c36 *= alpha; c37 *= alpha;
+        }
+
+        int[] c = matrixC.data();
+        if (height == MICRO_ROWS && width == MICRO_COLUMNS) {
+            int row = matrixC.index(i, j);
+            c[row] += c00; c[row + 1] += c01; c[row + 2] += c02; c[row + 3] += c03;
+            c[row + 4] += c04; c[row + 5] += c05; c[row + 6] += c06; c[row + 7] += c07;
+            row += matrixC.stride();
+            c[row] += c10; c[row + 1] += c11; c[row + 2] += c12; c[row + 3] += c13;
+            c[row + 4] += c14; c[row + 5] += c15; c[row + 6] += c16; c[row + 7] += c17;
+            row += matrixC.stride();
+            c[row] += c20; c[row + 1] += c21; c[row + 2] += c22; c[row + 3] += c23;
+            c[row + 4] += c24; c[row + 5] += c25; c[row + 6] += c26; c[row + 7] += c27;
+            row += matrixC.stride();
+            c[row] += c30; c[row + 1] += c31; c[row + 2] += c32; c[row + 3] += c33;
+            c[row + 4] += c34; c[row + 5] += c35; c[row + 6] += c36; c[row + 7] += c37;
+            return;
+        }
+
+        // partial tile on the right or bottom border, only write back what is inside C
+        edgeTile[0] = c00; edgeTile[1] = c01; edgeTile[2] = c02; edgeTile[3] = c03;
+        edgeTile[4] = c04; edgeTile[5] = c05; edgeTile[6] = c06; edgeTile[7] = c07;
+        edgeTile[8] = c10; edgeTile[9] = c11; edgeTile[10] = c12; edgeTile[11] = c13;
+        edgeTile[12] = c14; edgeTile[13] = c15; edgeTile[14] = c16; edgeTile[15] = c17;
+        edgeTile[16] = c20; edgeTile[17] = c21; edgeTile[18] = c22; edgeTile[19] = c23;
+        edgeTile[20] = c24; edgeTile[21] = c25; edgeTile[22] = c26; edgeTile[23] = c27;
+        edgeTile[24] = c30; edgeTile[25] = c31; edgeTile[26] = c32; edgeTile[27] = c33;
+        edgeTile[28] = c34; edgeTile[29] = c35; edgeTile[30] = c36; edgeTile[31] = c37;
+
+        for (int row = 0; row < height; row++) {
+            int cell = matrixC.index(i + row, j);
+            for (int column = 0; column < width; column++) {
+                c[cell + column] += edgeTile[row * MICRO_COLUMNS + column];
+            }
+        }
+    }
+
+    // matrixC = factor * matrixC, 1 leaves it untouched and 0 clears it (whatever it held)
+    private static void scale(Matrix matrixC, int factor) {
+        if (factor == 0) {
+            matrixC.fill(0);
+        } else if (factor != 1) {
+            int[] c = matrixC.data();
+            for (int i = 0; i < matrixC.rows(); i++) {
+                int row = matrixC.index(i, 0);
+                for (int j = row; j < row + matrixC.columns(); j++) {
+                    c[j] *= factor;
+                }
+            }
+        }
+    }
+
+    private static int[] buffer(int[][] buffers, int slot, int length) {
+        if (buffers[slot].length < length) {
+            buffers[slot] = new int[length];
+        }
+        return buffers[slot];
+    }
+
+    private static int roundUp(int value, int multiple) {
+        return (value + multiple - 1) / multiple * multiple;
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.Arrays;
+
+// A row-major double matrix backed by one flat array, the double counterpart of Matrix.
+// A matrix can also be a view over a region of another matrix buffer: the element (i, j) lives at
+// data[offset + i * stride + j], so taking a sub-matrix (e.g. a Strassen quadrant) never copies anything.
+public class DoubleMatrix {
+    private final double[] data;
+    private final int offset;
+    private final int rows;
+    private final int columns;
+    private final int stride;
+
+    public DoubleMatrix(int rows, int columns) {
+        this(new double[Matrix.size(rows, columns)], 0, rows, columns, columns);
+    }
+
+    public DoubleMatrix(double[] data, int offset, int rows, int columns, int stride) {
+        if (rows < 0 || columns < 0 || offset < 0 || stride < columns) {
+            throw new IllegalArgumentException("Invalid matrix shape " + rows + "x" + columns + " (offset " + offset + ", stride " + stride + ")");
+        }
+        if (rows > 0 && columns > 0 && offset + (long) (rows - 1) * stride + columns > data.length) {
+            throw new IllegalArgumentException("The matrix shape does not fit in the backing array");
+        }
+
+        this.data = data;
+        this.offset = offset;
+        this.rows = rows;
+        this.columns = columns;
+        this.stride = stride;
+    }
+
+    // copy a jagged matrix into a fresh contiguous buffer
+    public static DoubleMatrix of(double[][] matrix) {
+        if (matrix.length == 0) {
+            return new DoubleMatrix(0, 0);
+        }
+
+        var result = new DoubleMatrix(matrix.length, matrix[0].length);
+        for (int i = 0; i < matrix.length; i++) {
+            if (matrix[i].length != result.columns) {
+                throw new IllegalArgumentException("All the rows of the matrix must have the same length");
+            }
+            System.arraycopy(matrix[i], 0, result.data, i * result.stride, result.columns);
+        }
+        return result;
+    }
+
+    // widening copy of an int matrix, every value is represented exactly
+    public static DoubleMatrix of(Matrix matrix) {
+        var result = new DoubleMatrix(matrix.rows(), matrix.columns());
+        int[] source = matrix.data();
+
+        for (int i = 0; i < result.rows; i++) {
+            int sourceRow = matrix.index(i, 0);
+            int resultRow = result.index(i, 0);
+            for (int j = 0; j < result.columns; j++) {
+                result.data[resultRow + j] = source[sourceRow + j];
+            }
+        }
+        return result;
+    }
+
+    public double[][] toArray() {
+        var result = new double[rows][columns];
+
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(data, offset + i * stride, result[i], 0, columns);
+        }
+        return result;
+    }
+
+    public double[] data() {
+        return data;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public int stride() {
+        return stride;
+    }
+
+    public boolean isEmpty() {
+        return rows == 0 || columns == 0;
+    }
+
+    // position of the element (i, j) in the backing array
+    public int index(int i, int j) {
+        return offset + i * stride + j;
+    }
+
+    public double get(int i, int j) {
+        return data[index(i, j)];
+    }
+
+    public void set(int i, int j, double value) {
+        data[index(i, j)] = value;
+    }
+
+    // zero-copy sub-matrix sharing this matrix buffer
+    public DoubleMatrix view(int row, int column, int rows, int columns) {
+        if (row < 0 || column < 0 || rows > this.rows - row || columns > this.columns - column) {
+            throw new IllegalArgumentException("The requested view is out of the matrix bounds");
+        }
+        return new DoubleMatrix(data, index(row, column), rows, columns, stride);
+    }
+
+    // contiguous deep copy, the result never aliases this matrix
+    public DoubleMatrix copy() {
+        var result = new DoubleMatrix(rows, columns);
+        result.copyFrom(this);
+        return result;
+    }
+
+    // in-place transform, assume matrices of identical dimensions
+    public void copyFrom(DoubleMatrix source) {
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(source.data, source.index(i, 0), data, index(i, 0), columns);
+        }
+    }
+
+    public void fill(double value) {
+        for (int i = 0; i < rows; i++) {
+            int rowStart = index(i, 0);
+            Arrays.fill(data, rowStart, rowStart + columns, value);
+        }
+    }
+
+    public boolean contentEquals(DoubleMatrix other) {
+        if (rows != other.rows || columns != other.columns) {
+            return false;
+        }
+        for (int i = 0; i < rows; i++) {
+            if (!Arrays.equals(data, index(i, 0), index(i, 0) + columns,
+                    other.data, other.index(i, 0), other.index(i, 0) + columns)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.Arrays;
+
+// Arithmetic modulo p on int matrices, for any modulus between 2 and Integer.MAX_VALUE (typically a prime).
+// Operands must already be reduced to [0, modulus), see reduce. The product uses delayed reduction: the products of
+// two residues are accumulated in long and the accumulators are only brought down when the next products could
+// overflow, and then by folding the high half (x = hi * 2^32 + lo is congruent to hi * (2^32 mod p) + lo) instead of
+// a division. A single division per cell remains, at the very end.
+public class ModularMatrixKernel {
+    private static final int BLOCK_COLUMNS = 1024;
+
+    // one row segment of long accumulators per thread, reused by every call
+    private static final ThreadLocal<long[]> accumulators = ThreadLocal.withInitial(() -> new long[0]);
+
+    // how many products of two residues can be added to a reduced accumulator before it can overflow a long,
+    // 9 for a modulus close to 10^9 and more than 2^31 once the modulus fits in 16 bits
+    public static int reductionInterval(int modulus) {
+        checkModulus(modulus);
+        long largestResidue = modulus - 1L;
+        long interval = (Long.MAX_VALUE - largestResidue) / (largestResidue * largestResidue);
+        return (int) Math.min(interval, Integer.MAX_VALUE);
+    }
+
+    // how many products of two residues can be added to a folded accumulator, at least 1 for any int modulus
+    // (the high half of a non negative long is below 2^31)
+    private static int foldInterval(int modulus) {
+        checkModulus(modulus);
+        long largestResidue = modulus - 1L;
+        long largestFolded = Integer.MAX_VALUE * ((1L << 32) % modulus) + 0xFFFFFFFFL;
+        long interval = (Long.MAX_VALUE - largestFolded) / (largestResidue * largestResidue);
+        return (int) Math.min(interval, Integer.MAX_VALUE);
+    }
+
+    // matrixC = matrixA * matrixB mod modulus, all three can be views, matrixC must not alias the operands
+    public static void multiply(Matrix matrixA, Matrix matrixB, Matrix matrixC, int modulus) {
+        int rows = matrixA.rows();
+        int columns = matrixB.columns();
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+        int interval = foldInterval(modulus);
+        long foldFactor = (1L << 32) % modulus;
+        int[] a = matrixA.data();
+        int[] b = matrixB.data();
+        int[] c = matrixC.data();
+
+        long[] accumulator = accumulators.get();
+        if (accumulator.length < Math.min(BLOCK_COLUMNS, columns)) {
+            accumulator = new long[Math.min(BLOCK_COLUMNS, columns)];
+            accumulators.set(accumulator);
+        }
+
+        for (int blockJ = 0; blockJ < columns; blockJ += BLOCK_COLUMNS) {
+            int width = Math.min(BLOCK_COLUMNS, columns - blockJ);
+            for (int i = 0; i < rows; i++) {
+                int rowA = matrixA.index(i, 0);
+                Arrays.fill(accumulator, 0, width, 0);
+
+                int k = 0;
+                while (k < interlacedAxisSize) {
+                    int endK = Math.min(k + interval, interlacedAxisSize);
+                    for (; k < endK; k++) {
+                        long cellA = a[rowA + k];
+                        int rowB = matrixB.index(k, blockJ);
+                        for (int j = 0; j < width; j++) {
+                            accumulator[j] += cellA * b[rowB + j];
+                        }
+                    }
+                    // the accumulators are full, fold them so the next run of products fits again
+                    if (k < interlacedAxisSize) {
+                        for (int j = 0; j < width; j++) {
+                            long cell = accumulator[j];
+                            accumulator[j] = (cell & 0xFFFFFFFFL) + (cell >>> 32) * foldFactor;
+                        }
+                    }
+                }
+
+                int rowC = matrixC.index(i, blockJ);
+                for (int j = 0; j < width; j++) {
+                    c[rowC + j] = (int) (accumulator[j] % modulus);
+                }
+            }
+        }
+    }
+
+    // assume matrices of identical dimensions holding residues, matrixC may alias matrixA or matrixB
+    public static void sum(Matrix matrixA, Matrix matrixB, Matrix matrixC, int modulus) {
+        int[] a = matrixA.data();
+        int[] b = matrixB.data();
+        int[] c = matrixC.data();
+
+        for (int i = 0; i < matrixA.rows(); i++) {
+            int rowA = matrixA.index(i, 0);
+            int rowB = matrixB.index(i, 0);
+            int rowC = matrixC.index(i, 0);
+            for (int j = 0; j < matrixA.columns(); j++) {
+                // a - modulus + b stays within (-modulus, modulus), a + b could overflow an int
+                int cell = a[rowA + j] - modulus + b[rowB + j];
+                c[rowC + j] = cell < 0 ? cell + modulus : cell;
+            }
+        }
+    }
+
+    // assume matrices of identical dimensions holding residues, matrixC may alias matrixA or matrixB
+    public static void subtract(Matrix matrixA, Matrix matrixB, Matrix matrixC, int modulus) {
+        int[] a = matrixA.data();
+        int[] b = matrixB.data();
+        int[] c = matrixC.data();
+
+        for (int i = 0; i < matrixA.rows(); i++) {
+            int rowA = matrixA.index(i, 0);
+            int rowB = matrixB.index(i, 0);
+            int rowC = matrixC.index(i, 0);
+            for (int j = 0; j < matrixA.columns(); j++) {
+                int cell = a[rowA + j] - b[rowB + j];
+                c[rowC + j] = cell < 0 ? cell + modulus : cell;
+            }
+        }
+    }
+
+    // in-place transform of any int matrix into residues in [0, modulus), negative values included
+    public static void reduce(Matrix matrix, int modulus) {
+        checkModulus(modulus);
+        int[] data = matrix.data();
+
+        for (int i = 0; i < matrix.rows(); i++) {
+            int row = matrix.index(i, 0);
+            for (int j = 0; j < matrix.columns(); j++) {
+                data[row + j] = Math.floorMod(data[row + j], modulus);
+            }
+        }
+    }
+
+    private static void checkModulus(int modulus) {
+        if (modulus < 2) {
+            throw new IllegalArgumentException("The modulus must be at least 2");
+        }
+    }
+}
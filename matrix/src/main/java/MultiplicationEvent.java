@@ -0,0 +1,63 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// JFR view of a MultiplicationMetrics, committed when the call completes. Enable it in a recording with e.g.
+// java -XX:StartFlightRecording:filename=matrices.jfr,settings=profile ... then `jfr print --events
+// matrices.Multiplication matrices.jfr`. Its duration is the latency of the call.
+@Name("matrices.Multiplication")
+@Label("Matrix Multiplication")
+@Category("Matrices")
+@Description("One call of an instrumented matrix multiplication engine")
+@StackTrace(false)
+class MultiplicationEvent extends Event {
+    @Label("Engine")
+    String engine;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Interlaced Axis Size")
+    int interlacedAxisSize;
+
+    @Label("Columns")
+    int columns;
+
+    @Label("GFLOP/s")
+    double gflops;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+
+    @Label("Max Depth")
+    int maxDepth;
+
+    @Label("Forked Tasks")
+    long forkedTasks;
+
+    @Label("Sequential Tasks")
+    long sequentialTasks;
+
+    @Label("Steals")
+    long steals;
+
+    @Label("Peeled Edges")
+    long peeledEdges;
+
+    @Label("Padded Calls")
+    long paddedCalls;
+
+    @Label("Addition Time")
+    @Timespan
+    long additionNanos;
+
+    @Label("Sequential Sub-problem Time")
+    @Timespan
+    long sequentialNanos;
+}
@@ -0,0 +1,5 @@
+// Receives the metrics of every instrumented multiplication once it completes, see
+// MultiplicationMetrics.addListener. It is called on the thread that made the call, keep it cheap and thread safe.
+public interface MultiplicationListener {
+    void onMultiplication(MultiplicationMetrics metrics);
+}
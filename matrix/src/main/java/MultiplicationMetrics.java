@@ -0,0 +1,232 @@
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Opt-in metrics of one multiplication call: latency, achieved GFLOP/s, bytes allocated and, for the recursive
+// engines, recursion depth, fork-join tasks, steals, peeled odd edges, calls zero padded once up front and, for the
+// fork-join Strassen engines, the time spent in the additions of the forked levels versus their sequential
+// sub-problems. Phase times are summed over every thread of the call, so they can exceed the latency.
+// Instrumented engines call start() on entry: it returns null unless a listener is registered or a JFR recording
+// has the matrices.Multiplication event enabled, so when nothing listens the whole cost is that one check and the
+// engines skip their counting and timing behind a null test. finish() then hands the metrics to every listener and
+// commits the JFR event.
+// Allocated bytes are counted by the engines (product, scratch and temporaries they create), not measured from the
+// heap.
+public class MultiplicationMetrics {
+    private static final CopyOnWriteArrayList<MultiplicationListener> listeners = new CopyOnWriteArrayList<>();
+    // only used to ask JFR whether the event is enabled, never committed
+    private static final MultiplicationEvent probe = new MultiplicationEvent();
+
+    private volatile String engine;
+    private final int rows;
+    private final int interlacedAxisSize;
+    private final int columns;
+    private final MultiplicationEvent event;
+    private final long start;
+    private volatile long elapsedNanos;
+
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder forkedTasks = new LongAdder();
+    private final LongAdder sequentialTasks = new LongAdder();
+    private final LongAdder peeledEdges = new LongAdder();
+    private final LongAdder paddedCalls = new LongAdder();
+    private final LongAdder additionNanos = new LongAdder();
+    private final LongAdder sequentialNanos = new LongAdder();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private volatile long steals;
+
+    private MultiplicationMetrics(String engine, int rows, int interlacedAxisSize, int columns,
+                                  MultiplicationEvent event) {
+        this.engine = engine;
+        this.rows = rows;
+        this.interlacedAxisSize = interlacedAxisSize;
+        this.columns = columns;
+        this.event = event;
+        this.start = System.nanoTime();
+    }
+
+    public static void addListener(MultiplicationListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(MultiplicationListener listener) {
+        listeners.remove(listener);
+    }
+
+    public static boolean isEnabled() {
+        return !listeners.isEmpty() || probe.isEnabled();
+    }
+
+    // metrics of an m x k by k x n product starting now, null when disabled
+    public static MultiplicationMetrics start(String engine, int rows, int interlacedAxisSize, int columns) {
+        boolean recording = probe.isEnabled();
+        if (listeners.isEmpty() && !recording) {
+            return null;
+        }
+
+        MultiplicationEvent event = null;
+        if (recording) {
+            event = new MultiplicationEvent();
+            event.begin();
+        }
+        return new MultiplicationMetrics(engine, rows, interlacedAxisSize, columns, event);
+    }
+
+    public void addAllocatedBytes(long bytes) {
+        allocatedBytes.add(bytes);
+    }
+
+    public void addForkedTasks(long tasks) {
+        forkedTasks.add(tasks);
+    }
+
+    // sub-problems handed to a sequential engine
+    public void addSequentialTasks(long tasks) {
+        sequentialTasks.add(tasks);
+    }
+
+    // sub-problems with an odd dimension, handled by recursing on the even part and multiplying the last row and
+    // column classically
+    public void addPeeledEdges(long subProblems) {
+        peeledEdges.add(subProblems);
+    }
+
+    // (sub-)calls whose operands were copied into zero padded ones so that every level splits evenly, see
+    // StrassenMatrixMultiply.paddedShape
+    public void addPaddedCalls(long calls) {
+        paddedCalls.add(calls);
+    }
+
+    public void reachedDepth(int depth) {
+        maxDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    public void addAdditionNanos(long nanos) {
+        additionNanos.add(nanos);
+    }
+
+    public void addSequentialNanos(long nanos) {
+        sequentialNanos.add(nanos);
+    }
+
+    public void setSteals(long newSteals) {
+        steals = newSteals;
+    }
+
+    // a dispatching call, like the auto-tuned facade, names the engine it picked once it knows it
+    public void setEngine(String newEngine) {
+        engine = newEngine;
+    }
+
+    // the call is complete: publish to the listeners and JFR
+    public void finish() {
+        elapsedNanos = System.nanoTime() - start;
+
+        for (var listener : listeners) {
+            try {
+                listener.onMultiplication(this);
+            } catch (RuntimeException exception) {
+                System.err.println("The multiplication listener " + listener + " failed: " + exception);
+            }
+        }
+
+        if (event != null && event.shouldCommit()) {
+            event.engine = engine;
+            event.rows = rows;
+            event.interlacedAxisSize = interlacedAxisSize;
+            event.columns = columns;
+            event.gflops = getGflops();
+            event.allocatedBytes = getAllocatedBytes();
+            event.maxDepth = getMaxDepth();
+            event.forkedTasks = getForkedTasks();
+            event.sequentialTasks = getSequentialTasks();
+            event.steals = steals;
+            event.peeledEdges = getPeeledEdges();
+            event.paddedCalls = getPaddedCalls();
+            event.additionNanos = getAdditionNanos();
+            event.sequentialNanos = getSequentialNanos();
+            event.commit();
+        }
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getInterlacedAxisSize() {
+        return interlacedAxisSize;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    // multiply-adds count as two operations, whatever the engine actually performed (Strassen does fewer)
+    public long getFlops() {
+        return 2L * rows * interlacedAxisSize * columns;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getGflops() {
+        return elapsedNanos == 0 ? 0 : (double) getFlops() / elapsedNanos;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    public long getForkedTasks() {
+        return forkedTasks.sum();
+    }
+
+    public long getSequentialTasks() {
+        return sequentialTasks.sum();
+    }
+
+    public long getPeeledEdges() {
+        return peeledEdges.sum();
+    }
+
+    public long getPaddedCalls() {
+        return paddedCalls.sum();
+    }
+
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    public long getSteals() {
+        return steals;
+    }
+
+    public long getAdditionNanos() {
+        return additionNanos.sum();
+    }
+
+    public long getSequentialNanos() {
+        return sequentialNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return engine + " " + rows + "x" + interlacedAxisSize + " by " + interlacedAxisSize + "x" + columns
+                + ": " + elapsedNanos / 1_000 + " us"
+                + ", " + String.format("%.2f", getGflops()) + " GFLOP/s"
+                + ", allocated: " + getAllocatedBytes() + " bytes"
+                + ", max depth: " + getMaxDepth()
+                + ", forked tasks: " + getForkedTasks()
+                + ", sequential tasks: " + getSequentialTasks()
+                + ", steals: " + steals
+                + ", peeled edges: " + getPeeledEdges()
+                + ", padded calls: " + getPaddedCalls()
+                + ", additions: " + getAdditionNanos() / 1_000 + " us"
+                + ", sequential sub-problems: " + getSequentialNanos() / 1_000 + " us";
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// A MultiplicationListener aggregating the calls per engine: counters of calls, operations, time, allocation, tasks,
+// steals, peeled edges and padded calls, plus histograms of the latency and of the achieved throughput. The
+// histograms have power of two buckets (bucket b holds values in [2^(b-1), 2^b), in microseconds and MFLOP/s),
+// recording is lock free and allocation free once an engine has been seen.
+// MultiplicationMetrics.addListener(summary) to start collecting, print or query it whenever.
+public class MultiplicationSummary implements MultiplicationListener {
+    static final int BUCKETS = 48;
+
+    private final Map<String, EngineSummary> engines = new ConcurrentHashMap<>();
+
+    public static class EngineSummary {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder flops = new LongAdder();
+        private final LongAdder elapsedNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder forkedTasks = new LongAdder();
+        private final LongAdder steals = new LongAdder();
+        private final LongAdder peeledEdges = new LongAdder();
+        private final LongAdder paddedCalls = new LongAdder();
+        private final LongAdder additionNanos = new LongAdder();
+        private final LongAdder sequentialNanos = new LongAdder();
+        private final AtomicLongArray latencyMicros = new AtomicLongArray(BUCKETS);
+        private final AtomicLongArray throughputMflops = new AtomicLongArray(BUCKETS);
+
+        void record(MultiplicationMetrics metrics) {
+            calls.increment();
+            flops.add(metrics.getFlops());
+            elapsedNanos.add(metrics.getElapsedNanos());
+            allocatedBytes.add(metrics.getAllocatedBytes());
+            forkedTasks.add(metrics.getForkedTasks());
+            steals.add(metrics.getSteals());
+            peeledEdges.add(metrics.getPeeledEdges());
+            paddedCalls.add(metrics.getPaddedCalls());
+            additionNanos.add(metrics.getAdditionNanos());
+            sequentialNanos.add(metrics.getSequentialNanos());
+            latencyMicros.incrementAndGet(bucket(metrics.getElapsedNanos() / 1_000));
+            throughputMflops.incrementAndGet(bucket((long) (metrics.getGflops() * 1_000)));
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getFlops() {
+            return flops.sum();
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos.sum();
+        }
+
+        // operations over time of all the calls, big calls weigh more than in the throughput histogram
+        public double getGflops() {
+            long nanos = getElapsedNanos();
+            return nanos == 0 ? 0 : (double) getFlops() / nanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes.sum();
+        }
+
+        public long getForkedTasks() {
+            return forkedTasks.sum();
+        }
+
+        public long getSteals() {
+            return steals.sum();
+        }
+
+        public long getPeeledEdges() {
+            return peeledEdges.sum();
+        }
+
+        public long getPaddedCalls() {
+            return paddedCalls.sum();
+        }
+
+        public long getAdditionNanos() {
+            return additionNanos.sum();
+        }
+
+        public long getSequentialNanos() {
+            return sequentialNanos.sum();
+        }
+
+        // number of calls per latency bucket, see bucketUpperBound
+        public long[] getLatencyHistogram() {
+            return snapshot(latencyMicros);
+        }
+
+        // number of calls per throughput bucket, see bucketUpperBound
+        public long[] getThroughputHistogram() {
+            return snapshot(throughputMflops);
+        }
+
+        // upper bound, in microseconds, of the latency bucket holding the given quantile (0.5 for the median)
+        public long latencyQuantileMicros(double quantile) {
+            var histogram = getLatencyHistogram();
+            long total = 0;
+            for (long count : histogram) {
+                total += count;
+            }
+
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += histogram[bucket];
+                if (seen >= Math.max(1, rank)) {
+                    return bucketUpperBound(bucket);
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return getCalls() + " calls, " + getElapsedNanos() / 1_000_000 + " ms"
+                    + ", " + String.format("%.2f", getGflops()) + " GFLOP/s"
+                    + ", p50 < " + latencyQuantileMicros(0.5) + " us"
+                    + ", p99 < " + latencyQuantileMicros(0.99) + " us"
+                    + ", allocated: " + getAllocatedBytes() / 1024 + " KB"
+                    + ", forked tasks: " + getForkedTasks()
+                    + ", steals: " + getSteals()
+                    + ", peeled edges: " + getPeeledEdges()
+                    + ", padded calls: " + getPaddedCalls()
+                    + ", additions: " + getAdditionNanos() / 1_000_000 + " ms"
+                    + ", sequential sub-problems: " + getSequentialNanos() / 1_000_000 + " ms";
+        }
+    }
+
+    @Override
+    public void onMultiplication(MultiplicationMetrics metrics) {
+        engines.computeIfAbsent(metrics.getEngine(), engine -> new EngineSummary()).record(metrics);
+    }
+
+    // null when the engine has not been called yet
+    public EngineSummary get(String engine) {
+        return engines.get(engine);
+    }
+
+    public Map<String, EngineSummary> getEngines() {
+        return new TreeMap<>(engines);
+    }
+
+    public void reset() {
+        engines.clear();
+    }
+
+    // 0 goes into bucket 0, then [1, 2) into bucket 1, [2, 4) into bucket 2...
+    static int bucket(long value) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, value)));
+    }
+
+    // exclusive upper bound of a bucket
+    public static long bucketUpperBound(int bucket) {
+        return 1L << bucket;
+    }
+
+    private static long[] snapshot(AtomicLongArray histogram) {
+        var counts = new long[histogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        getEngines().forEach((engine, summary) -> builder.append(engine).append(": ").append(summary).append('\n'));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,494 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// SIMD counterparts of the scalar kernels, built on the Vector API (jdk.incubator.vector).
+// The preferred species uses the widest registers of the machine: 4 ints with SSE, 8 with AVX2, 16 with AVX-512.
+// Only call these when VectorSupport.isEnabled(), this class cannot even be loaded without the incubator module.
+public class VectorMatrixKernel {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final VectorSpecies<Long> LONG_SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final int LONG_LANES = LONG_SPECIES.length();
+    private static final VectorSpecies<Double> DOUBLE_SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int DOUBLE_LANES = DOUBLE_SPECIES.length();
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int FLOAT_LANES = FLOAT_SPECIES.length();
+
+    // same tiling idea as BlockedMatrixKernel, the depth is blocked so a KC x NC panel of B stays in cache
+    private static final int BLOCK_DEPTH = 256;
+    private static final int BLOCK_COLUMNS = 256;
+
+    // ints per vector, products with fewer columns would only run the scalar tails
+    public static int lanes() {
+        return LANES;
+    }
+
+    // matrixC = matrixA * matrixB, all three can be views, matrixC must not alias the operands
+    public static void multiply(Matrix matrixA, Matrix matrixB, Matrix matrixC) {
+        matrixC.fill(0);
+        multiplyAdd(matrixA, matrixB, matrixC, 1);
+    }
+
+    // matrixC += alpha * matrixA * matrixB, the products are accumulated from zero and scaled once per tile and
+    // depth block, so alpha costs one vector multiply per 256 multiply-adds
+    public static void multiplyAdd(Matrix matrixA, Matrix matrixB, Matrix matrixC, int alpha) {
+        int rows = matrixA.rows();
+        int columns = matrixB.columns();
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+
+        for (int blockK = 0; blockK < interlacedAxisSize; blockK += BLOCK_DEPTH) {
+            int endK = Math.min(blockK + BLOCK_DEPTH, interlacedAxisSize);
+            for (int blockJ = 0; blockJ < columns; blockJ += BLOCK_COLUMNS) {
+                int endJ = Math.min(blockJ + BLOCK_COLUMNS, columns);
+
+                int i = 0;
+                for (; i + 4 <= rows; i += 4) {
+                    multiplyFourRows(matrixA, matrixB, matrixC, alpha, i, blockK, endK, blockJ, endJ);
+                }
+                for (; i < rows; i++) {
+                    multiplyOneRow(matrixA, matrixB, matrixC, alpha, i, blockK, endK, blockJ, endJ);
+                }
+            }
+        }
+    }
+
+    // C[i..i+4][blockJ..endJ] += alpha * A[i..i+4][blockK..endK] * B[blockK..endK][blockJ..endJ],
+    // each B vector loaded is broadcast-multiplied against the four rows of A while the C vectors stay in registers
+    private static void multiplyFourRows(Matrix matrixA, Matrix matrixB, Matrix matrixC, int alpha, int i,
+                                         int blockK, int endK, int blockJ, int endJ) {
+        int[] a = matrixA.data();
+        int[] b = matrixB.data();
+        int[] c = matrixC.data();
+
+        int rowA0 = matrixA.index(i, 0);
+        int rowA1 = rowA0 + matrixA.stride();
+        int rowA2 = rowA1 + matrixA.stride();
+        int rowA3 = rowA2 + matrixA.stride();
+        int rowC0 = matrixC.index(i, 0);
+        int rowC1 = rowC0 + matrixC.stride();
+        int rowC2 = rowC1 + matrixC.stride();
+        int rowC3 = rowC2 + matrixC.stride();
+
+        int j = blockJ;
+        for (; j + LANES <= endJ; j += LANES) {
+            var c0 = IntVector.zero(SPECIES);
+            var c1 = IntVector.zero(SPECIES);
+            var c2 = IntVector.zero(SPECIES);
+            var c3 = IntVector.zero(SPECIES);
+
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                var vectorB = IntVector.fromArray(SPECIES, b, cellB);
+                c0 = c0.add(vectorB.mul(a[rowA0 + k]));
+                c1 = c1.add(vectorB.mul(a[rowA1 + k]));
+                c2 = c2.add(vectorB.mul(a[rowA2 + k]));
+                c3 = c3.add(vectorB.mul(a[rowA3 + k]));
+            }
+
+            IntVector.fromArray(SPECIES, c, rowC0 + j).add(c0.mul(alpha)).intoArray(c, rowC0 + j);
+            IntVector.fromArray(SPECIES, c, rowC1 + j).add(c1.mul(alpha)).intoArray(c, rowC1 + j);
+            IntVector.fromArray(SPECIES, c, rowC2 + j).add(c2.mul(alpha)).intoArray(c, rowC2 + j);
+            IntVector.fromArray(SPECIES, c, rowC3 + j).add(c3.mul(alpha)).intoArray(c, rowC3 + j);
+        }
+
+        // remaining columns do not fill a whole vector
+        for (; j < endJ; j++) {
+            int c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                c0 += a[rowA0 + k] * b[cellB];
+                c1 += a[rowA1 + k] * b[cellB];
+                c2 += a[rowA2 + k] * b[cellB];
+                c3 += a[rowA3 + k] * b[cellB];
+            }
+            c[rowC0 + j] += alpha * c0;
+            c[rowC1 + j] += alpha * c1;
+            c[rowC2 + j] += alpha * c2;
+            c[rowC3 + j] += alpha * c3;
+        }
+    }
+
+    private static void multiplyOneRow(Matrix matrixA, Matrix matrixB, Matrix matrixC, int alpha, int i,
+                                       int blockK, int endK, int blockJ, int endJ) {
+        int[] a = matrixA.data();
+        int[] b = matrixB.data();
+        int[] c = matrixC.data();
+
+        int rowA = matrixA.index(i, 0);
+        int rowC = matrixC.index(i, 0);
+
+        int j = blockJ;
+        for (; j + LANES <= endJ; j += LANES) {
+            var accumulator = IntVector.zero(SPECIES);
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                accumulator = accumulator.add(IntVector.fromArray(SPECIES, b, cellB).mul(a[rowA + k]));
+            }
+            IntVector.fromArray(SPECIES, c, rowC + j).add(accumulator.mul(alpha)).intoArray(c, rowC + j);
+        }
+
+        for (; j < endJ; j++) {
+            int cell = 0;
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                cell += a[rowA + k] * b[cellB];
+            }
+            c[rowC + j] += alpha * cell;
+        }
+    }
+
+    // same register tiling for long matrices, called by WideMatrixKernel.multiply
+    public static void multiply(LongMatrix matrixA, LongMatrix matrixB, LongMatrix matrixC) {
+        int rows = matrixA.rows();
+        int columns = matrixB.columns();
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+
+        matrixC.fill(0);
+
+        for (int blockK = 0; blockK < interlacedAxisSize; blockK += BLOCK_DEPTH) {
+            int endK = Math.min(blockK + BLOCK_DEPTH, interlacedAxisSize);
+            for (int blockJ = 0; blockJ < columns; blockJ += BLOCK_COLUMNS) {
+                int endJ = Math.min(blockJ + BLOCK_COLUMNS, columns);
+
+                int i = 0;
+                for (; i + 4 <= rows; i += 4) {
+                    multiplyFourRows(matrixA, matrixB, matrixC, i, blockK, endK, blockJ, endJ);
+                }
+                for (; i < rows; i++) {
+                    multiplyOneRow(matrixA, matrixB, matrixC, i, blockK, endK, blockJ, endJ);
+                }
+            }
+        }
+    }
+
+    private static void multiplyFourRows(LongMatrix matrixA, LongMatrix matrixB, LongMatrix matrixC, int i,
+                                         int blockK, int endK, int blockJ, int endJ) {
+        long[] a = matrixA.data();
+        long[] b = matrixB.data();
+        long[] c = matrixC.data();
+
+        int rowA0 = matrixA.index(i, 0);
+        int rowA1 = rowA0 + matrixA.stride();
+        int rowA2 = rowA1 + matrixA.stride();
+        int rowA3 = rowA2 + matrixA.stride();
+        int rowC0 = matrixC.index(i, 0);
+        int rowC1 = rowC0 + matrixC.stride();
+        int rowC2 = rowC1 + matrixC.stride();
+        int rowC3 = rowC2 + matrixC.stride();
+
+        int j = blockJ;
+        for (; j + LONG_LANES <= endJ; j += LONG_LANES) {
+            var c0 = LongVector.fromArray(LONG_SPECIES, c, rowC0 + j);
+            var c1 = LongVector.fromArray(LONG_SPECIES, c, rowC1 + j);
+            var c2 = LongVector.fromArray(LONG_SPECIES, c, rowC2 + j);
+            var c3 = LongVector.fromArray(LONG_SPECIES, c, rowC3 + j);
+
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                var vectorB = LongVector.fromArray(LONG_SPECIES, b, cellB);
+                c0 = c0.add(vectorB.mul(a[rowA0 + k]));
+                c1 = c1.add(vectorB.mul(a[rowA1 + k]));
+                c2 = c2.add(vectorB.mul(a[rowA2 + k]));
+                c3 = c3.add(vectorB.mul(a[rowA3 + k]));
+            }
+
+            c0.intoArray(c, rowC0 + j);
+            c1.intoArray(c, rowC1 + j);
+            c2.intoArray(c, rowC2 + j);
+            c3.intoArray(c, rowC3 + j);
+        }
+
+        for (; j < endJ; j++) {
+            long c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                c0 += a[rowA0 + k] * b[cellB];
+                c1 += a[rowA1 + k] * b[cellB];
+                c2 += a[rowA2 + k] * b[cellB];
+                c3 += a[rowA3 + k] * b[cellB];
+            }
+            c[rowC0 + j] += c0;
+            c[rowC1 + j] += c1;
+            c[rowC2 + j] += c2;
+            c[rowC3 + j] += c3;
+        }
+    }
+
+    private static void multiplyOneRow(LongMatrix matrixA, LongMatrix matrixB, LongMatrix matrixC, int i,
+                                       int blockK, int endK, int blockJ, int endJ) {
+        long[] a = matrixA.data();
+        long[] b = matrixB.data();
+        long[] c = matrixC.data();
+
+        int rowA = matrixA.index(i, 0);
+        int rowC = matrixC.index(i, 0);
+
+        int j = blockJ;
+        for (; j + LONG_LANES <= endJ; j += LONG_LANES) {
+            var accumulator = LongVector.fromArray(LONG_SPECIES, c, rowC + j);
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                accumulator = accumulator.add(LongVector.fromArray(LONG_SPECIES, b, cellB).mul(a[rowA + k]));
+            }
+            accumulator.intoArray(c, rowC + j);
+        }
+
+        for (; j < endJ; j++) {
+            long cell = 0;
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                cell += a[rowA + k] * b[cellB];
+            }
+            c[rowC + j] += cell;
+        }
+    }
+
+    // same register tiling for double matrices, called by WideMatrixKernel.multiply
+    public static void multiply(DoubleMatrix matrixA, DoubleMatrix matrixB, DoubleMatrix matrixC) {
+        int rows = matrixA.rows();
+        int columns = matrixB.columns();
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+
+        matrixC.fill(0);
+
+        for (int blockK = 0; blockK < interlacedAxisSize; blockK += BLOCK_DEPTH) {
+            int endK = Math.min(blockK + BLOCK_DEPTH, interlacedAxisSize);
+            for (int blockJ = 0; blockJ < columns; blockJ += BLOCK_COLUMNS) {
+                int endJ = Math.min(blockJ + BLOCK_COLUMNS, columns);
+
+                int i = 0;
+                for (; i + 4 <= rows; i += 4) {
+                    multiplyFourRows(matrixA, matrixB, matrixC, i, blockK, endK, blockJ, endJ);
+                }
+                for (; i < rows; i++) {
+                    multiplyOneRow(matrixA, matrixB, matrixC, i, blockK, endK, blockJ, endJ);
+                }
+            }
+        }
+    }
+
+    private static void multiplyFourRows(DoubleMatrix matrixA, DoubleMatrix matrixB, DoubleMatrix matrixC, int i,
+                                         int blockK, int endK, int blockJ, int endJ) {
+        double[] a = matrixA.data();
+        double[] b = matrixB.data();
+        double[] c = matrixC.data();
+
+        int rowA0 = matrixA.index(i, 0);
+        int rowA1 = rowA0 + matrixA.stride();
+        int rowA2 = rowA1 + matrixA.stride();
+        int rowA3 = rowA2 + matrixA.stride();
+        int rowC0 = matrixC.index(i, 0);
+        int rowC1 = rowC0 + matrixC.stride();
+        int rowC2 = rowC1 + matrixC.stride();
+        int rowC3 = rowC2 + matrixC.stride();
+
+        int j = blockJ;
+        for (; j + DOUBLE_LANES <= endJ; j += DOUBLE_LANES) {
+            var c0 = DoubleVector.fromArray(DOUBLE_SPECIES, c, rowC0 + j);
+            var c1 = DoubleVector.fromArray(DOUBLE_SPECIES, c, rowC1 + j);
+            var c2 = DoubleVector.fromArray(DOUBLE_SPECIES, c, rowC2 + j);
+            var c3 = DoubleVector.fromArray(DOUBLE_SPECIES, c, rowC3 + j);
+
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                var vectorB = DoubleVector.fromArray(DOUBLE_SPECIES, b, cellB);
+                c0 = c0.add(vectorB.mul(a[rowA0 + k]));
+                c1 = c1.add(vectorB.mul(a[rowA1 + k]));
+                c2 = c2.add(vectorB.mul(a[rowA2 + k]));
+                c3 = c3.add(vectorB.mul(a[rowA3 + k]));
+            }
+
+            c0.intoArray(c, rowC0 + j);
+            c1.intoArray(c, rowC1 + j);
+            c2.intoArray(c, rowC2 + j);
+            c3.intoArray(c, rowC3 + j);
+        }
+
+        for (; j < endJ; j++) {
+            double c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                c0 += a[rowA0 + k] * b[cellB];
+                c1 += a[rowA1 + k] * b[cellB];
+                c2 += a[rowA2 + k] * b[cellB];
+                c3 += a[rowA3 + k] * b[cellB];
+            }
+            c[rowC0 + j] += c0;
+            c[rowC1 + j] += c1;
+            c[rowC2 + j] += c2;
+            c[rowC3 + j] += c3;
+        }
+    }
+
+    private static void multiplyOneRow(DoubleMatrix matrixA, DoubleMatrix matrixB, DoubleMatrix matrixC, int i,
+                                       int blockK, int endK, int blockJ, int endJ) {
+        double[] a = matrixA.data();
+        double[] b = matrixB.data();
+        double[] c = matrixC.data();
+
+        int rowA = matrixA.index(i, 0);
+        int rowC = matrixC.index(i, 0);
+
+        int j = blockJ;
+        for (; j + DOUBLE_LANES <= endJ; j += DOUBLE_LANES) {
+            var accumulator = DoubleVector.fromArray(DOUBLE_SPECIES, c, rowC + j);
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                accumulator = accumulator.add(DoubleVector.fromArray(DOUBLE_SPECIES, b, cellB).mul(a[rowA + k]));
+            }
+            accumulator.intoArray(c, rowC + j);
+        }
+
+        for (; j < endJ; j++) {
+            double cell = 0;
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                cell += a[rowA + k] * b[cellB];
+            }
+            c[rowC + j] += cell;
+        }
+    }
+
+    // same register tiling for float matrices, called by WideMatrixKernel.multiply
+    public static void multiply(FloatMatrix matrixA, FloatMatrix matrixB, FloatMatrix matrixC) {
+        int rows = matrixA.rows();
+        int columns = matrixB.columns();
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+
+        matrixC.fill(0);
+
+        for (int blockK = 0; blockK < interlacedAxisSize; blockK += BLOCK_DEPTH) {
+            int endK = Math.min(blockK + BLOCK_DEPTH, interlacedAxisSize);
+            for (int blockJ = 0; blockJ < columns; blockJ += BLOCK_COLUMNS) {
+                int endJ = Math.min(blockJ + BLOCK_COLUMNS, columns);
+
+                int i = 0;
+                for (; i + 4 <= rows; i += 4) {
+                    multiplyFourRows(matrixA, matrixB, matrixC, i, blockK, endK, blockJ, endJ);
+                }
+                for (; i < rows; i++) {
+                    multiplyOneRow(matrixA, matrixB, matrixC, i, blockK, endK, blockJ, endJ);
+                }
+            }
+        }
+    }
+
+    private static void multiplyFourRows(FloatMatrix matrixA, FloatMatrix matrixB, FloatMatrix matrixC, int i,
+                                         int blockK, int endK, int blockJ, int endJ) {
+        float[] a = matrixA.data();
+        float[] b = matrixB.data();
+        float[] c = matrixC.data();
+
+        int rowA0 = matrixA.index(i, 0);
+        int rowA1 = rowA0 + matrixA.stride();
+        int rowA2 = rowA1 + matrixA.stride();
+        int rowA3 = rowA2 + matrixA.stride();
+        int rowC0 = matrixC.index(i, 0);
+        int rowC1 = rowC0 + matrixC.stride();
+        int rowC2 = rowC1 + matrixC.stride();
+        int rowC3 = rowC2 + matrixC.stride();
+
+        int j = blockJ;
+        for (; j + FLOAT_LANES <= endJ; j += FLOAT_LANES) {
+            var c0 = FloatVector.fromArray(FLOAT_SPECIES, c, rowC0 + j);
+            var c1 = FloatVector.fromArray(FLOAT_SPECIES, c, rowC1 + j);
+            var c2 = FloatVector.fromArray(FLOAT_SPECIES, c, rowC2 + j);
+            var c3 = FloatVector.fromArray(FLOAT_SPECIES, c, rowC3 + j);
+
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                var vectorB = FloatVector.fromArray(FLOAT_SPECIES, b, cellB);
+                c0 = c0.add(vectorB.mul(a[rowA0 + k]));
+                c1 = c1.add(vectorB.mul(a[rowA1 + k]));
+                c2 = c2.add(vectorB.mul(a[rowA2 + k]));
+                c3 = c3.add(vectorB.mul(a[rowA3 + k]));
+            }
+
+            c0.intoArray(c, rowC0 + j);
+            c1.intoArray(c, rowC1 + j);
+            c2.intoArray(c, rowC2 + j);
+            c3.intoArray(c, rowC3 + j);
+        }
+
+        for (; j < endJ; j++) {
+            float c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                c0 += a[rowA0 + k] * b[cellB];
+                c1 += a[rowA1 + k] * b[cellB];
+                c2 += a[rowA2 + k] * b[cellB];
+                c3 += a[rowA3 + k] * b[cellB];
+            }
+            c[rowC0 + j] += c0;
+            c[rowC1 + j] += c1;
+            c[rowC2 + j] += c2;
+            c[rowC3 + j] += c3;
+        }
+    }
+
+    private static void multiplyOneRow(FloatMatrix matrixA, FloatMatrix matrixB, FloatMatrix matrixC, int i,
+                                       int blockK, int endK, int blockJ, int endJ) {
+        float[] a = matrixA.data();
+        float[] b = matrixB.data();
+        float[] c = matrixC.data();
+
+        int rowA = matrixA.index(i, 0);
+        int rowC = matrixC.index(i, 0);
+
+        int j = blockJ;
+        for (; j + FLOAT_LANES <= endJ; j += FLOAT_LANES) {
+            var accumulator = FloatVector.fromArray(FLOAT_SPECIES, c, rowC + j);
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                accumulator = accumulator.add(FloatVector.fromArray(FLOAT_SPECIES, b, cellB).mul(a[rowA + k]));
+            }
+            accumulator.intoArray(c, rowC + j);
+        }
+
+        for (; j < endJ; j++) {
+            float cell = 0;
+            for (int k = blockK, cellB = matrixB.index(blockK, j); k < endK; k++, cellB += matrixB.stride()) {
+                cell += a[rowA + k] * b[cellB];
+            }
+            c[rowC + j] += cell;
+        }
+    }
+
+    // assume matrices of identical dimensions, matrixC may alias matrixA or matrixB
+    public static void sum(Matrix matrixA, Matrix matrixB, Matrix matrixC) {
+        int[] a = matrixA.data();
+        int[] b = matrixB.data();
+        int[] c = matrixC.data();
+        int columns = matrixA.columns();
+        int vectorEnd = SPECIES.loopBound(columns);
+
+        for (int i = 0; i < matrixA.rows(); i++) {
+            int rowA = matrixA.index(i, 0);
+            int rowB = matrixB.index(i, 0);
+            int rowC = matrixC.index(i, 0);
+
+            int j = 0;
+            for (; j < vectorEnd; j += LANES) {
+                IntVector.fromArray(SPECIES, a, rowA + j)
+                        .add(IntVector.fromArray(SPECIES, b, rowB + j))
+                        .intoArray(c, rowC + j);
+            }
+            for (; j < columns; j++) {
+                c[rowC + j] = a[rowA + j] + b[rowB + j];
+            }
+        }
+    }
+
+    // assume matrices of identical dimensions, matrixC may alias matrixA or matrixB
+    public static void subtract(Matrix matrixA, Matrix matrixB, Matrix matrixC) {
+        int[] a = matrixA.data();
+        int[] b = matrixB.data();
+        int[] c = matrixC.data();
+        int columns = matrixA.columns();
+        int vectorEnd = SPECIES.loopBound(columns);
+
+        for (int i = 0; i < matrixA.rows(); i++) {
+            int rowA = matrixA.index(i, 0);
+            int rowB = matrixB.index(i, 0);
+            int rowC = matrixC.index(i, 0);
+
+            int j = 0;
+            for (; j < vectorEnd; j += LANES) {
+                IntVector.fromArray(SPECIES, a, rowA + j)
+                        .sub(IntVector.fromArray(SPECIES, b, rowB + j))
+                        .intoArray(c, rowC + j);
+            }
+            for (; j < columns; j++) {
+                c[rowC + j] = a[rowA + j] - b[rowB + j];
+            }
+        }
+    }
+}
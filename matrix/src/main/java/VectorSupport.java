@@ -0,0 +1,21 @@
+// Runtime switch between the SIMD kernels of VectorMatrixKernel and the scalar ones.
+// The Vector API is still an incubator module, it is only used when the JVM was started with
+// --add-modules jdk.incubator.vector and the "matrices.simd" system property is not set to false.
+public class VectorSupport {
+    private static final boolean available = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    private static volatile boolean enabled = available
+            && Boolean.parseBoolean(System.getProperty("matrices.simd", "true"));
+
+    public static boolean isAvailable() {
+        return available;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // turning the SIMD kernels on is ignored when the vector module is not loaded
+    public static void setEnabled(boolean newEnabled) {
+        enabled = newEnabled && available;
+    }
+}
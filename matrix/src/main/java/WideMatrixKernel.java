@@ -0,0 +1,209 @@
+// Classical product for the wider element types, the counterpart of BlockedMatrixKernel for long, double and float.
+// Every element type has its own overload so nothing is ever boxed. The depth and the columns are blocked like in the
+// int kernels, the inner loop is the i-k-j form: one element of A is broadcast over a row segment of B and added to
+// the same segment of C. The long, double and float products switch to the SIMD kernels of VectorMatrixKernel when
+// VectorSupport is enabled, the int operands accumulated in long always stay on this loop.
+public class WideMatrixKernel {
+    private static final int BLOCK_DEPTH = 256;
+    private static final int BLOCK_COLUMNS = 1024;
+
+    // matrixC = matrixA * matrixB with int operands accumulated in long: a product of two ints is always exact, the
+    // sum can only wrap once the interlaced axis adds up more than 2^63 in magnitude
+    public static void multiply(Matrix matrixA, Matrix matrixB, LongMatrix matrixC) {
+        int rows = matrixA.rows();
+        int columns = matrixB.columns();
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+        int[] a = matrixA.data();
+        int[] b = matrixB.data();
+        long[] c = matrixC.data();
+
+        matrixC.fill(0);
+
+        for (int blockK = 0; blockK < interlacedAxisSize; blockK += BLOCK_DEPTH) {
+            int endK = Math.min(blockK + BLOCK_DEPTH, interlacedAxisSize);
+            for (int blockJ = 0; blockJ < columns; blockJ += BLOCK_COLUMNS) {
+                int width = Math.min(BLOCK_COLUMNS, columns - blockJ);
+                for (int i = 0; i < rows; i++) {
+                    int rowA = matrixA.index(i, 0);
+                    int rowC = matrixC.index(i, blockJ);
+                    for (int k = blockK; k < endK; k++) {
+                        long cellA = a[rowA + k];
+                        int rowB = matrixB.index(k, blockJ);
+                        for (int j = 0; j < width; j++) {
+                            c[rowC + j] += cellA * b[rowB + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // matrixC = matrixA * matrixB, all three can be views, matrixC must not alias the operands
+    public static void multiply(LongMatrix matrixA, LongMatrix matrixB, LongMatrix matrixC) {
+        if (VectorSupport.isEnabled()) {
+            VectorMatrixKernel.multiply(matrixA, matrixB, matrixC);
+            return;
+        }
+
+        int rows = matrixA.rows();
+        int columns = matrixB.columns();
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+        long[] a = matrixA.data();
+        long[] b = matrixB.data();
+        long[] c = matrixC.data();
+
+        matrixC.fill(0);
+
+        for (int blockK = 0; blockK < interlacedAxisSize; blockK += BLOCK_DEPTH) {
+            int endK = Math.min(blockK + BLOCK_DEPTH, interlacedAxisSize);
+            for (int blockJ = 0; blockJ < columns; blockJ += BLOCK_COLUMNS) {
+                int width = Math.min(BLOCK_COLUMNS, columns - blockJ);
+                for (int i = 0; i < rows; i++) {
+                    int rowA = matrixA.index(i, 0);
+                    int rowC = matrixC.index(i, blockJ);
+                    for (int k = blockK; k < endK; k++) {
+                        long cellA = a[rowA + k];
+                        int rowB = matrixB.index(k, blockJ);
+                        for (int j = 0; j < width; j++) {
+                            c[rowC + j] += cellA * b[rowB + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // matrixC = matrixA * matrixB, all three can be views, matrixC must not alias the operands
+    public static void multiply(DoubleMatrix matrixA, DoubleMatrix matrixB, DoubleMatrix matrixC) {
+        if (VectorSupport.isEnabled()) {
+            VectorMatrixKernel.multiply(matrixA, matrixB, matrixC);
+            return;
+        }
+
+        int rows = matrixA.rows();
+        int columns = matrixB.columns();
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+        double[] a = matrixA.data();
+        double[] b = matrixB.data();
+        double[] c = matrixC.data();
+
+        matrixC.fill(0);
+
+        for (int blockK = 0; blockK < interlacedAxisSize; blockK += BLOCK_DEPTH) {
+            int endK = Math.min(blockK + BLOCK_DEPTH, interlacedAxisSize);
+            for (int blockJ = 0; blockJ < columns; blockJ += BLOCK_COLUMNS) {
+                int width = Math.min(BLOCK_COLUMNS, columns - blockJ);
+                for (int i = 0; i < rows; i++) {
+                    int rowA = matrixA.index(i, 0);
+                    int rowC = matrixC.index(i, blockJ);
+                    for (int k = blockK; k < endK; k++) {
+                        double cellA = a[rowA + k];
+                        int rowB = matrixB.index(k, blockJ);
+                        for (int j = 0; j < width; j++) {
+                            c[rowC + j] += cellA * b[rowB + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // matrixC = matrixA * matrixB accumulated in float, all three can be views, matrixC must not alias the operands
+    public static void multiply(FloatMatrix matrixA, FloatMatrix matrixB, FloatMatrix matrixC) {
+        if (VectorSupport.isEnabled()) {
+            VectorMatrixKernel.multiply(matrixA, matrixB, matrixC);
+            return;
+        }
+
+        int rows = matrixA.rows();
+        int columns = matrixB.columns();
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+        float[] a = matrixA.data();
+        float[] b = matrixB.data();
+        float[] c = matrixC.data();
+
+        matrixC.fill(0);
+
+        for (int blockK = 0; blockK < interlacedAxisSize; blockK += BLOCK_DEPTH) {
+            int endK = Math.min(blockK + BLOCK_DEPTH, interlacedAxisSize);
+            for (int blockJ = 0; blockJ < columns; blockJ += BLOCK_COLUMNS) {
+                int width = Math.min(BLOCK_COLUMNS, columns - blockJ);
+                for (int i = 0; i < rows; i++) {
+                    int rowA = matrixA.index(i, 0);
+                    int rowC = matrixC.index(i, blockJ);
+                    for (int k = blockK; k < endK; k++) {
+                        float cellA = a[rowA + k];
+                        int rowB = matrixB.index(k, blockJ);
+                        for (int j = 0; j < width; j++) {
+                            c[rowC + j] += cellA * b[rowB + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // assume matrices of identical dimensions, matrixC may alias matrixA or matrixB
+    public static void sum(LongMatrix matrixA, LongMatrix matrixB, LongMatrix matrixC) {
+        long[] a = matrixA.data();
+        long[] b = matrixB.data();
+        long[] c = matrixC.data();
+
+        for (int i = 0; i < matrixA.rows(); i++) {
+            int rowA = matrixA.index(i, 0);
+            int rowB = matrixB.index(i, 0);
+            int rowC = matrixC.index(i, 0);
+            for (int j = 0; j < matrixA.columns(); j++) {
+                c[rowC + j] = a[rowA + j] + b[rowB + j];
+            }
+        }
+    }
+
+    // assume matrices of identical dimensions, matrixC may alias matrixA or matrixB
+    public static void subtract(LongMatrix matrixA, LongMatrix matrixB, LongMatrix matrixC) {
+        long[] a = matrixA.data();
+        long[] b = matrixB.data();
+        long[] c = matrixC.data();
+
+        for (int i = 0; i < matrixA.rows(); i++) {
+            int rowA = matrixA.index(i, 0);
+            int rowB = matrixB.index(i, 0);
+            int rowC = matrixC.index(i, 0);
+            for (int j = 0; j < matrixA.columns(); j++) {
+                c[rowC + j] = a[rowA + j] - b[rowB + j];
+            }
+        }
+    }
+
+    // assume matrices of identical dimensions, matrixC may alias matrixA or matrixB
+    public static void sum(DoubleMatrix matrixA, DoubleMatrix matrixB, DoubleMatrix matrixC) {
+        double[] a = matrixA.data();
+        double[] b = matrixB.data();
+        double[] c = matrixC.data();
+
+        for (int i = 0; i < matrixA.rows(); i++) {
+            int rowA = matrixA.index(i, 0);
+            int rowB = matrixB.index(i, 0);
+            int rowC = matrixC.index(i, 0);
+            for (int j = 0; j < matrixA.columns(); j++) {
+                c[rowC + j] = a[rowA + j] + b[rowB + j];
+            }
+        }
+    }
+
+    // assume matrices of identical dimensions, matrixC may alias matrixA or matrixB
+    public static void subtract(DoubleMatrix matrixA, DoubleMatrix matrixB, DoubleMatrix matrixC) {
+        double[] a = matrixA.data();
+        double[] b = matrixB.data();
+        double[] c = matrixC.data();
+
+        for (int i = 0; i < matrixA.rows(); i++) {
+            int rowA = matrixA.index(i, 0);
+            int rowB = matrixB.index(i, 0);
+            int rowC = matrixC.index(i, 0);
+            for (int j = 0; j < matrixA.columns(); j++) {
+                c[rowC + j] = a[rowA + j] - b[rowB + j];
+            }
+        }
+    }
+}
@@ -1,2 +1,4 @@
 rootProject.name = "naiveMatrixMultiplication"
 
+// shared flat matrix type
+includeBuild("../matrix")
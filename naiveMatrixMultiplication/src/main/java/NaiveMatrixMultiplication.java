@@ -27,6 +27,310 @@ public class NaiveMatrixMultiplication {
         return matrixC;
     }
 
+    // same algorithm on the contiguous representation: no per-row objects and the inner loop only moves indexes
+    public static Matrix naiveMatrixMultiply(Matrix matrixA, Matrix matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+            return new Matrix(0, 0);
+        } else if (matrixA.rows() == 0 ^ matrixB.rows() == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (matrixA.columns() != matrixB.rows()) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        }
+
+        var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+
+        int[] a = matrixA.data();
+        int[] b = matrixB.data();
+        int[] c = matrixC.data();
+
+        for (int i = 0; i < matrixC.rows(); i++) {
+            int rowA = matrixA.index(i, 0);
+            for (int j = 0; j < matrixC.columns(); j++) {
+                int cellB = matrixB.index(0, j);
+                int cell = 0;
+                for (int k = 0; k < interlacedAxisSize; k++, cellB += matrixB.stride()) {
+                    cell += a[rowA + k] * b[cellB];
+                }
+                c[matrixC.index(i, j)] = cell;
+            }
+        }
+
+        return matrixC;
+    }
+
+    // classical algorithm through the cache blocked, register tiled kernel, same result as naiveMatrixMultiply
+    public static Matrix blockedMatrixMultiply(Matrix matrixA, Matrix matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+            return new Matrix(0, 0);
+        } else if (matrixA.rows() == 0 ^ matrixB.rows() == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (matrixA.columns() != matrixB.rows()) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        }
+
+        var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+        BlockedMatrixKernel.multiply(matrixA, matrixB, matrixC);
+        return matrixC;
+    }
+
+    public static int[][] blockedMatrixMultiply(int[][] matrixA, int[][] matrixB) throws Exception {
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new int[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        }
+
+        return blockedMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB)).toArray();
+    }
+
+    // GEMM into a caller owned matrix, matrixC = alpha * matrixA * matrixB + beta * matrixC, nothing is allocated.
+    // matrixC must not alias the operands, a beta of 0 ignores its previous content.
+    public static void naiveMatrixMultiply(int[][] matrixA, int[][] matrixB, int[][] matrixC,
+                                           int alpha, int beta) throws Exception {
+        if (validate(matrixA.length, matrixA.length == 0 ? 0 : matrixA[0].length,
+                matrixB.length, matrixB.length == 0 ? 0 : matrixB[0].length,
+                matrixC.length, matrixC.length == 0 ? 0 : matrixC[0].length)) {
+            return;
+        }
+
+        int interlacedAxisSize = matrixA[0].length; // equivalent to matrixB.length
+
+        for (int i = 0; i < matrixC.length; i++) {
+            for (int j = 0; j < matrixC[i].length; j++) {
+                int cell = 0;
+                for (int k = 0; k < interlacedAxisSize; k++) {
+                    cell += matrixA[i][k] * matrixB[k][j];
+                }
+                matrixC[i][j] = alpha * cell + (beta == 0 ? 0 : beta * matrixC[i][j]);
+            }
+        }
+    }
+
+    public static void naiveMatrixMultiply(Matrix matrixA, Matrix matrixB, Matrix matrixC,
+                                           int alpha, int beta) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows(), matrixB.columns(),
+                matrixC.rows(), matrixC.columns())) {
+            return;
+        }
+
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+
+        int[] a = matrixA.data();
+        int[] b = matrixB.data();
+        int[] c = matrixC.data();
+
+        for (int i = 0; i < matrixC.rows(); i++) {
+            int rowA = matrixA.index(i, 0);
+            for (int j = 0; j < matrixC.columns(); j++) {
+                int cellB = matrixB.index(0, j);
+                int cell = 0;
+                for (int k = 0; k < interlacedAxisSize; k++, cellB += matrixB.stride()) {
+                    cell += a[rowA + k] * b[cellB];
+                }
+                int cellC = matrixC.index(i, j);
+                c[cellC] = alpha * cell + (beta == 0 ? 0 : beta * c[cellC]);
+            }
+        }
+    }
+
+    // same through the blocked kernel, see BlockedMatrixKernel.multiplyAdd
+    public static void blockedMatrixMultiply(Matrix matrixA, Matrix matrixB, Matrix matrixC,
+                                             int alpha, int beta) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows(), matrixB.columns(),
+                matrixC.rows(), matrixC.columns())) {
+            return;
+        }
+
+        BlockedMatrixKernel.multiplyAdd(matrixA, matrixB, matrixC, alpha, beta);
+    }
+
+    // checks of the variants writing into an output matrix, true when both operands are empty (nothing to compute)
+    private static boolean validate(int rowsA, int columnsA, int rowsB, int columnsB,
+                                    int rowsC, int columnsC) throws Exception {
+        if (rowsA == 0 && rowsB == 0) {
+            return true;
+        } else if (rowsA == 0 ^ rowsB == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (columnsA != rowsB) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        } else if (rowsC != rowsA || columnsC != columnsB) {
+            throw new Exception("The output matrix does not have the shape of the product");
+        }
+        return false;
+    }
+
+    // int operands accumulated in long, every product is exact and the sum only wraps past 2^63
+    public static long[][] widenedMatrixMultiply(int[][] matrixA, int[][] matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new long[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (matrixA[0].length != matrixB.length) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        }
+
+        var matrixC = new long[matrixA.length][matrixB[0].length];
+        int interlacedAxisSize = matrixA[0].length; // equivalent to matrixB.length
+
+        for (int i = 0; i < matrixC.length; i++) {
+            for (int j = 0; j < matrixC[i].length; j++) {
+                for (int k = 0; k < interlacedAxisSize; k++) {
+                    matrixC[i][j] += (long) matrixA[i][k] * matrixB[k][j];
+                }
+            }
+        }
+
+        return matrixC;
+    }
+
+    public static LongMatrix widenedMatrixMultiply(Matrix matrixA, Matrix matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+            return new LongMatrix(0, 0);
+        } else if (matrixA.rows() == 0 ^ matrixB.rows() == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (matrixA.columns() != matrixB.rows()) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        }
+
+        var matrixC = new LongMatrix(matrixA.rows(), matrixB.columns());
+        WideMatrixKernel.multiply(matrixA, matrixB, matrixC);
+        return matrixC;
+    }
+
+    public static long[][] naiveMatrixMultiply(long[][] matrixA, long[][] matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new long[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (matrixA[0].length != matrixB.length) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        }
+
+        var matrixC = new long[matrixA.length][matrixB[0].length];
+        int interlacedAxisSize = matrixA[0].length; // equivalent to matrixB.length
+
+        for (int i = 0; i < matrixC.length; i++) {
+            for (int j = 0; j < matrixC[i].length; j++) {
+                for (int k = 0; k < interlacedAxisSize; k++) {
+                    matrixC[i][j] += matrixA[i][k] * matrixB[k][j];
+                }
+            }
+        }
+
+        return matrixC;
+    }
+
+    public static double[][] naiveMatrixMultiply(double[][] matrixA, double[][] matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new double[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (matrixA[0].length != matrixB.length) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        }
+
+        var matrixC = new double[matrixA.length][matrixB[0].length];
+        int interlacedAxisSize = matrixA[0].length; // equivalent to matrixB.length
+
+        for (int i = 0; i < matrixC.length; i++) {
+            for (int j = 0; j < matrixC[i].length; j++) {
+                for (int k = 0; k < interlacedAxisSize; k++) {
+                    matrixC[i][j] += matrixA[i][k] * matrixB[k][j];
+                }
+            }
+        }
+
+        return matrixC;
+    }
+
+    public static float[][] naiveMatrixMultiply(float[][] matrixA, float[][] matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new float[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (matrixA[0].length != matrixB.length) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        }
+
+        var matrixC = new float[matrixA.length][matrixB[0].length];
+        int interlacedAxisSize = matrixA[0].length; // equivalent to matrixB.length
+
+        for (int i = 0; i < matrixC.length; i++) {
+            for (int j = 0; j < matrixC[i].length; j++) {
+                for (int k = 0; k < interlacedAxisSize; k++) {
+                    matrixC[i][j] += matrixA[i][k] * matrixB[k][j];
+                }
+            }
+        }
+
+        return matrixC;
+    }
+
+    // product modulo p of operands already reduced to [0, modulus), the cell is accumulated in long and only reduced
+    // when the next products could overflow it (delayed reduction)
+    public static int[][] modularMatrixMultiply(int[][] matrixA, int[][] matrixB, int modulus) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new int[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (matrixA[0].length != matrixB.length) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        }
+
+        var matrixC = new int[matrixA.length][matrixB[0].length];
+        int interlacedAxisSize = matrixA[0].length; // equivalent to matrixB.length
+        int interval = ModularMatrixKernel.reductionInterval(modulus);
+
+        for (int i = 0; i < matrixC.length; i++) {
+            for (int j = 0; j < matrixC[i].length; j++) {
+                long cell = 0;
+                for (int k = 0; k < interlacedAxisSize; k++) {
+                    if (k % interval == 0) {
+                        cell %= modulus;
+                    }
+                    cell += (long) matrixA[i][k] * matrixB[k][j];
+                }
+                matrixC[i][j] = (int) (cell % modulus);
+            }
+        }
+
+        return matrixC;
+    }
+
+    public static Matrix modularMatrixMultiply(Matrix matrixA, Matrix matrixB, int modulus) throws Exception {
+        // validate the matrices
+        if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+            return new Matrix(0, 0);
+        } else if (matrixA.rows() == 0 ^ matrixB.rows() == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (matrixA.columns() != matrixB.rows()) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        }
+
+        var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+        ModularMatrixKernel.multiply(matrixA, matrixB, matrixC, modulus);
+        return matrixC;
+    }
+
     public static void main(String[] args) throws Exception {
         int[][] matrixA = {{1, 2, 3},
                             {4, 5, 6}};
@@ -37,6 +341,35 @@ public class NaiveMatrixMultiplication {
                                            {320, 335}};
 
         var result = naiveMatrixMultiply(matrixA, matrixB);
+        var flatResult = naiveMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB));
+        assert flatResult.contentEquals(Matrix.of(expectedReferenceResult));
+        var blockedResult = blockedMatrixMultiply(matrixA, matrixB);
+        assert Matrix.of(blockedResult).contentEquals(Matrix.of(expectedReferenceResult));
+
+        // C = 2 * A * B - C, twice: the second call sees the result of the first
+        var accumulated = new int[][]{{1, 1}, {1, 1}};
+        naiveMatrixMultiply(matrixA, matrixB, accumulated, 2, -1);
+        assert Matrix.of(accumulated).contentEquals(Matrix.of(new int[][]{{279, 291}, {639, 669}}));
+        var flatAccumulated = Matrix.of(new int[][]{{1, 1}, {1, 1}});
+        naiveMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB), flatAccumulated, 2, -1);
+        blockedMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB), flatAccumulated, 2, -1);
+        assert flatAccumulated.contentEquals(Matrix.of(new int[][]{{1, 1}, {1, 1}}));
+
+        // 2^16 * 2^16 overflows an int but not a long
+        int[][] largeMatrix = {{1 << 16}};
+        assert widenedMatrixMultiply(largeMatrix, largeMatrix)[0][0] == 1L << 32;
+        assert widenedMatrixMultiply(Matrix.of(largeMatrix), Matrix.of(largeMatrix)).get(0, 0) == 1L << 32;
+        assert naiveMatrixMultiply(new double[][]{{0.5, 2}}, new double[][]{{4}, {0.25}})[0][0] == 2.5;
+
+        int modulus = 1_000_000_007;
+        int[][] residues = {{modulus - 1, modulus - 2}, {3, modulus - 4}};
+        // the residues stand for {{-1, -2}, {3, -4}}, whose square is {{-5, 10}, {-15, 10}}
+        int[][] expectedModularResult = {{modulus - 5, 10},
+                                         {modulus - 15, 10}};
+        assert Matrix.of(modularMatrixMultiply(residues, residues, modulus))
+                .contentEquals(Matrix.of(expectedModularResult));
+        assert modularMatrixMultiply(Matrix.of(residues), Matrix.of(residues), modulus)
+                .contentEquals(Matrix.of(expectedModularResult));
 
         /*for (int i = 0; i < expectedReferenceResult.length; i++) {
             for (int j = 0; j < expectedReferenceResult[i].length; j++) {
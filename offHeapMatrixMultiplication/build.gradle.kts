@@ -0,0 +1,34 @@
+plugins {
+    java
+}
+
+group = "org.example"
+version = "1.0-SNAPSHOT"
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    implementation("org.example", "matrix", "1.0-SNAPSHOT")
+    implementation("org.example", "strassen", "1.0-SNAPSHOT")
+    implementation("org.example", "outOfCoreMatrixMultiplication", "1.0-SNAPSHOT")
+    testCompile("junit", "junit", "4.12")
+}
+
+// The foreign memory API (java.lang.foreign) is final from Java 22, hence this build needs a 22 toolchain, unlike the
+// builds it depends on (the classes do not load on an older JVM). The matrix kernels also need the Vector API incubator
+// module when running: java --add-modules jdk.incubator.vector ...
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(22))
+    }
+}
+
+tasks.withType<Test> {
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+}
+
+tasks.withType<JavaExec> {
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+}
@@ -0,0 +1,8 @@
+rootProject.name = "offHeapMatrixMultiplication"
+
+// shared flat matrix type and blocked kernel
+includeBuild("../matrix")
+// workspace sizing of the Strassen recursion
+includeBuild("../strassen")
+// matrix file format mapped by SegmentMatrix.map
+includeBuild("../outOfCoreMatrixMultiplication")
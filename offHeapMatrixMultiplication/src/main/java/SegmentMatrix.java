@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A row-major int matrix backed by a MemorySegment instead of a Java array: it lives outside the heap (so the GC never
+// scans or copies it) and its lifetime is the one of the Arena it was allocated in, or of the file mapping.
+// Like Matrix it can be a view: the element (i, j) is the int at index offset + i * stride + j of the segment, indexes
+// are longs so a single matrix can hold more than 2^31 cells. The cells are little-endian ints, the byte order of
+// MatrixFile, so a matrix file maps straight into a SegmentMatrix without any copy.
+// java.lang.foreign is final from Java 22, this module needs a Java 22 or later runtime.
+public class SegmentMatrix {
+    static final ValueLayout.OfInt CELL = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final MemorySegment segment;
+    private final long offset;
+    private final int rows;
+    private final int columns;
+    private final long stride;
+
+    public SegmentMatrix(MemorySegment segment, long offset, int rows, int columns, long stride) {
+        if (rows < 0 || columns < 0 || offset < 0 || stride < columns) {
+            throw new IllegalArgumentException("Invalid matrix shape " + rows + "x" + columns
+                    + " (offset " + offset + ", stride " + stride + ")");
+        }
+        if (rows > 0 && columns > 0 && (offset + (rows - 1) * stride + columns) * Integer.BYTES > segment.byteSize()) {
+            throw new IllegalArgumentException("The matrix shape does not fit in the backing segment");
+        }
+
+        this.segment = segment;
+        this.offset = offset;
+        this.rows = rows;
+        this.columns = columns;
+        this.stride = stride;
+    }
+
+    // zero filled rows x columns matrix freed with the arena
+    public static SegmentMatrix allocate(Arena arena, int rows, int columns) {
+        var segment = arena.allocate((long) rows * columns * Integer.BYTES, Integer.BYTES);
+        return new SegmentMatrix(segment, 0, rows, columns, columns);
+    }
+
+    // off-heap copy of a heap matrix
+    public static SegmentMatrix of(Arena arena, Matrix matrix) {
+        var result = allocate(arena, matrix.rows(), matrix.columns());
+        result.writeTile(0, 0, matrix);
+        return result;
+    }
+
+    // Map a MatrixFile (header then little-endian row-major cells) as one segment, whatever its size: unlike a
+    // MappedByteBuffer a mapped segment is not limited to 2 GB. The mapping is released when the arena is closed,
+    // writes go to the file.
+    public static SegmentMatrix map(Path path, Arena arena, boolean writable) throws IOException {
+        int rows;
+        int columns;
+        try (var file = MatrixFile.open(path)) {
+            rows = file.rows();
+            columns = file.columns();
+        }
+
+        try (var channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ)) {
+            var mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+            var segment = channel.map(mode, MatrixFile.HEADER_BYTES, (long) rows * columns * Integer.BYTES, arena);
+            return new SegmentMatrix(segment, 0, rows, columns, columns);
+        }
+    }
+
+    // heap copy, only for matrices that fit in an array
+    public Matrix toMatrix() {
+        var matrix = new Matrix(rows, columns);
+        readTile(0, 0, matrix);
+        return matrix;
+    }
+
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    public long offset() {
+        return offset;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public long stride() {
+        return stride;
+    }
+
+    // index of the int holding (i, j) in the segment
+    public long index(int i, int j) {
+        return offset + i * stride + j;
+    }
+
+    public int get(int i, int j) {
+        return segment.getAtIndex(CELL, index(i, j));
+    }
+
+    public void set(int i, int j, int value) {
+        segment.setAtIndex(CELL, index(i, j), value);
+    }
+
+    // a rows x columns sub-matrix starting at (row, column), sharing this matrix memory
+    public SegmentMatrix view(int row, int column, int rows, int columns) {
+        if (row < 0 || column < 0 || rows > this.rows - row || columns > this.columns - column) {
+            throw new IndexOutOfBoundsException("The view is outside of the matrix");
+        }
+        return new SegmentMatrix(segment, index(row, column), rows, columns, stride);
+    }
+
+    public void fill(int value) {
+        for (int i = 0; i < rows; i++) {
+            if (value == 0) {
+                segment.asSlice(index(i, 0) * Integer.BYTES, (long) columns * Integer.BYTES).fill((byte) 0);
+            } else {
+                for (int j = 0; j < columns; j++) {
+                    set(i, j, value);
+                }
+            }
+        }
+    }
+
+    // copy the tile.rows() x tile.columns() region starting at (row, column) into the heap tile, which can be a view
+    public void readTile(int row, int column, Matrix tile) {
+        checkRegion(row, column, tile);
+        for (int i = 0; i < tile.rows(); i++) {
+            MemorySegment.copy(segment, CELL, index(row + i, column) * Integer.BYTES,
+                    tile.data(), tile.index(i, 0), tile.columns());
+        }
+    }
+
+    // copy the heap tile into the region starting at (row, column)
+    public void writeTile(int row, int column, Matrix tile) {
+        checkRegion(row, column, tile);
+        for (int i = 0; i < tile.rows(); i++) {
+            MemorySegment.copy(tile.data(), tile.index(i, 0),
+                    segment, CELL, index(row + i, column) * Integer.BYTES, tile.columns());
+        }
+    }
+
+    private void checkRegion(int row, int column, Matrix tile) {
+        if (row < 0 || column < 0 || row + tile.rows() > rows || column + tile.columns() > columns) {
+            throw new IndexOutOfBoundsException("The " + tile.rows() + "x" + tile.columns() + " tile at (" + row
+                    + ", " + column + ") is outside of the " + rows + "x" + columns + " matrix");
+        }
+    }
+
+    public boolean contentEquals(SegmentMatrix other) {
+        if (rows != other.rows || columns != other.columns) {
+            return false;
+        }
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (get(i, j) != other.get(i, j)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,376 @@
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// The naive, threaded and Strassen engines on off-heap SegmentMatrix operands, the product is written into a caller
+// provided SegmentMatrix (off-heap too, or a mapped file).
+// The classical products still run on the heap kernels: square tiles of at most TILE_SIZE are copied into small heap
+// buffers owned by the thread, multiplied by BlockedMatrixKernel and the result tile is copied back. The copies are
+// O(n^2) per tile against O(n^3) work, and the heap never holds anything that grows with the operands.
+// The Strassen temporaries come from one confined Arena per call, freed in a single step when the call returns.
+public class SegmentMatrixMultiplication {
+    static final int TILE_SIZE = 256;
+
+    // A, B and C tile buffers of the calling thread, 768 KB per thread whatever the size of the matrices
+    private static final ThreadLocal<Matrix[]> tileBuffers = ThreadLocal.withInitial(() -> new Matrix[]{
+            new Matrix(TILE_SIZE, TILE_SIZE), new Matrix(TILE_SIZE, TILE_SIZE), new Matrix(TILE_SIZE, TILE_SIZE)});
+
+    // same loop as NaiveMatrixMultiplication, reading and writing the segments directly
+    public static void naiveMatrixMultiply(SegmentMatrix matrixA, SegmentMatrix matrixB,
+                                           SegmentMatrix matrixC) throws Exception {
+        if (validate(matrixA, matrixB, matrixC)) {
+            return;
+        }
+
+        int interlacedAxisSize = matrixA.columns(); // equivalent to matrixB.rows()
+
+        for (int i = 0; i < matrixC.rows(); i++) {
+            for (int j = 0; j < matrixC.columns(); j++) {
+                int cell = 0;
+                for (int k = 0; k < interlacedAxisSize; k++) {
+                    cell += matrixA.get(i, k) * matrixB.get(k, j);
+                }
+                matrixC.set(i, j, cell);
+            }
+        }
+    }
+
+    // classical product through the blocked kernel, tile by tile
+    public static void blockedMatrixMultiply(SegmentMatrix matrixA, SegmentMatrix matrixB,
+                                             SegmentMatrix matrixC) throws Exception {
+        if (validate(matrixA, matrixB, matrixC)) {
+            return;
+        }
+
+        multiplyRegion(matrixA, matrixB, matrixC, 0, matrixC.rows(), 0, matrixC.columns());
+    }
+
+    public static void parallelMatrixMultiply(SegmentMatrix matrixA, SegmentMatrix matrixB,
+                                              SegmentMatrix matrixC) throws Exception {
+        parallelMatrixMultiply(matrixA, matrixB, matrixC, ForkJoinPool.commonPool());
+    }
+
+    // regions of C are split over the pool like ThreadedNaiveMatrixMultiplication does, every worker copying tiles
+    // into its own heap buffers. The segments are read by the pool threads, so they must come from a shared (or
+    // automatic, or global) arena: a confined one throws WrongThreadException.
+    public static void parallelMatrixMultiply(SegmentMatrix matrixA, SegmentMatrix matrixB, SegmentMatrix matrixC,
+                                              ForkJoinPool pool) throws Exception {
+        if (validate(matrixA, matrixB, matrixC)) {
+            return;
+        }
+
+        long tilesWanted = 4L * pool.getParallelism();
+        long maxRegionArea = Math.max((long) TILE_SIZE * TILE_SIZE,
+                ((long) matrixC.rows() * matrixC.columns() + tilesWanted - 1) / tilesWanted);
+        pool.invoke(new MultiplyRegionTask(matrixA, matrixB, matrixC,
+                0, matrixC.rows(), 0, matrixC.columns(), maxRegionArea));
+    }
+
+    public static void strassenMatrixMultiply(SegmentMatrix matrixA, SegmentMatrix matrixB,
+                                              SegmentMatrix matrixC) throws Exception {
+        strassenMatrixMultiply(matrixA, matrixB, matrixC, StrassenMatrixMultiply.getLeafSize());
+    }
+
+    // Same recursion as StrassenMatrixMultiply on segment views, with its scratch memory ((mk + kn + mn) / 3 ints at
+    // most, see StrassenWorkspace) allocated off-heap in a confined arena that is closed when the call returns.
+    public static void strassenMatrixMultiply(SegmentMatrix matrixA, SegmentMatrix matrixB, SegmentMatrix matrixC,
+                                              int leafSize) throws Exception {
+        if (validate(matrixA, matrixB, matrixC)) {
+            return;
+        } else if (leafSize < 1) {
+            throw new Exception("The leaf size must be at least 1");
+        }
+
+        long required = StrassenWorkspace.requiredLength(matrixA.rows(), matrixA.columns(), matrixB.columns(),
+                leafSize);
+        try (var arena = Arena.ofConfined()) {
+            var scratch = arena.allocate(required * Integer.BYTES, Integer.BYTES);
+            recursiveStrassenMultiply(matrixA, matrixB, matrixC, scratch, 0, leafSize);
+        }
+    }
+
+    // https://en.wikipedia.org/wiki/Strassen_algorithm#Algorithm
+    // the temporaries of a level are carved in the scratch segment just above the ones of its caller
+    private static void recursiveStrassenMultiply(SegmentMatrix matrixA, SegmentMatrix matrixB, SegmentMatrix matrixC,
+                                                  MemorySegment scratch, long scratchTop, int leafSize) {
+        int rows = matrixA.rows();
+        int interlacedAxisSize = matrixA.columns();
+        int columns = matrixB.columns();
+
+        // below the crossover the 18 additions per level cost more than they save, finish classically
+        if (Math.min(rows, Math.min(interlacedAxisSize, columns)) <= leafSize) {
+            multiplyRegion(matrixA, matrixB, matrixC, 0, rows, 0, columns);
+            return;
+        }
+
+        // if a dimension is odd, recurse on the even part and peel the remaining row and column off
+        if (rows % 2 != 0 || interlacedAxisSize % 2 != 0 || columns % 2 != 0) {
+            int evenRows = rows & ~1;
+            int evenInterlacedAxisSize = interlacedAxisSize & ~1;
+            int evenColumns = columns & ~1;
+
+            recursiveStrassenMultiply(matrixA.view(0, 0, evenRows, evenInterlacedAxisSize),
+                    matrixB.view(0, 0, evenInterlacedAxisSize, evenColumns),
+                    matrixC.view(0, 0, evenRows, evenColumns), scratch, scratchTop, leafSize);
+            multiplyPeeledEdges(matrixA, matrixB, matrixC);
+            return;
+        }
+
+        int halfRows = rows / 2;
+        int halfInterlacedAxisSize = interlacedAxisSize / 2;
+        int halfColumns = columns / 2;
+
+        var A11 = matrixA.view(0, 0, halfRows, halfInterlacedAxisSize);
+        var A12 = matrixA.view(0, halfInterlacedAxisSize, halfRows, halfInterlacedAxisSize);
+        var A21 = matrixA.view(halfRows, 0, halfRows, halfInterlacedAxisSize);
+        var A22 = matrixA.view(halfRows, halfInterlacedAxisSize, halfRows, halfInterlacedAxisSize);
+
+        var B11 = matrixB.view(0, 0, halfInterlacedAxisSize, halfColumns);
+        var B12 = matrixB.view(0, halfColumns, halfInterlacedAxisSize, halfColumns);
+        var B21 = matrixB.view(halfInterlacedAxisSize, 0, halfInterlacedAxisSize, halfColumns);
+        var B22 = matrixB.view(halfInterlacedAxisSize, halfColumns, halfInterlacedAxisSize, halfColumns);
+
+        var C11 = matrixC.view(0, 0, halfRows, halfColumns);
+        var C12 = matrixC.view(0, halfColumns, halfRows, halfColumns);
+        var C21 = matrixC.view(halfRows, 0, halfRows, halfColumns);
+        var C22 = matrixC.view(halfRows, halfColumns, halfRows, halfColumns);
+
+        var operandA = new SegmentMatrix(scratch, scratchTop, halfRows, halfInterlacedAxisSize,
+                halfInterlacedAxisSize);
+        scratchTop += (long) halfRows * halfInterlacedAxisSize;
+        var operandB = new SegmentMatrix(scratch, scratchTop, halfInterlacedAxisSize, halfColumns, halfColumns);
+        scratchTop += (long) halfInterlacedAxisSize * halfColumns;
+        var M = new SegmentMatrix(scratch, scratchTop, halfRows, halfColumns, halfColumns);
+        long nextScratchTop = scratchTop + (long) halfRows * halfColumns;
+
+        // M1 = (A11 + A22)(B11 + B22), C11 = M1 + M4 - M5 + M7 and C22 = M1 - M2 + M3 + M6
+        sum(A11, A22, operandA);
+        sum(B11, B22, operandB);
+        recursiveStrassenMultiply(operandA, operandB, M, scratch, nextScratchTop, leafSize);
+        copy(M, C11);
+        copy(M, C22);
+
+        // M2 = (A21 + A22)B11, C21 = M2 + M4
+        sum(A21, A22, operandA);
+        recursiveStrassenMultiply(operandA, B11, M, scratch, nextScratchTop, leafSize);
+        copy(M, C21);
+        subtract(C22, M, C22);
+
+        // M3 = A11(B12 - B22), C12 = M3 + M5
+        subtract(B12, B22, operandB);
+        recursiveStrassenMultiply(A11, operandB, M, scratch, nextScratchTop, leafSize);
+        copy(M, C12);
+        sum(C22, M, C22);
+
+        // M4 = A22(B21 - B11)
+        subtract(B21, B11, operandB);
+        recursiveStrassenMultiply(A22, operandB, M, scratch, nextScratchTop, leafSize);
+        sum(C11, M, C11);
+        sum(C21, M, C21);
+
+        // M5 = (A11 + A12)B22
+        sum(A11, A12, operandA);
+        recursiveStrassenMultiply(operandA, B22, M, scratch, nextScratchTop, leafSize);
+        subtract(C11, M, C11);
+        sum(C12, M, C12);
+
+        // M6 = (A21 - A11)(B11 + B12)
+        subtract(A21, A11, operandA);
+        sum(B11, B12, operandB);
+        recursiveStrassenMultiply(operandA, operandB, M, scratch, nextScratchTop, leafSize);
+        sum(C22, M, C22);
+
+        // M7 = (A12 - A22)(B21 + B22)
+        subtract(A12, A22, operandA);
+        sum(B21, B22, operandB);
+        recursiveStrassenMultiply(operandA, operandB, M, scratch, nextScratchTop, leafSize);
+        sum(C11, M, C11);
+    }
+
+    // matrixC already holds the product of the even parts in its top left corner, add the last interlaced index to
+    // it and compute the last row and column, see StrassenMatrixMultiply.multiplyPeeledEdges
+    private static void multiplyPeeledEdges(SegmentMatrix matrixA, SegmentMatrix matrixB, SegmentMatrix matrixC) {
+        int rows = matrixA.rows();
+        int interlacedAxisSize = matrixA.columns();
+        int columns = matrixB.columns();
+        int evenRows = rows & ~1;
+        int evenColumns = columns & ~1;
+
+        if (interlacedAxisSize % 2 != 0) {
+            int k = interlacedAxisSize - 1;
+            for (int i = 0; i < evenRows; i++) {
+                int a = matrixA.get(i, k);
+                for (int j = 0; j < evenColumns; j++) {
+                    matrixC.set(i, j, matrixC.get(i, j) + a * matrixB.get(k, j));
+                }
+            }
+        }
+
+        if (columns != evenColumns) {
+            for (int i = 0; i < evenRows; i++) {
+                int cell = 0;
+                for (int k = 0; k < interlacedAxisSize; k++) {
+                    cell += matrixA.get(i, k) * matrixB.get(k, columns - 1);
+                }
+                matrixC.set(i, columns - 1, cell);
+            }
+        }
+
+        if (rows != evenRows) {
+            for (int j = 0; j < columns; j++) {
+                int cell = 0;
+                for (int k = 0; k < interlacedAxisSize; k++) {
+                    cell += matrixA.get(rows - 1, k) * matrixB.get(k, j);
+                }
+                matrixC.set(rows - 1, j, cell);
+            }
+        }
+    }
+
+    // C[startRow..startRow+rows][startColumn..startColumn+columns] = A * B through the heap kernel, accumulating
+    // square tiles of the interlaced axis into each C tile
+    private static void multiplyRegion(SegmentMatrix matrixA, SegmentMatrix matrixB, SegmentMatrix matrixC,
+                                       int startRow, int rows, int startColumn, int columns) {
+        Matrix[] buffers = tileBuffers.get();
+        int interlacedAxisSize = matrixA.columns();
+
+        for (int i = startRow; i < startRow + rows; i += TILE_SIZE) {
+            int height = Math.min(TILE_SIZE, startRow + rows - i);
+            for (int j = startColumn; j < startColumn + columns; j += TILE_SIZE) {
+                int width = Math.min(TILE_SIZE, startColumn + columns - j);
+                var tileC = buffers[2].view(0, 0, height, width);
+
+                for (int k = 0; k < interlacedAxisSize; k += TILE_SIZE) {
+                    int depth = Math.min(TILE_SIZE, interlacedAxisSize - k);
+                    var tileA = buffers[0].view(0, 0, height, depth);
+                    var tileB = buffers[1].view(0, 0, depth, width);
+                    matrixA.readTile(i, k, tileA);
+                    matrixB.readTile(k, j, tileB);
+                    // the first product initializes the C tile, the next ones accumulate into it
+                    BlockedMatrixKernel.multiplyAdd(tileA, tileB, tileC, 1, k == 0 ? 0 : 1);
+                }
+                matrixC.writeTile(i, j, tileC);
+            }
+        }
+    }
+
+    // a region of C, halved along its longest side until it is small enough for one worker
+    private static class MultiplyRegionTask extends RecursiveAction {
+        final SegmentMatrix matrixA;
+        final SegmentMatrix matrixB;
+        final SegmentMatrix matrixC;
+        final int startRow;
+        final int rows;
+        final int startColumn;
+        final int columns;
+        final long maxRegionArea;
+
+        MultiplyRegionTask(SegmentMatrix matrixA, SegmentMatrix matrixB, SegmentMatrix matrixC,
+                           int startRow, int rows, int startColumn, int columns, long maxRegionArea) {
+            this.matrixA = matrixA;
+            this.matrixB = matrixB;
+            this.matrixC = matrixC;
+            this.startRow = startRow;
+            this.rows = rows;
+            this.startColumn = startColumn;
+            this.columns = columns;
+            this.maxRegionArea = maxRegionArea;
+        }
+
+        @Override
+        protected void compute() {
+            if ((long) rows * columns <= maxRegionArea || (rows < 2 * TILE_SIZE && columns < 2 * TILE_SIZE)) {
+                multiplyRegion(matrixA, matrixB, matrixC, startRow, rows, startColumn, columns);
+                return;
+            }
+
+            // halves rounded to whole tiles so no tile is cut in two
+            if (rows >= columns) {
+                int half = (rows / 2 + TILE_SIZE - 1) / TILE_SIZE * TILE_SIZE;
+                invokeAll(new MultiplyRegionTask(matrixA, matrixB, matrixC,
+                                startRow, half, startColumn, columns, maxRegionArea),
+                        new MultiplyRegionTask(matrixA, matrixB, matrixC,
+                                startRow + half, rows - half, startColumn, columns, maxRegionArea));
+            } else {
+                int half = (columns / 2 + TILE_SIZE - 1) / TILE_SIZE * TILE_SIZE;
+                invokeAll(new MultiplyRegionTask(matrixA, matrixB, matrixC,
+                                startRow, rows, startColumn, half, maxRegionArea),
+                        new MultiplyRegionTask(matrixA, matrixB, matrixC,
+                                startRow, rows, startColumn + half, columns - half, maxRegionArea));
+            }
+        }
+    }
+
+    // assume matrices of identical dimensions, matrixC may alias matrixA or matrixB
+    private static void sum(SegmentMatrix matrixA, SegmentMatrix matrixB, SegmentMatrix matrixC) {
+        for (int i = 0; i < matrixA.rows(); i++) {
+            for (int j = 0; j < matrixA.columns(); j++) {
+                matrixC.set(i, j, matrixA.get(i, j) + matrixB.get(i, j));
+            }
+        }
+    }
+
+    // assume matrices of identical dimensions, matrixC may alias matrixA or matrixB
+    private static void subtract(SegmentMatrix matrixA, SegmentMatrix matrixB, SegmentMatrix matrixC) {
+        for (int i = 0; i < matrixA.rows(); i++) {
+            for (int j = 0; j < matrixA.columns(); j++) {
+                matrixC.set(i, j, matrixA.get(i, j) - matrixB.get(i, j));
+            }
+        }
+    }
+
+    private static void copy(SegmentMatrix source, SegmentMatrix destination) {
+        for (int i = 0; i < source.rows(); i++) {
+            MemorySegment.copy(source.segment(), source.index(i, 0) * Integer.BYTES,
+                    destination.segment(), destination.index(i, 0) * Integer.BYTES,
+                    (long) source.columns() * Integer.BYTES);
+        }
+    }
+
+    // true when both matrices are empty (nothing to compute)
+    private static boolean validate(SegmentMatrix matrixA, SegmentMatrix matrixB,
+                                    SegmentMatrix matrixC) throws Exception {
+        if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+            return true;
+        } else if (matrixA.rows() == 0 ^ matrixB.rows() == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (matrixA.columns() != matrixB.rows()) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        } else if (matrixC.rows() != matrixA.rows() || matrixC.columns() != matrixB.columns()) {
+            throw new Exception("The output matrix does not have the shape of the product");
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[][] matrixA = {{1, 2, 3},
+                           {4, 5, 6}};
+        int[][] matrixB = {{10, 11},
+                           {20, 21},
+                           {30, 31}};
+        int[][] expectedReferenceResult = {{140, 146},
+                                           {320, 335}};
+
+        // shared so the pool threads of parallelMatrixMultiply can read it
+        try (var arena = Arena.ofShared()) {
+            var segmentA = SegmentMatrix.of(arena, Matrix.of(matrixA));
+            var segmentB = SegmentMatrix.of(arena, Matrix.of(matrixB));
+            var segmentC = SegmentMatrix.allocate(arena, 2, 2);
+
+            naiveMatrixMultiply(segmentA, segmentB, segmentC);
+            assert segmentC.toMatrix().contentEquals(Matrix.of(expectedReferenceResult));
+            segmentC.fill(0);
+            blockedMatrixMultiply(segmentA, segmentB, segmentC);
+            assert segmentC.toMatrix().contentEquals(Matrix.of(expectedReferenceResult));
+            segmentC.fill(0);
+            parallelMatrixMultiply(segmentA, segmentB, segmentC);
+            assert segmentC.toMatrix().contentEquals(Matrix.of(expectedReferenceResult));
+            segmentC.fill(0);
+            // leaf size 1 recurses down to 1x1 and peels the odd interlaced axis
+            strassenMatrixMultiply(segmentA, segmentB, segmentC, 1);
+            assert segmentC.toMatrix().contentEquals(Matrix.of(expectedReferenceResult));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+plugins {
+    java
+}
+
+group = "org.example"
+version = "1.0-SNAPSHOT"
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    implementation("org.example", "matrix", "1.0-SNAPSHOT")
+    implementation("org.example", "strassen", "1.0-SNAPSHOT")
+    implementation("org.example", "naiveMatrixMultiplication", "1.0-SNAPSHOT")
+    testCompile("junit", "junit", "4.12")
+}
+
+// same toolchain as the matrix build, whose SIMD kernels need the Vector API incubator module when running:
+// java --add-modules jdk.incubator.vector ...
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }
+}
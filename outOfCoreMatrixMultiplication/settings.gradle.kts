@@ -0,0 +1,8 @@
+rootProject.name = "outOfCoreMatrixMultiplication"
+
+// shared flat matrix type and blocked kernel
+includeBuild("../matrix")
+// tile level Strassen GEMM
+includeBuild("../strassen")
+// reference product of the sanity checks
+includeBuild("../naiveMatrixMultiplication")
@@ -0,0 +1,180 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// An int matrix stored in a file and memory-mapped, so it can be far bigger than the heap.
+// Format: a 16 bytes header (magic "MTRX", format version, rows, columns, as big-endian ints) followed by the cells
+// row after row as little-endian ints, no padding. A single mapping cannot exceed 2 GB, so the cells are mapped in
+// chunks of whole rows: a row never straddles two chunks and a tile row is always one bulk copy.
+// The mappings live outside the heap, the page cache decides what is actually in memory.
+public class MatrixFile implements AutoCloseable {
+    public static final int MAGIC = 0x4D545258; // "MTRX"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    // chunk size, one mapping per chunk, far below the 2 GB limit of a MappedByteBuffer
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final boolean writable;
+    private final int rows;
+    private final int columns;
+    private final int rowsPerChunk;
+    private final MappedByteBuffer[] mappings;
+    private final IntBuffer[] chunks;
+
+    private MatrixFile(FileChannel channel, boolean writable, int rows, int columns) throws IOException {
+        this.channel = channel;
+        this.writable = writable;
+        this.rows = rows;
+        this.columns = columns;
+
+        long rowBytes = (long) columns * Integer.BYTES;
+        this.rowsPerChunk = rowBytes == 0 ? Math.max(1, rows) : (int) Math.max(1, MAX_CHUNK_BYTES / rowBytes);
+        int chunkCount = rowBytes == 0 ? 0 : (rows + rowsPerChunk - 1) / rowsPerChunk;
+        this.mappings = new MappedByteBuffer[chunkCount];
+        this.chunks = new IntBuffer[chunkCount];
+
+        var mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int chunkRows = Math.min(rowsPerChunk, rows - chunk * rowsPerChunk);
+            mappings[chunk] = channel.map(mode, HEADER_BYTES + chunk * rowsPerChunk * rowBytes, chunkRows * rowBytes);
+            chunks[chunk] = mappings[chunk].order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+    }
+
+    // create (or overwrite) a rows x columns matrix file filled with zeros, mapped for reading and writing
+    public static MatrixFile create(Path path, int rows, int columns) throws IOException {
+        if (rows < 0 || columns < 0) {
+            throw new IllegalArgumentException("Invalid matrix shape " + rows + "x" + columns);
+        }
+
+        var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            var header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(columns);
+            channel.write(header.flip(), 0);
+            return new MatrixFile(channel, true, rows, columns);
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    // map an existing matrix file, read only unless writable
+    public static MatrixFile open(Path path, boolean writable) throws IOException {
+        var channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            var header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a matrix file");
+            } else if (header.getInt() != VERSION) {
+                throw new IOException(path + " has an unsupported matrix file version");
+            }
+
+            int rows = header.getInt();
+            int columns = header.getInt();
+            if (rows < 0 || columns < 0
+                    || channel.size() < HEADER_BYTES + (long) rows * columns * Integer.BYTES) {
+                throw new IOException(path + " is truncated or has an invalid shape " + rows + "x" + columns);
+            }
+            return new MatrixFile(channel, writable, rows, columns);
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    public static MatrixFile open(Path path) throws IOException {
+        return open(path, false);
+    }
+
+    // write a heap matrix to a new matrix file
+    public static void write(Path path, Matrix matrix) throws IOException {
+        try (var file = create(path, matrix.rows(), matrix.columns())) {
+            file.writeTile(0, 0, matrix);
+        }
+    }
+
+    // load a whole matrix file on the heap, only for matrices that fit
+    public static Matrix read(Path path) throws IOException {
+        try (var file = open(path)) {
+            var matrix = new Matrix(file.rows(), file.columns());
+            file.readTile(0, 0, matrix);
+            return matrix;
+        }
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    // copy the tile.rows() x tile.columns() region starting at (row, column) into tile, which can be a view
+    public void readTile(int row, int column, Matrix tile) {
+        checkRegion(row, column, tile);
+
+        if (tile.columns() == 0) {
+            return; // nothing to copy, and a file without columns maps no chunk
+        }
+
+        int[] data = tile.data();
+        for (int i = 0; i < tile.rows(); i++) {
+            int fileRow = row + i;
+            int cell = (fileRow % rowsPerChunk) * columns + column;
+            chunks[fileRow / rowsPerChunk].get(cell, data, tile.index(i, 0), tile.columns());
+        }
+    }
+
+    // copy tile into the region starting at (row, column)
+    public void writeTile(int row, int column, Matrix tile) {
+        if (!writable) {
+            throw new IllegalStateException("The matrix file is mapped read only");
+        }
+        checkRegion(row, column, tile);
+
+        if (tile.columns() == 0) {
+            return; // nothing to copy, and a file without columns maps no chunk
+        }
+
+        int[] data = tile.data();
+        for (int i = 0; i < tile.rows(); i++) {
+            int fileRow = row + i;
+            int cell = (fileRow % rowsPerChunk) * columns + column;
+            chunks[fileRow / rowsPerChunk].put(cell, data, tile.index(i, 0), tile.columns());
+        }
+    }
+
+    private void checkRegion(int row, int column, Matrix tile) {
+        if (row < 0 || column < 0 || tile.rows() > rows - row || tile.columns() > columns - column) {
+            throw new IndexOutOfBoundsException("The " + tile.rows() + "x" + tile.columns() + " tile at (" + row
+                    + ", " + column + ") is outside of the " + rows + "x" + columns + " matrix");
+        }
+    }
+
+    // flush the written cells to the file, close does it too
+    public void force() {
+        if (writable) {
+            for (MappedByteBuffer mapping : mappings) {
+                mapping.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
@@ -0,0 +1,166 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+// Multiplies matrices stored in MatrixFile files, too big for the heap, tile by tile.
+// C is cut in square tiles of OutOfCoreOptions.getTileSize(), each one is accumulated on the heap over the tiles of
+// the interlaced axis (C_ij = sum over k of A_ik * B_kj, each product by the Strassen GEMM of StrassenMatrixMultiply)
+// then copied to the mapped output file. Only five tiles worth of heap are used whatever the size of the operands,
+// the operands themselves are read through their mappings.
+public class OutOfCoreMatrixMultiplication {
+    public static void outOfCoreMatrixMultiply(Path matrixA, Path matrixB, Path matrixC) throws Exception {
+        outOfCoreMatrixMultiply(matrixA, matrixB, matrixC, new OutOfCoreOptions());
+    }
+
+    // matrixC is created, or overwritten, with the product, it must not be one of the operands
+    public static void outOfCoreMatrixMultiply(Path matrixA, Path matrixB, Path matrixC,
+                                               OutOfCoreOptions options) throws Exception {
+        if (Files.exists(matrixC) && (Files.isSameFile(matrixA, matrixC) || Files.isSameFile(matrixB, matrixC))) {
+            throw new Exception("The output file cannot be one of the operands");
+        }
+
+        try (var fileA = MatrixFile.open(matrixA);
+             var fileB = MatrixFile.open(matrixB)) {
+            // validate the matrices
+            if (fileA.rows() == 0 && fileB.rows() == 0) {
+                MatrixFile.create(matrixC, 0, 0).close();
+                return;
+            } else if (fileA.rows() == 0 ^ fileB.rows() == 0) {
+                throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+            } else if (fileA.columns() != fileB.rows()) {
+                // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+                throw new Exception("The matrices have an invalid shape");
+            }
+
+            try (var fileC = MatrixFile.create(matrixC, fileA.rows(), fileB.columns())) {
+                outOfCoreMatrixMultiply(fileA, fileB, fileC, options);
+            }
+        }
+    }
+
+    // fileC = fileA * fileB on already mapped files, fileC must be writable and have the shape of the product
+    public static void outOfCoreMatrixMultiply(MatrixFile fileA, MatrixFile fileB, MatrixFile fileC,
+                                               OutOfCoreOptions options) throws Exception {
+        outOfCoreMatrixMultiply(fileA, fileB, fileC, options, new StrassenWorkspace());
+    }
+
+    // the workspace is only passed in so that main can check what it grew to against the heap budget
+    static void outOfCoreMatrixMultiply(MatrixFile fileA, MatrixFile fileB, MatrixFile fileC,
+                                        OutOfCoreOptions options, StrassenWorkspace workspace) throws Exception {
+        int rows = fileA.rows();
+        int interlacedAxisSize = fileA.columns();
+        int columns = fileB.columns();
+        if (interlacedAxisSize != fileB.rows()) {
+            throw new Exception("The matrices have an invalid shape");
+        } else if (fileC.rows() != rows || fileC.columns() != columns) {
+            throw new Exception("The output matrix does not have the shape of the product");
+        } else if (rows == 0 || interlacedAxisSize == 0 || columns == 0) {
+            return; // the zero filled output already is the product
+        }
+
+        // one buffer per tile, the edge tiles are views over their top left corner
+        int tileSize = options.getTileSize();
+        int tileRows = Math.min(tileSize, rows);
+        int tileDepth = Math.min(tileSize, interlacedAxisSize);
+        int tileColumns = Math.min(tileSize, columns);
+        var tileA = new Matrix(tileRows, tileDepth);
+        var tileB = new Matrix(tileDepth, tileColumns);
+        var tileC = new Matrix(tileRows, tileColumns);
+
+        for (int i = 0; i < rows; i += tileRows) {
+            int height = Math.min(tileRows, rows - i);
+            for (int j = 0; j < columns; j += tileColumns) {
+                int width = Math.min(tileColumns, columns - j);
+                var blockC = tileC.view(0, 0, height, width);
+
+                for (int k = 0; k < interlacedAxisSize; k += tileDepth) {
+                    int depth = Math.min(tileDepth, interlacedAxisSize - k);
+                    var blockA = tileA.view(0, 0, height, depth);
+                    var blockB = tileB.view(0, 0, depth, width);
+                    fileA.readTile(i, k, blockA);
+                    fileB.readTile(k, j, blockB);
+
+                    // the first product initializes the C tile, the next ones accumulate into it. Never padded, the
+                    // padded copies of the operands and product would take up to three more tiles of heap
+                    StrassenMatrixMultiply.strassenMatrixMultiply(blockA, blockB, blockC, workspace,
+                            options.getLeafSize(), 1, k == 0 ? 0 : 1, false);
+                }
+                fileC.writeTile(i, j, blockC);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[][] matrixA = {{1, 2, 3},
+                           {4, 5, 6}};
+        int[][] matrixB = {{10, 11},
+                           {20, 21},
+                           {30, 31}};
+        int[][] expectedReferenceResult = {{140, 146},
+                                           {320, 335}};
+
+        var directory = Files.createTempDirectory("matrices");
+        try {
+            MatrixFile.write(directory.resolve("a"), Matrix.of(matrixA));
+            MatrixFile.write(directory.resolve("b"), Matrix.of(matrixB));
+            outOfCoreMatrixMultiply(directory.resolve("a"), directory.resolve("b"), directory.resolve("c"));
+            assert MatrixFile.read(directory.resolve("c")).contentEquals(Matrix.of(expectedReferenceResult));
+
+            // a file without columns still holds its rows
+            MatrixFile.write(directory.resolve("a"), new Matrix(3, 0));
+            var empty = MatrixFile.read(directory.resolve("a"));
+            assert empty.rows() == 3 && empty.columns() == 0;
+
+            // odd shapes over several 64x64 tiles in every direction, against the heap product
+            var random = new Random(42);
+            var largeA = new Matrix(150, 130);
+            var largeB = new Matrix(130, 170);
+            for (int i = 0; i < 150; i++) {
+                for (int j = 0; j < 170; j++) {
+                    if (j < 130) {
+                        largeA.set(i, j, random.nextInt(100));
+                    }
+                    if (i < 130) {
+                        largeB.set(i, j, random.nextInt(100));
+                    }
+                }
+            }
+            MatrixFile.write(directory.resolve("a"), largeA);
+            MatrixFile.write(directory.resolve("b"), largeB);
+            outOfCoreMatrixMultiply(directory.resolve("a"), directory.resolve("b"), directory.resolve("c"),
+                    new OutOfCoreOptions().setTileSize(64).setLeafSize(16));
+            assert MatrixFile.read(directory.resolve("c"))
+                    .contentEquals(NaiveMatrixMultiplication.naiveMatrixMultiply(largeA, largeB));
+
+            // the A, B and C tiles plus what the workspace grew to stay within heapBytes, on edge tiles of shapes the
+            // heap Strassen would pad
+            for (int size : new int[]{511, 575}) {
+                var squareA = new Matrix(size, size);
+                var squareB = new Matrix(size, size);
+                for (int i = 0; i < size; i++) {
+                    for (int j = 0; j < size; j++) {
+                        squareA.set(i, j, random.nextInt(100));
+                        squareB.set(i, j, random.nextInt(100));
+                    }
+                }
+                MatrixFile.write(directory.resolve("a"), squareA);
+                MatrixFile.write(directory.resolve("b"), squareB);
+                var options = new OutOfCoreOptions().setTileSize(320);
+                var workspace = new StrassenWorkspace();
+                try (var fileA = MatrixFile.open(directory.resolve("a"));
+                     var fileB = MatrixFile.open(directory.resolve("b"));
+                     var fileC = MatrixFile.create(directory.resolve("c"), size, size)) {
+                    outOfCoreMatrixMultiply(fileA, fileB, fileC, options, workspace);
+                }
+                assert 3L * 320 * 320 * Integer.BYTES + workspace.capacityBytes() <= options.heapBytes();
+                assert MatrixFile.read(directory.resolve("c"))
+                        .contentEquals(NaiveMatrixMultiplication.naiveMatrixMultiply(squareA, squareB));
+            }
+        } finally {
+            for (String name : new String[]{"a", "b", "c"}) {
+                Files.deleteIfExists(directory.resolve(name));
+            }
+            Files.delete(directory);
+        }
+    }
+}
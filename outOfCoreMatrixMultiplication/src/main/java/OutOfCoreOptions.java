@@ -0,0 +1,65 @@
+// Settings of OutOfCoreMatrixMultiplication, every setter returns this so they can be chained:
+// new OutOfCoreOptions().setMaxHeapBytes(64 << 20).setLeafSize(128)
+public class OutOfCoreOptions {
+    // heap ints per tile edge squared: the A, B and C tiles, the Strassen workspace (at most one tile) and the
+    // product buffer of the accumulating Strassen call (one tile)
+    static final int TILES_ON_HEAP = 5;
+    // tile edges are a multiple of this, so the Strassen recursion halves them evenly a few times
+    static final int TILE_GRANULARITY = 64;
+
+    private long maxHeapBytes = Math.min(256L << 20, Runtime.getRuntime().maxMemory() / 4);
+    private int leafSize = StrassenMatrixMultiply.getLeafSize();
+    private int tileSize = 0; // 0 derives it from maxHeapBytes
+
+    public long getMaxHeapBytes() {
+        return maxHeapBytes;
+    }
+
+    // upper bound of the heap memory a multiplication uses, whatever the size of the operands
+    public OutOfCoreOptions setMaxHeapBytes(long maxHeapBytes) {
+        long minimum = (long) TILES_ON_HEAP * TILE_GRANULARITY * TILE_GRANULARITY * Integer.BYTES;
+        if (maxHeapBytes < minimum) {
+            throw new IllegalArgumentException("The heap budget must be at least " + minimum + " bytes");
+        }
+        this.maxHeapBytes = maxHeapBytes;
+        return this;
+    }
+
+    public int getLeafSize() {
+        return leafSize;
+    }
+
+    // crossover of the Strassen recursion inside a tile
+    public OutOfCoreOptions setLeafSize(int leafSize) {
+        if (leafSize < 1) {
+            throw new IllegalArgumentException("The leaf size must be at least 1");
+        }
+        this.leafSize = leafSize;
+        return this;
+    }
+
+    // edge of the square tiles: the one set explicitly, otherwise the biggest multiple of TILE_GRANULARITY whose
+    // tiles fit in the heap budget (capped so a tile stays addressable by an int)
+    public int getTileSize() {
+        if (tileSize > 0) {
+            return tileSize;
+        }
+        long edge = (long) Math.sqrt((double) maxHeapBytes / (TILES_ON_HEAP * Integer.BYTES));
+        return (int) Math.min(1 << 14, Math.max(TILE_GRANULARITY, edge / TILE_GRANULARITY * TILE_GRANULARITY));
+    }
+
+    // fix the tile edge instead of deriving it from the heap budget, 0 goes back to the derived one
+    public OutOfCoreOptions setTileSize(int tileSize) {
+        if (tileSize < 0 || tileSize > 1 << 14) {
+            throw new IllegalArgumentException("The tile size must be between 1 and " + (1 << 14));
+        }
+        this.tileSize = tileSize;
+        return this;
+    }
+
+    // heap bytes the tiles of one multiplication take
+    public long heapBytes() {
+        long tileSize = getTileSize();
+        return TILES_ON_HEAP * tileSize * tileSize * Integer.BYTES;
+    }
+}
@@ -0,0 +1,6 @@
+rootProject.name = "sparseMatrixMultiplication"
+
+// shared flat matrix type
+includeBuild("../matrix")
+// reference product of the sanity checks
+includeBuild("../naiveMatrixMultiplication")
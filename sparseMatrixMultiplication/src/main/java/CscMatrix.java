@@ -0,0 +1,87 @@
+import java.util.Arrays;
+
+// Compressed sparse column int matrix, the column-major counterpart of CsrMatrix: the non zeros of column j are
+// values[columnPointers[j]..columnPointers[j + 1]], in increasing row order, with their rows in rowIndexes.
+// It is the natural layout of the right operand of a dense x sparse product, whose columns are read one by one.
+public class CscMatrix {
+    private final int rows;
+    private final int columns;
+    private final int[] columnPointers;
+    private final int[] rowIndexes;
+    private final int[] values;
+
+    public CscMatrix(int rows, int columns, int[] columnPointers, int[] rowIndexes, int[] values) {
+        if (rows < 0 || columns < 0) {
+            throw new IllegalArgumentException("Invalid matrix shape " + rows + "x" + columns);
+        }
+        CsrMatrix.checkStructure(columns, rows, columnPointers, rowIndexes, values);
+
+        this.rows = rows;
+        this.columns = columns;
+        this.columnPointers = columnPointers;
+        this.rowIndexes = rowIndexes;
+        this.values = values;
+    }
+
+    // compress a dense matrix, which can be a view
+    public static CscMatrix of(Matrix matrix) {
+        return CsrMatrix.of(matrix).toCsc();
+    }
+
+    public Matrix toMatrix() {
+        var matrix = new Matrix(rows, columns);
+        for (int j = 0; j < columns; j++) {
+            for (int p = columnPointers[j]; p < columnPointers[j + 1]; p++) {
+                matrix.set(rowIndexes[p], j, values[p]);
+            }
+        }
+        return matrix;
+    }
+
+    // same matrix, compressed by row
+    public CsrMatrix toCsr() {
+        var rowPointers = new int[rows + 1];
+        var columnIndexes = new int[values.length];
+        var csrValues = new int[values.length];
+        CsrMatrix.transpose(columns, rows, columnPointers, rowIndexes, values, rowPointers, columnIndexes, csrValues);
+        return new CsrMatrix(rows, columns, rowPointers, columnIndexes, csrValues);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public int[] columnPointers() {
+        return columnPointers;
+    }
+
+    public int[] rowIndexes() {
+        return rowIndexes;
+    }
+
+    public int[] values() {
+        return values;
+    }
+
+    public int nonZeros() {
+        return values.length;
+    }
+
+    public double density() {
+        return rows == 0 || columns == 0 ? 0 : (double) values.length / ((long) rows * columns);
+    }
+
+    // binary search in the column, O(log(non zeros of the column))
+    public int get(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= columns) {
+            throw new IndexOutOfBoundsException("(" + i + ", " + j + ") is outside of the " + rows + "x" + columns
+                    + " matrix");
+        }
+        int position = Arrays.binarySearch(rowIndexes, columnPointers[j], columnPointers[j + 1], i);
+        return position >= 0 ? values[position] : 0;
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.Arrays;
+
+// Compressed sparse row int matrix: the non zeros of row i are values[rowPointers[i]..rowPointers[i + 1]], in
+// increasing column order, with their columns at the same positions of columnIndexes. It takes two ints per non zero
+// plus one per row, so a matrix with 95% of zeros is about ten times smaller than its dense form.
+// The arrays are shared, not copied: a CsrMatrix is immutable as long as its creator does not modify them.
+public class CsrMatrix {
+    private final int rows;
+    private final int columns;
+    private final int[] rowPointers;
+    private final int[] columnIndexes;
+    private final int[] values;
+
+    public CsrMatrix(int rows, int columns, int[] rowPointers, int[] columnIndexes, int[] values) {
+        if (rows < 0 || columns < 0) {
+            throw new IllegalArgumentException("Invalid matrix shape " + rows + "x" + columns);
+        }
+        checkStructure(rows, columns, rowPointers, columnIndexes, values);
+
+        this.rows = rows;
+        this.columns = columns;
+        this.rowPointers = rowPointers;
+        this.columnIndexes = columnIndexes;
+        this.values = values;
+    }
+
+    // pointers of length count + 1 from 0 to the number of non zeros, strictly increasing indexes in every segment
+    static void checkStructure(int count, int length, int[] pointers, int[] indexes, int[] values) {
+        if (pointers.length != count + 1 || pointers[0] != 0 || pointers[count] != indexes.length
+                || indexes.length != values.length) {
+            throw new IllegalArgumentException("The pointers do not match the number of non zeros");
+        }
+        for (int i = 0; i < count; i++) {
+            if (pointers[i + 1] < pointers[i]) {
+                throw new IllegalArgumentException("The pointers must be increasing");
+            }
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                if (indexes[p] < 0 || indexes[p] >= length || (p > pointers[i] && indexes[p] <= indexes[p - 1])) {
+                    throw new IllegalArgumentException("The indexes must be increasing and within the matrix");
+                }
+            }
+        }
+    }
+
+    // compress a dense matrix, which can be a view
+    public static CsrMatrix of(Matrix matrix) {
+        int rows = matrix.rows();
+        int columns = matrix.columns();
+        int[] data = matrix.data();
+
+        var rowPointers = new int[rows + 1];
+        for (int i = 0; i < rows; i++) {
+            int count = 0;
+            for (int j = 0, index = matrix.index(i, 0); j < columns; j++, index++) {
+                if (data[index] != 0) {
+                    count++;
+                }
+            }
+            rowPointers[i + 1] = Math.addExact(rowPointers[i], count);
+        }
+
+        var columnIndexes = new int[rowPointers[rows]];
+        var values = new int[rowPointers[rows]];
+        int position = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0, index = matrix.index(i, 0); j < columns; j++, index++) {
+                if (data[index] != 0) {
+                    columnIndexes[position] = j;
+                    values[position++] = data[index];
+                }
+            }
+        }
+        return new CsrMatrix(rows, columns, rowPointers, columnIndexes, values);
+    }
+
+    public static long countNonZeros(Matrix matrix) {
+        int[] data = matrix.data();
+        long count = 0;
+        for (int i = 0; i < matrix.rows(); i++) {
+            for (int j = 0, index = matrix.index(i, 0); j < matrix.columns(); j++, index++) {
+                if (data[index] != 0) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // fraction of non zero cells, 0 for an empty matrix
+    public static double density(Matrix matrix) {
+        return matrix.isEmpty() ? 0 : (double) countNonZeros(matrix) / ((long) matrix.rows() * matrix.columns());
+    }
+
+    public Matrix toMatrix() {
+        var matrix = new Matrix(rows, columns);
+        for (int i = 0; i < rows; i++) {
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                matrix.set(i, columnIndexes[p], values[p]);
+            }
+        }
+        return matrix;
+    }
+
+    // same matrix, compressed by column
+    public CscMatrix toCsc() {
+        var columnPointers = new int[columns + 1];
+        var rowIndexes = new int[values.length];
+        var cscValues = new int[values.length];
+        transpose(rows, columns, rowPointers, columnIndexes, values, columnPointers, rowIndexes, cscValues);
+        return new CscMatrix(rows, columns, columnPointers, rowIndexes, cscValues);
+    }
+
+    // Counting sort of the entries by their index: turns count compressed segments (rows of a CSR matrix, or columns
+    // of a CSC one) over length indexes into length segments over count indexes, which come out sorted.
+    static void transpose(int count, int length, int[] pointers, int[] indexes, int[] values,
+                          int[] transposedPointers, int[] transposedIndexes, int[] transposedValues) {
+        for (int index : indexes) {
+            transposedPointers[index + 1]++;
+        }
+        for (int i = 0; i < length; i++) {
+            transposedPointers[i + 1] += transposedPointers[i];
+        }
+
+        var next = Arrays.copyOf(transposedPointers, length);
+        for (int i = 0; i < count; i++) {
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                int position = next[indexes[p]]++;
+                transposedIndexes[position] = i;
+                transposedValues[position] = values[p];
+            }
+        }
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public int[] rowPointers() {
+        return rowPointers;
+    }
+
+    public int[] columnIndexes() {
+        return columnIndexes;
+    }
+
+    public int[] values() {
+        return values;
+    }
+
+    public int nonZeros() {
+        return values.length;
+    }
+
+    public double density() {
+        return rows == 0 || columns == 0 ? 0 : (double) values.length / ((long) rows * columns);
+    }
+
+    // binary search in the row, O(log(non zeros of the row))
+    public int get(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= columns) {
+            throw new IndexOutOfBoundsException("(" + i + ", " + j + ") is outside of the " + rows + "x" + columns
+                    + " matrix");
+        }
+        int position = Arrays.binarySearch(columnIndexes, rowPointers[i], rowPointers[i + 1], j);
+        return position >= 0 ? values[position] : 0;
+    }
+}
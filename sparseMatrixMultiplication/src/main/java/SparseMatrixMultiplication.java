@@ -0,0 +1,360 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Products with sparse operands, whose work is proportional to the non zeros instead of the full m * k * n:
+// - sparse x dense (SpMM), CSR times dense: each non zero a_ik adds a_ik * (row k of B) to row i of C
+// - dense x sparse, dense times CSC: C[i][j] is the dot product of row i of A with the non zeros of column j of B
+// - sparse x sparse (SpGEMM), CSR times CSR with Gustavson's row by row algorithm, the result is CSR too
+// The parallel variants split the rows of the result over a fork-join pool, balanced on the work of every row (rows of
+// a sparse matrix can hold very different numbers of non zeros). Overflows wrap like the dense engines.
+public class SparseMatrixMultiplication {
+    // below this many multiply-adds a range of rows is computed by one task, forking would cost a noticeable part of it
+    static final long MIN_TASK_MULTIPLY_ADDS = 1 << 16;
+
+    // the accumulator, marker and column list of the SpGEMM rows computed by the thread, grown to the widest product
+    private static final ThreadLocal<int[][]> rowBuffers = ThreadLocal.withInitial(() -> new int[3][0]);
+
+    // computes the rows startRow..endRow-1 of a product
+    interface RowKernel {
+        void compute(int startRow, int endRow);
+    }
+
+    public static Matrix sparseDenseMultiply(CsrMatrix matrixA, Matrix matrixB) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows())) {
+            return new Matrix(0, 0);
+        }
+
+        var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+        sparseDenseRows(matrixA, matrixB, matrixC, 0, matrixA.rows());
+        return matrixC;
+    }
+
+    public static Matrix parallelSparseDenseMultiply(CsrMatrix matrixA, Matrix matrixB) throws Exception {
+        return parallelSparseDenseMultiply(matrixA, matrixB, ForkJoinPool.commonPool());
+    }
+
+    public static Matrix parallelSparseDenseMultiply(CsrMatrix matrixA, Matrix matrixB,
+                                                     ForkJoinPool pool) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows())) {
+            return new Matrix(0, 0);
+        }
+
+        var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+        // a row costs its non zeros times the columns of B, plus its share of the loop
+        int[] rowPointers = matrixA.rowPointers();
+        var work = new long[matrixA.rows() + 1];
+        for (int i = 0; i < matrixA.rows(); i++) {
+            work[i + 1] = work[i] + (long) (rowPointers[i + 1] - rowPointers[i] + 1) * matrixB.columns();
+        }
+        run(pool, work, (startRow, endRow) -> sparseDenseRows(matrixA, matrixB, matrixC, startRow, endRow));
+        return matrixC;
+    }
+
+    private static void sparseDenseRows(CsrMatrix matrixA, Matrix matrixB, Matrix matrixC, int startRow, int endRow) {
+        int[] rowPointers = matrixA.rowPointers();
+        int[] columnIndexes = matrixA.columnIndexes();
+        int[] values = matrixA.values();
+        int[] dataB = matrixB.data();
+        int[] dataC = matrixC.data();
+        int columns = matrixB.columns();
+
+        for (int i = startRow; i < endRow; i++) {
+            int rowC = matrixC.index(i, 0);
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                int value = values[p];
+                int rowB = matrixB.index(columnIndexes[p], 0);
+                // contiguous axpy over a row of B, vectorized by the JIT
+                for (int j = 0; j < columns; j++) {
+                    dataC[rowC + j] += value * dataB[rowB + j];
+                }
+            }
+        }
+    }
+
+    public static Matrix denseSparseMultiply(Matrix matrixA, CscMatrix matrixB) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows())) {
+            return new Matrix(0, 0);
+        }
+
+        var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+        denseSparseRows(matrixA, matrixB, matrixC, 0, matrixA.rows());
+        return matrixC;
+    }
+
+    public static Matrix parallelDenseSparseMultiply(Matrix matrixA, CscMatrix matrixB) throws Exception {
+        return parallelDenseSparseMultiply(matrixA, matrixB, ForkJoinPool.commonPool());
+    }
+
+    public static Matrix parallelDenseSparseMultiply(Matrix matrixA, CscMatrix matrixB,
+                                                     ForkJoinPool pool) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows())) {
+            return new Matrix(0, 0);
+        }
+
+        var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+        // every row of C costs the same, all the non zeros of B plus a loop over its columns
+        var work = new long[matrixA.rows() + 1];
+        for (int i = 0; i < matrixA.rows(); i++) {
+            work[i + 1] = work[i] + matrixB.nonZeros() + matrixB.columns();
+        }
+        run(pool, work, (startRow, endRow) -> denseSparseRows(matrixA, matrixB, matrixC, startRow, endRow));
+        return matrixC;
+    }
+
+    private static void denseSparseRows(Matrix matrixA, CscMatrix matrixB, Matrix matrixC, int startRow, int endRow) {
+        int[] columnPointers = matrixB.columnPointers();
+        int[] rowIndexes = matrixB.rowIndexes();
+        int[] values = matrixB.values();
+        int[] dataA = matrixA.data();
+        int[] dataC = matrixC.data();
+
+        for (int i = startRow; i < endRow; i++) {
+            // the row of A stays in cache while every column of B gathers from it
+            int rowA = matrixA.index(i, 0);
+            int rowC = matrixC.index(i, 0);
+            for (int j = 0; j < matrixB.columns(); j++) {
+                int cell = 0;
+                for (int p = columnPointers[j]; p < columnPointers[j + 1]; p++) {
+                    cell += dataA[rowA + rowIndexes[p]] * values[p];
+                }
+                dataC[rowC + j] = cell;
+            }
+        }
+    }
+
+    public static CsrMatrix sparseSparseMultiply(CsrMatrix matrixA, CsrMatrix matrixB) throws Exception {
+        return sparseSparseMultiply(matrixA, matrixB, null);
+    }
+
+    public static CsrMatrix parallelSparseSparseMultiply(CsrMatrix matrixA, CsrMatrix matrixB) throws Exception {
+        return sparseSparseMultiply(matrixA, matrixB, ForkJoinPool.commonPool());
+    }
+
+    public static CsrMatrix parallelSparseSparseMultiply(CsrMatrix matrixA, CsrMatrix matrixB,
+                                                         ForkJoinPool pool) throws Exception {
+        return sparseSparseMultiply(matrixA, matrixB, pool);
+    }
+
+    // Gustavson's algorithm in two passes over the rows of A: the symbolic one counts the non zeros of every row of C,
+    // whose prefix sums give where each row is written, then the numeric one computes them. Both passes are split over
+    // the pool (sequential without one). Entries that cancel out to 0 are kept as explicit zeros.
+    private static CsrMatrix sparseSparseMultiply(CsrMatrix matrixA, CsrMatrix matrixB,
+                                                  ForkJoinPool pool) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows())) {
+            return new CsrMatrix(0, 0, new int[1], new int[0], new int[0]);
+        }
+
+        int rows = matrixA.rows();
+        int[] rowPointersA = matrixA.rowPointers();
+        int[] columnIndexesA = matrixA.columnIndexes();
+        int[] rowPointersB = matrixB.rowPointers();
+
+        // a row of C costs the non zeros of the rows of B selected by the row of A
+        var work = new long[rows + 1];
+        for (int i = 0; i < rows; i++) {
+            long multiplyAdds = 1;
+            for (int p = rowPointersA[i]; p < rowPointersA[i + 1]; p++) {
+                multiplyAdds += rowPointersB[columnIndexesA[p] + 1] - rowPointersB[columnIndexesA[p]];
+            }
+            work[i + 1] = work[i] + multiplyAdds;
+        }
+
+        var rowPointersC = new int[rows + 1];
+        RowKernel symbolic = (startRow, endRow) -> countProductRows(matrixA, matrixB, rowPointersC, startRow, endRow);
+        if (pool == null) {
+            symbolic.compute(0, rows);
+        } else {
+            run(pool, work, symbolic);
+        }
+
+        // rowPointersC[i + 1] holds the count of row i until this prefix sum
+        long nonZeros = 0;
+        for (int i = 0; i < rows; i++) {
+            nonZeros += rowPointersC[i + 1];
+            if (nonZeros > Integer.MAX_VALUE - 8) {
+                throw new Exception("The product has too many non zeros for a CsrMatrix");
+            }
+            rowPointersC[i + 1] = (int) nonZeros;
+        }
+
+        var columnIndexesC = new int[(int) nonZeros];
+        var valuesC = new int[(int) nonZeros];
+        RowKernel numeric = (startRow, endRow) -> multiplyProductRows(matrixA, matrixB,
+                rowPointersC, columnIndexesC, valuesC, startRow, endRow);
+        if (pool == null) {
+            numeric.compute(0, rows);
+        } else {
+            run(pool, work, numeric);
+        }
+        return new CsrMatrix(rows, matrixB.columns(), rowPointersC, columnIndexesC, valuesC);
+    }
+
+    // store in counts[i + 1] the number of distinct columns of row i of A * B
+    private static void countProductRows(CsrMatrix matrixA, CsrMatrix matrixB, int[] counts,
+                                         int startRow, int endRow) {
+        int[] rowPointersA = matrixA.rowPointers();
+        int[] columnIndexesA = matrixA.columnIndexes();
+        int[] rowPointersB = matrixB.rowPointers();
+        int[] columnIndexesB = matrixB.columnIndexes();
+        // marker[j] == i + 1 when column j was already counted in row i, no clearing between rows
+        int[] marker = rowBuffers(matrixB.columns())[1];
+
+        for (int i = startRow; i < endRow; i++) {
+            int count = 0;
+            for (int p = rowPointersA[i]; p < rowPointersA[i + 1]; p++) {
+                int k = columnIndexesA[p];
+                for (int q = rowPointersB[k]; q < rowPointersB[k + 1]; q++) {
+                    if (marker[columnIndexesB[q]] != i + 1) {
+                        marker[columnIndexesB[q]] = i + 1;
+                        count++;
+                    }
+                }
+            }
+            counts[i + 1] = count;
+        }
+        Arrays.fill(marker, 0, matrixB.columns(), 0); // the next call may use the same row numbers
+    }
+
+    // write the rows of A * B at the positions given by the row pointers, columns sorted
+    private static void multiplyProductRows(CsrMatrix matrixA, CsrMatrix matrixB, int[] rowPointersC,
+                                            int[] columnIndexesC, int[] valuesC, int startRow, int endRow) {
+        int[] rowPointersA = matrixA.rowPointers();
+        int[] columnIndexesA = matrixA.columnIndexes();
+        int[] valuesA = matrixA.values();
+        int[] rowPointersB = matrixB.rowPointers();
+        int[] columnIndexesB = matrixB.columnIndexes();
+        int[] valuesB = matrixB.values();
+        int[][] buffers = rowBuffers(matrixB.columns());
+        int[] accumulator = buffers[0];
+        int[] marker = buffers[1];
+
+        for (int i = startRow; i < endRow; i++) {
+            // the columns of the row are appended straight into the result, then sorted in place
+            int start = rowPointersC[i];
+            int end = start;
+            for (int p = rowPointersA[i]; p < rowPointersA[i + 1]; p++) {
+                int k = columnIndexesA[p];
+                int value = valuesA[p];
+                for (int q = rowPointersB[k]; q < rowPointersB[k + 1]; q++) {
+                    int j = columnIndexesB[q];
+                    if (marker[j] != i + 1) {
+                        marker[j] = i + 1;
+                        accumulator[j] = 0;
+                        columnIndexesC[end++] = j;
+                    }
+                    accumulator[j] += value * valuesB[q];
+                }
+            }
+
+            Arrays.sort(columnIndexesC, start, end);
+            for (int position = start; position < end; position++) {
+                valuesC[position] = accumulator[columnIndexesC[position]];
+            }
+        }
+        Arrays.fill(marker, 0, matrixB.columns(), 0);
+    }
+
+    // the SpGEMM buffers of the calling thread, at least columns long
+    private static int[][] rowBuffers(int columns) {
+        int[][] buffers = rowBuffers.get();
+        if (buffers[0].length < columns) {
+            buffers[0] = new int[columns];
+            buffers[1] = new int[columns];
+        }
+        return buffers;
+    }
+
+    // compute every row of a product on the pool, work[i] being the cumulated cost of the rows before i
+    private static void run(ForkJoinPool pool, long[] work, RowKernel kernel) {
+        int rows = work.length - 1;
+        long tasksWanted = 4L * pool.getParallelism();
+        long grain = Math.max(MIN_TASK_MULTIPLY_ADDS, (work[rows] + tasksWanted - 1) / tasksWanted);
+        pool.invoke(new RowRangeTask(kernel, work, 0, rows, grain));
+    }
+
+    // a range of rows of the result, cut in two ranges of about the same work until it is below the grain
+    private static class RowRangeTask extends RecursiveAction {
+        final RowKernel kernel;
+        final long[] work;
+        final int startRow;
+        final int endRow;
+        final long grain;
+
+        RowRangeTask(RowKernel kernel, long[] work, int startRow, int endRow, long grain) {
+            this.kernel = kernel;
+            this.work = work;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRow - startRow <= 1 || work[endRow] - work[startRow] <= grain) {
+                kernel.compute(startRow, endRow);
+                return;
+            }
+
+            // first row whose cumulated work reaches the middle of the range, kept strictly inside it
+            long middle = work[startRow] + (work[endRow] - work[startRow]) / 2;
+            int split = Arrays.binarySearch(work, startRow, endRow, middle);
+            split = Math.max(startRow + 1, Math.min(endRow - 1, split >= 0 ? split : -split - 1));
+            invokeAll(new RowRangeTask(kernel, work, startRow, split, grain),
+                    new RowRangeTask(kernel, work, split, endRow, grain));
+        }
+    }
+
+    // true when both matrices are empty, the product is then empty too
+    private static boolean validate(int rowsA, int columnsA, int rowsB) throws Exception {
+        if (rowsA == 0 && rowsB == 0) {
+            return true;
+        } else if (rowsA == 0 ^ rowsB == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (columnsA != rowsB) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[][] matrixA = {{1, 0, 3},
+                           {0, 5, 0}};
+        int[][] matrixB = {{10, 0},
+                           {0, 21},
+                           {30, 0}};
+        int[][] expectedReferenceResult = {{100, 0},
+                                           {0, 105}};
+
+        var denseA = Matrix.of(matrixA);
+        var denseB = Matrix.of(matrixB);
+        var expected = Matrix.of(expectedReferenceResult);
+        assert CsrMatrix.of(denseA).toMatrix().contentEquals(denseA);
+        assert CscMatrix.of(denseA).toCsr().toMatrix().contentEquals(denseA);
+        assert sparseDenseMultiply(CsrMatrix.of(denseA), denseB).contentEquals(expected);
+        assert denseSparseMultiply(denseA, CscMatrix.of(denseB)).contentEquals(expected);
+        assert sparseSparseMultiply(CsrMatrix.of(denseA), CsrMatrix.of(denseB)).toMatrix().contentEquals(expected);
+
+        // 2% dense operands with skewed rows, the parallel variants against the dense product
+        var random = new Random(42);
+        var sparseA = new Matrix(300, 200);
+        var sparseB = new Matrix(200, 250);
+        for (int i = 0; i < 300; i++) {
+            for (int j = 0; j < 250; j++) {
+                if (j < 200 && random.nextInt(i < 10 ? 2 : 100) == 0) {
+                    sparseA.set(i, j, random.nextInt(100) - 50);
+                }
+                if (i < 200 && random.nextInt(50) == 0) {
+                    sparseB.set(i, j, random.nextInt(100) - 50);
+                }
+            }
+        }
+        var reference = NaiveMatrixMultiplication.naiveMatrixMultiply(sparseA, sparseB);
+        assert parallelSparseDenseMultiply(CsrMatrix.of(sparseA), sparseB).contentEquals(reference);
+        assert parallelDenseSparseMultiply(sparseA, CscMatrix.of(sparseB)).contentEquals(reference);
+        assert parallelSparseSparseMultiply(CsrMatrix.of(sparseA), CsrMatrix.of(sparseB)).toMatrix()
+                .contentEquals(reference);
+    }
+}
@@ -10,5 +10,6 @@ repositories {
 }
 
 dependencies {
+    implementation("org.example", "matrix", "1.0-SNAPSHOT")
     testCompile("junit", "junit", "4.12")
 }
@@ -1,2 +1,4 @@
 rootProject.name = "strassen"
 
+// shared flat matrix type
+includeBuild("../matrix")
@@ -0,0 +1,196 @@
+// Strassen recursion on double matrices, the floating point counterpart of StrassenMatrixMultiply.
+// Strassen trades some accuracy for speed: the error bound grows with the recursion depth instead of only with the
+// interlaced axis, which is why there is no float variant, the classical float kernels should be used instead.
+// Same structure as the int recursion: peeled odd dimensions, temporaries carved from the workspace double buffer and
+// the leaf size of StrassenMatrixMultiply unless one is given.
+public class DoubleStrassenMatrixMultiply {
+    // return the requested relative matrix quadrant (quarter) as a view sharing the matrix buffer, nothing is copied
+    public static DoubleMatrix getMatrixQuadrant(DoubleMatrix matrix, int quadrantRelativeOrder) throws Exception {
+        var halfOfRowNbr = matrix.rows() / 2;
+        var halfOfColumnNbr = matrix.columns() / 2;
+
+        // encode where the indexes are initially positioned in the input matrix
+        if (quadrantRelativeOrder == 1) {
+            return matrix.view(0, 0, halfOfRowNbr, halfOfColumnNbr);
+        } else if (quadrantRelativeOrder == 2) {
+            return matrix.view(0, halfOfColumnNbr, halfOfRowNbr, halfOfColumnNbr);
+        } else if (quadrantRelativeOrder == 3) {
+            return matrix.view(halfOfRowNbr, 0, halfOfRowNbr, halfOfColumnNbr);
+        } else if (quadrantRelativeOrder == 4) {
+            return matrix.view(halfOfRowNbr, halfOfColumnNbr, halfOfRowNbr, halfOfColumnNbr);
+        } else throw new Exception("The specified quadrantRelativeOrder should be comprised between 1 and 4;");
+    }
+
+    // see StrassenMatrixMultiply.multiplyPeeledEdges
+    private static void multiplyPeeledEdges(DoubleMatrix matrixA, DoubleMatrix matrixB, DoubleMatrix matrixC) {
+        int rows = matrixA.rows();
+        int interlacedAxisSize = matrixA.columns();
+        int columns = matrixB.columns();
+        int evenRows = rows & ~1;
+        int evenInterlacedAxisSize = interlacedAxisSize & ~1;
+        int evenColumns = columns & ~1;
+
+        // rank one update with the last column of A and the last row of B
+        if (evenInterlacedAxisSize != interlacedAxisSize) {
+            double[] a = matrixA.data();
+            double[] b = matrixB.data();
+            double[] c = matrixC.data();
+            int rowB = matrixB.index(evenInterlacedAxisSize, 0);
+
+            for (int i = 0; i < evenRows; i++) {
+                double cellA = a[matrixA.index(i, evenInterlacedAxisSize)];
+                int rowC = matrixC.index(i, 0);
+                for (int j = 0; j < evenColumns; j++) {
+                    c[rowC + j] += cellA * b[rowB + j];
+                }
+            }
+        }
+
+        // last column of C, corner included
+        if (evenColumns != columns) {
+            WideMatrixKernel.multiply(matrixA, matrixB.view(0, evenColumns, interlacedAxisSize, 1),
+                    matrixC.view(0, evenColumns, rows, 1));
+        }
+
+        // last row of C
+        if (evenRows != rows) {
+            WideMatrixKernel.multiply(matrixA.view(evenRows, 0, 1, interlacedAxisSize),
+                    matrixB.view(0, 0, interlacedAxisSize, evenColumns), matrixC.view(evenRows, 0, 1, evenColumns));
+        }
+    }
+
+    // https://en.wikipedia.org/wiki/Strassen_algorithm#Algorithm
+    // same schedule as StrassenMatrixMultiply.recursiveStrassenMultiply
+    private static void recursiveStrassenMultiply(DoubleMatrix matrixA, DoubleMatrix matrixB, DoubleMatrix matrixC,
+                                                  double[] workspace, int workspaceTop, int leafSize) throws Exception {
+        int rows = matrixA.rows();
+        int interlacedAxisSize = matrixA.columns();
+        int columns = matrixB.columns();
+
+        if (Math.min(rows, Math.min(interlacedAxisSize, columns)) <= leafSize) {
+            WideMatrixKernel.multiply(matrixA, matrixB, matrixC);
+            return;
+        }
+
+        // if a dimension is odd, recurse on the even part and peel the remaining row and column off
+        if (rows % 2 != 0 || interlacedAxisSize % 2 != 0 || columns % 2 != 0) {
+            int evenRows = rows & ~1;
+            int evenInterlacedAxisSize = interlacedAxisSize & ~1;
+            int evenColumns = columns & ~1;
+
+            recursiveStrassenMultiply(matrixA.view(0, 0, evenRows, evenInterlacedAxisSize),
+                    matrixB.view(0, 0, evenInterlacedAxisSize, evenColumns),
+                    matrixC.view(0, 0, evenRows, evenColumns), workspace, workspaceTop, leafSize);
+            multiplyPeeledEdges(matrixA, matrixB, matrixC);
+            return;
+        }
+
+        // default code path, recurse on views of the operands
+        var A11 = getMatrixQuadrant(matrixA, 1);
+        var A12 = getMatrixQuadrant(matrixA, 2);
+        var A21 = getMatrixQuadrant(matrixA, 3);
+        var A22 = getMatrixQuadrant(matrixA, 4);
+
+        var B11 = getMatrixQuadrant(matrixB, 1);
+        var B12 = getMatrixQuadrant(matrixB, 2);
+        var B21 = getMatrixQuadrant(matrixB, 3);
+        var B22 = getMatrixQuadrant(matrixB, 4);
+
+        var C11 = getMatrixQuadrant(matrixC, 1);
+        var C12 = getMatrixQuadrant(matrixC, 2);
+        var C21 = getMatrixQuadrant(matrixC, 3);
+        var C22 = getMatrixQuadrant(matrixC, 4);
+
+        int halfRows = rows / 2;
+        int halfInterlacedAxisSize = interlacedAxisSize / 2;
+        int halfColumns = columns / 2;
+        var operandA = new DoubleMatrix(workspace, workspaceTop, halfRows, halfInterlacedAxisSize,
+                halfInterlacedAxisSize);
+        workspaceTop += halfRows * halfInterlacedAxisSize;
+        var operandB = new DoubleMatrix(workspace, workspaceTop, halfInterlacedAxisSize, halfColumns, halfColumns);
+        workspaceTop += halfInterlacedAxisSize * halfColumns;
+        var M = new DoubleMatrix(workspace, workspaceTop, halfRows, halfColumns, halfColumns);
+        int nextWorkspaceTop = workspaceTop + halfRows * halfColumns;
+
+        // M1 = (A11 + A22)(B11 + B22), C11 = M1 + M4 - M5 + M7 and C22 = M1 - M2 + M3 + M6
+        WideMatrixKernel.sum(A11, A22, operandA);
+        WideMatrixKernel.sum(B11, B22, operandB);
+        recursiveStrassenMultiply(operandA, operandB, M, workspace, nextWorkspaceTop, leafSize);
+        C11.copyFrom(M);
+        C22.copyFrom(M);
+
+        // M2 = (A21 + A22)B11, C21 = M2 + M4
+        WideMatrixKernel.sum(A21, A22, operandA);
+        recursiveStrassenMultiply(operandA, B11, M, workspace, nextWorkspaceTop, leafSize);
+        C21.copyFrom(M);
+        WideMatrixKernel.subtract(C22, M, C22);
+
+        // M3 = A11(B12 - B22), C12 = M3 + M5
+        WideMatrixKernel.subtract(B12, B22, operandB);
+        recursiveStrassenMultiply(A11, operandB, M, workspace, nextWorkspaceTop, leafSize);
+        C12.copyFrom(M);
+        WideMatrixKernel.sum(C22, M, C22);
+
+        // M4 = A22(B21 - B11)
+        WideMatrixKernel.subtract(B21, B11, operandB);
+        recursiveStrassenMultiply(A22, operandB, M, workspace, nextWorkspaceTop, leafSize);
+        WideMatrixKernel.sum(C11, M, C11);
+        WideMatrixKernel.sum(C21, M, C21);
+
+        // M5 = (A11 + A12)B22
+        WideMatrixKernel.sum(A11, A12, operandA);
+        recursiveStrassenMultiply(operandA, B22, M, workspace, nextWorkspaceTop, leafSize);
+        WideMatrixKernel.subtract(C11, M, C11);
+        WideMatrixKernel.sum(C12, M, C12);
+
+        // M6 = (A21 - A11)(B11 + B12)
+        WideMatrixKernel.subtract(A21, A11, operandA);
+        WideMatrixKernel.sum(B11, B12, operandB);
+        recursiveStrassenMultiply(operandA, operandB, M, workspace, nextWorkspaceTop, leafSize);
+        WideMatrixKernel.sum(C22, M, C22);
+
+        // M7 = (A12 - A22)(B21 + B22)
+        WideMatrixKernel.subtract(A12, A22, operandA);
+        WideMatrixKernel.sum(B21, B22, operandB);
+        recursiveStrassenMultiply(operandA, operandB, M, workspace, nextWorkspaceTop, leafSize);
+        WideMatrixKernel.sum(C11, M, C11);
+    }
+
+    public static double[][] strassenMatrixMultiply(double[][] matrixA, double[][] matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new double[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices is empty, which is an invalid operation");
+        }
+
+        return strassenMatrixMultiply(DoubleMatrix.of(matrixA), DoubleMatrix.of(matrixB)).toArray();
+    }
+
+    public static DoubleMatrix strassenMatrixMultiply(DoubleMatrix matrixA, DoubleMatrix matrixB) throws Exception {
+        return strassenMatrixMultiply(matrixA, matrixB, new StrassenWorkspace(), StrassenMatrixMultiply.getLeafSize());
+    }
+
+    public static DoubleMatrix strassenMatrixMultiply(DoubleMatrix matrixA, DoubleMatrix matrixB,
+                                                    StrassenWorkspace workspace, int leafSize) throws Exception {
+        if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+            return new DoubleMatrix(0, 0);
+        }
+
+        var matrixC = new DoubleMatrix(matrixA.rows(), matrixB.columns());
+        strassenMatrixMultiply(matrixA, matrixB, matrixC, workspace, leafSize);
+        return matrixC;
+    }
+
+    // write the product into matrixC, which can be a view into a bigger buffer but must not alias the operands
+    public static void strassenMatrixMultiply(DoubleMatrix matrixA, DoubleMatrix matrixB, DoubleMatrix matrixC,
+                                              StrassenWorkspace workspace, int leafSize) throws Exception {
+        if (StrassenMatrixMultiply.validate(matrixA.rows(), matrixA.columns(), matrixB.rows(), matrixB.columns(),
+                matrixC.rows(), matrixC.columns(), leafSize)) {
+            return;
+        }
+
+        double[] scratch = workspace.prepareDouble(matrixA.rows(), matrixA.columns(), matrixB.columns(), leafSize);
+        recursiveStrassenMultiply(matrixA, matrixB, matrixC, scratch, 0, leafSize);
+    }
+}
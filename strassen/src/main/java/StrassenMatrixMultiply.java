@@ -1,4 +1,20 @@
+import java.util.Random;
+
 public class StrassenMatrixMultiply {
+    // once a dimension is this small or smaller the classical blocked kernel is used instead of recursing
+    private static volatile int leafSize = 64;
+
+    public static int getLeafSize() {
+        return leafSize;
+    }
+
+    public static void setLeafSize(int newLeafSize) {
+        if (newLeafSize < 1) {
+            throw new IllegalArgumentException("The leaf size must be at least 1");
+        }
+        leafSize = newLeafSize;
+    }
+
     public static boolean isOddAndIsNotOne(int nbr) {
         if(nbr == 1) {
             return false;
@@ -32,159 +48,608 @@ public class StrassenMatrixMultiply {
         return matrixC;
     }
 
-    // in-place transform
-    private static int[][] fillMatrixQuadrant(int[][] dest, int[][] source, int quadrantRelativeOrder) throws Exception {
-        var halfOfRowNbr = dest.length / 2;
-        var halfOfColumnNbr = dest[0].length / 2;
+    // assume matrices of identical dimensions, matrixC may alias matrixA or matrixB
+    public static void subtract(Matrix matrixA, Matrix matrixB, Matrix matrixC) {
+        if (VectorSupport.isEnabled()) {
+            VectorMatrixKernel.subtract(matrixA, matrixB, matrixC);
+            return;
+        }
 
-        int startI = 0;
-        int startJ = 0;
+        int[] a = matrixA.data();
+        int[] b = matrixB.data();
+        int[] c = matrixC.data();
 
-        // encode where the indexes are initially positioned in the output matrix
-        if (quadrantRelativeOrder == 1) {
-            // NTD
-        } else if (quadrantRelativeOrder == 2) {
-            startJ = halfOfColumnNbr;
-        } else if (quadrantRelativeOrder == 3) {
-            startI = halfOfRowNbr;
-        } else if (quadrantRelativeOrder == 4) {
-            startI = halfOfRowNbr;
-            startJ = halfOfColumnNbr;
-        } else throw new Exception("The specified quadrantRelativeOrder should be comprised between 1 and 4;");
+        for (int i = 0; i < matrixA.rows(); i++) {
+            int rowA = matrixA.index(i, 0);
+            int rowB = matrixB.index(i, 0);
+            int rowC = matrixC.index(i, 0);
+            for (int j = 0; j < matrixA.columns(); j++) {
+                c[rowC + j] = a[rowA + j] - b[rowB + j];
+            }
+        }
+    }
+
+    // assume matrices of identical dimensions, matrixC may alias matrixA or matrixB
+    public static void sum(Matrix matrixA, Matrix matrixB, Matrix matrixC) {
+        if (VectorSupport.isEnabled()) {
+            VectorMatrixKernel.sum(matrixA, matrixB, matrixC);
+            return;
+        }
 
+        int[] a = matrixA.data();
+        int[] b = matrixB.data();
+        int[] c = matrixC.data();
 
-        for (int row = 0, i = startI; row < halfOfRowNbr; row++, i++) {
-            for (int col = 0, j = startJ; col < halfOfColumnNbr; col++, j++) {
-                // it is effectively the inverse function of getMatrixQuadrant
-                dest[i][j] = source[row][col];
+        for (int i = 0; i < matrixA.rows(); i++) {
+            int rowA = matrixA.index(i, 0);
+            int rowB = matrixB.index(i, 0);
+            int rowC = matrixC.index(i, 0);
+            for (int j = 0; j < matrixA.columns(); j++) {
+                c[rowC + j] = a[rowA + j] + b[rowB + j];
             }
         }
-        return dest;
     }
 
-    // return the requested relative matrix quadrant (quarter)
-    private static int[][] getMatrixQuadrant(int[][] matrix, int quadrantRelativeOrder) throws Exception {
-        var halfOfRowNbr = matrix.length / 2;
-        var halfOfColumnNbr = matrix[0].length / 2;
+    // assume matrices of identical dimensions
+    public static Matrix subtract(Matrix matrixA, Matrix matrixB) {
+        var matrixC = new Matrix(matrixA.rows(), matrixA.columns());
+        subtract(matrixA, matrixB, matrixC);
+        return matrixC;
+    }
+
+    // assume matrices of identical dimensions
+    public static Matrix sum(Matrix matrixA, Matrix matrixB) {
+        var matrixC = new Matrix(matrixA.rows(), matrixA.columns());
+        sum(matrixA, matrixB, matrixC);
+        return matrixC;
+    }
+
+    // the recursion works in plain wrapping int arithmetic when modulus is 0, modulo modulus otherwise
+    private static void sum(Matrix matrixA, Matrix matrixB, Matrix matrixC, int modulus) {
+        if (modulus == 0) {
+            sum(matrixA, matrixB, matrixC);
+        } else {
+            ModularMatrixKernel.sum(matrixA, matrixB, matrixC, modulus);
+        }
+    }
 
-        var quadrant = new int[halfOfRowNbr][halfOfColumnNbr];
+    private static void subtract(Matrix matrixA, Matrix matrixB, Matrix matrixC, int modulus) {
+        if (modulus == 0) {
+            subtract(matrixA, matrixB, matrixC);
+        } else {
+            ModularMatrixKernel.subtract(matrixA, matrixB, matrixC, modulus);
+        }
+    }
+
+    private static void multiplyClassically(Matrix matrixA, Matrix matrixB, Matrix matrixC, int modulus) {
+        if (modulus == 0) {
+            BlockedMatrixKernel.multiply(matrixA, matrixB, matrixC);
+        } else {
+            ModularMatrixKernel.multiply(matrixA, matrixB, matrixC, modulus);
+        }
+    }
 
-        int startI = 0;
-        int startJ = 0;
+    // return the requested relative matrix quadrant (quarter) as a view sharing the matrix buffer, nothing is copied
+    public static Matrix getMatrixQuadrant(Matrix matrix, int quadrantRelativeOrder) throws Exception {
+        var halfOfRowNbr = matrix.rows() / 2;
+        var halfOfColumnNbr = matrix.columns() / 2;
 
         // encode where the indexes are initially positioned in the input matrix
         if (quadrantRelativeOrder == 1) {
-            // NTD
+            return matrix.view(0, 0, halfOfRowNbr, halfOfColumnNbr);
         } else if (quadrantRelativeOrder == 2) {
-            startJ = halfOfColumnNbr;
+            return matrix.view(0, halfOfColumnNbr, halfOfRowNbr, halfOfColumnNbr);
         } else if (quadrantRelativeOrder == 3) {
-            startI = halfOfRowNbr;
+            return matrix.view(halfOfRowNbr, 0, halfOfRowNbr, halfOfColumnNbr);
         } else if (quadrantRelativeOrder == 4) {
-            startI = halfOfRowNbr;
-            startJ = halfOfColumnNbr;
+            return matrix.view(halfOfRowNbr, halfOfColumnNbr, halfOfRowNbr, halfOfColumnNbr);
         } else throw new Exception("The specified quadrantRelativeOrder should be comprised between 1 and 4;");
+    }
 
+    // Odd dimensions that paddedShape does not pad away are handled by dynamic peeling: the recursion runs on the
+    // largest even sub-matrices and this fixes up the last row, column and interlaced index of an m x k by k x n
+    // product.
+    // matrixC must already hold A[0..m'][0..k'] * B[0..k'][0..n'] in its top left m' x n' corner (primes are the
+    // dimensions rounded down to even), no memory is allocated and the extra work is O(mk + kn + mn).
+    public static void multiplyPeeledEdges(Matrix matrixA, Matrix matrixB, Matrix matrixC) {
+        multiplyPeeledEdges(matrixA, matrixB, matrixC, 0);
+    }
 
-        for (int row = 0, i = startI; row < halfOfRowNbr; row++, i++) {
-            for (int col = 0, j = startJ; col < halfOfColumnNbr; col++, j++) {
-                quadrant[row][col] = matrix[i][j];
+    private static void multiplyPeeledEdges(Matrix matrixA, Matrix matrixB, Matrix matrixC, int modulus) {
+        int rows = matrixA.rows();
+        int interlacedAxisSize = matrixA.columns();
+        int columns = matrixB.columns();
+        int evenRows = rows & ~1;
+        int evenInterlacedAxisSize = interlacedAxisSize & ~1;
+        int evenColumns = columns & ~1;
+
+        // rank one update with the last column of A and the last row of B
+        if (evenInterlacedAxisSize != interlacedAxisSize) {
+            int[] a = matrixA.data();
+            int[] b = matrixB.data();
+            int[] c = matrixC.data();
+            int rowB = matrixB.index(evenInterlacedAxisSize, 0);
+
+            for (int i = 0; i < evenRows; i++) {
+                int cellA = a[matrixA.index(i, evenInterlacedAxisSize)];
+                int rowC = matrixC.index(i, 0);
+                if (modulus == 0) {
+                    for (int j = 0; j < evenColumns; j++) {
+                        c[rowC + j] += cellA * b[rowB + j];
+                    }
+                } else {
+                    for (int j = 0; j < evenColumns; j++) {
+                        c[rowC + j] = (int) ((c[rowC + j] + (long) cellA * b[rowB + j]) % modulus);
+                    }
+                }
             }
         }
-        return quadrant;
+
+        // last column of C, corner included
+        if (evenColumns != columns) {
+            multiplyClassically(matrixA, matrixB.view(0, evenColumns, interlacedAxisSize, 1),
+                    matrixC.view(0, evenColumns, rows, 1), modulus);
+        }
+
+        // last row of C
+        if (evenRows != rows) {
+            multiplyClassically(matrixA.view(evenRows, 0, 1, interlacedAxisSize),
+                    matrixB.view(0, 0, interlacedAxisSize, evenColumns), matrixC.view(evenRows, 0, 1, evenColumns),
+                    modulus);
+        }
+    }
+
+    // matrixA * matrixB through the recursion, into matrixC or into the workspace when matrixC is null, padded first
+    // when padding is allowed and paddedShape says so. Returns the matrix holding the product.
+    private static Matrix multiply(Matrix matrixA, Matrix matrixB, Matrix matrixC, StrassenWorkspace workspace,
+                                   int leafSize, int modulus, boolean padding) throws Exception {
+        int rows = matrixA.rows();
+        int interlacedAxisSize = matrixA.columns();
+        int columns = matrixB.columns();
+
+        int[] paddedShape = padding ? paddedShape(rows, interlacedAxisSize, columns, leafSize) : null;
+        if (paddedShape == null) {
+            int[] scratch = workspace.prepare(rows, interlacedAxisSize, columns, leafSize);
+            var product = matrixC != null ? matrixC
+                    : new Matrix(workspace.prepareProduct(rows, columns), 0, rows, columns, columns);
+            recursiveStrassenMultiply(matrixA, matrixB, product, scratch, 0, leafSize, modulus);
+            return product;
+        }
+
+        int[] scratch = workspace.prepare(paddedShape[0], paddedShape[1], paddedShape[2], leafSize);
+        var padded = pad(matrixA, matrixB, paddedShape, workspace);
+        recursiveStrassenMultiply(padded[0], padded[1], padded[2], scratch, 0, leafSize, modulus);
+        var product = padded[2].view(0, 0, rows, columns);
+        if (matrixC == null) {
+            return product;
+        }
+        matrixC.copyFrom(product);
+        return matrixC;
+    }
+
+    // A shape the recursion would split into an odd level is padded once with zeros up front rather than peeled,
+    // when that is cheap: rows and interlaced axis are rounded up to a multiple of 2^depth so that every level splits
+    // evenly, columns so that the leaves are also a whole number of vectors, whose column tails run scalar and cost
+    // far more than their share (a 63 wide leaf is about 4 times slower than a 64 wide one). Returns the padded
+    // rows, interlaced axis and columns, or null when the shape already splits evenly or when padding would add
+    // more than 1/16 to the work (1025 = 1024 + 1 is cheaper peeled once), odd levels are then peeled.
+    static int[] paddedShape(int rows, int interlacedAxisSize, int columns, int leafSize) {
+        int depth = 0;
+        for (long r = rows, k = interlacedAxisSize, c = columns; Math.min(r, Math.min(k, c)) > leafSize; depth++) {
+            r = (r + 1) / 2;
+            k = (k + 1) / 2;
+            c = (c + 1) / 2;
+        }
+        if (depth == 0) {
+            return null;
+        }
+
+        long step = 1L << depth;
+        long alignment = VectorSupport.isEnabled() ? VectorMatrixKernel.lanes() : BlockedMatrixKernel.MICRO_COLUMNS;
+        long paddedRows = roundUp(rows, step);
+        long paddedInterlacedAxisSize = roundUp(interlacedAxisSize, step);
+        long paddedColumns = roundUp((columns + step - 1) / step, alignment) * step;
+        if (paddedRows == rows && paddedInterlacedAxisSize == interlacedAxisSize && paddedColumns == columns) {
+            return null;
+        }
+
+        double work = (double) rows * interlacedAxisSize * columns;
+        double paddedWork = (double) paddedRows * paddedInterlacedAxisSize * paddedColumns;
+        long paddedLength = paddedRows * paddedInterlacedAxisSize + paddedInterlacedAxisSize * paddedColumns
+                + paddedRows * paddedColumns;
+        if (paddedWork > work * (1 + 1.0 / 16) || paddedLength > Integer.MAX_VALUE) {
+            return null;
+        }
+        return new int[]{(int) paddedRows, (int) paddedInterlacedAxisSize, (int) paddedColumns};
+    }
+
+    private static long roundUp(long value, long multiple) {
+        return (value + multiple - 1) / multiple * multiple;
+    }
+
+    // zero padded copies of matrixA and matrixB and room for the padded product, in the workspace
+    static Matrix[] pad(Matrix matrixA, Matrix matrixB, int[] paddedShape, StrassenWorkspace workspace) {
+        int paddedRows = paddedShape[0];
+        int paddedInterlacedAxisSize = paddedShape[1];
+        int paddedColumns = paddedShape[2];
+        int[] buffer = workspace.preparePadded(paddedRows * paddedInterlacedAxisSize
+                + paddedInterlacedAxisSize * paddedColumns + paddedRows * paddedColumns);
+
+        var paddedA = new Matrix(buffer, 0, paddedRows, paddedInterlacedAxisSize, paddedInterlacedAxisSize);
+        int top = paddedRows * paddedInterlacedAxisSize;
+        var paddedB = new Matrix(buffer, top, paddedInterlacedAxisSize, paddedColumns, paddedColumns);
+        top += paddedInterlacedAxisSize * paddedColumns;
+        var paddedC = new Matrix(buffer, top, paddedRows, paddedColumns, paddedColumns);
+
+        copyPadded(matrixA, paddedA);
+        copyPadded(matrixB, paddedB);
+        return new Matrix[]{paddedA, paddedB, paddedC};
+    }
+
+    // source in the top left corner of destination, zeros around it
+    private static void copyPadded(Matrix source, Matrix destination) {
+        int rows = source.rows();
+        int columns = source.columns();
+        destination.view(0, 0, rows, columns).copyFrom(source);
+        destination.view(0, columns, rows, destination.columns() - columns).fill(0);
+        destination.view(rows, 0, destination.rows() - rows, destination.columns()).fill(0);
+    }
+
+    // A sub-problem is finished classically below the crossover, and also when a dimension is odd while the smallest
+    // one is at most twice the crossover: peeling there would only leave one more level ending on leaves one short of
+    // a vector multiple (63 wide with a crossover of 64), where the SIMD kernel runs its scalar column tail on every
+    // row and loses more than the level saves. Odd levels above that are still peeled.
+    static boolean isLeaf(int rows, int interlacedAxisSize, int columns, int leafSize) {
+        int smallest = Math.min(rows, Math.min(interlacedAxisSize, columns));
+        if (smallest <= leafSize) {
+            return true;
+        }
+        return (rows % 2 != 0 || interlacedAxisSize % 2 != 0 || columns % 2 != 0) && smallest <= 2L * leafSize;
     }
 
     // https://en.wikipedia.org/wiki/Strassen_algorithm#Algorithm
-    private static int[][] recursiveStrassenMultiply(int[][] matrixA, int[][] matrixB) throws Exception {
-        var matrixC = new int[matrixA.length][matrixA.length];
+    // Multiplies an m x k matrixA by a k x n matrixB into matrixC, the three of them can be views into bigger buffers.
+    // Every temporary lives in the workspace buffer above workspaceTop, each M product is accumulated into the
+    // output quadrants as soon as it is computed so a level only needs room for one of them.
+    // With a non zero modulus every sum, difference and leaf product is reduced modulo it.
+    private static void recursiveStrassenMultiply(Matrix matrixA, Matrix matrixB, Matrix matrixC, int[] workspace,
+                                                  int workspaceTop, int leafSize, int modulus) throws Exception {
+        int rows = matrixA.rows();
+        int interlacedAxisSize = matrixA.columns();
+        int columns = matrixB.columns();
+
+        // below the crossover the 18 additions per level cost more than they save, finish classically (see isLeaf)
+        if (isLeaf(rows, interlacedAxisSize, columns, leafSize)) {
+            multiplyClassically(matrixA, matrixB, matrixC, modulus);
+            return;
+        }
 
-        // if the matrices are not even, call itself with padding
-        if (isOddAndIsNotOne(matrixA.length)) {
-            int evenLength = matrixA.length + 1;
+        // if a dimension is odd, recurse on the even part and peel the remaining row and column off
+        if (rows % 2 != 0 || interlacedAxisSize % 2 != 0 || columns % 2 != 0) {
+            int evenRows = rows & ~1;
+            int evenInterlacedAxisSize = interlacedAxisSize & ~1;
+            int evenColumns = columns & ~1;
+
+            recursiveStrassenMultiply(matrixA.view(0, 0, evenRows, evenInterlacedAxisSize),
+                    matrixB.view(0, 0, evenInterlacedAxisSize, evenColumns),
+                    matrixC.view(0, 0, evenRows, evenColumns), workspace, workspaceTop, leafSize, modulus);
+            multiplyPeeledEdges(matrixA, matrixB, matrixC, modulus);
+            return;
+        }
 
-            var evenMatrixA = new int[evenLength][evenLength];
-            var evenMatrixB = new int[evenLength][evenLength];
-            var evenMatrixC = new int[evenLength][evenLength];
+        // default code path, recurse on views of the operands
+        var A11 = getMatrixQuadrant(matrixA, 1);
+        var A12 = getMatrixQuadrant(matrixA, 2);
+        var A21 = getMatrixQuadrant(matrixA, 3);
+        var A22 = getMatrixQuadrant(matrixA, 4);
+
+        var B11 = getMatrixQuadrant(matrixB, 1);
+        var B12 = getMatrixQuadrant(matrixB, 2);
+        var B21 = getMatrixQuadrant(matrixB, 3);
+        var B22 = getMatrixQuadrant(matrixB, 4);
+
+        var C11 = getMatrixQuadrant(matrixC, 1);
+        var C12 = getMatrixQuadrant(matrixC, 2);
+        var C21 = getMatrixQuadrant(matrixC, 3);
+        var C22 = getMatrixQuadrant(matrixC, 4);
+
+        int halfRows = rows / 2;
+        int halfInterlacedAxisSize = interlacedAxisSize / 2;
+        int halfColumns = columns / 2;
+        var operandA = new Matrix(workspace, workspaceTop, halfRows, halfInterlacedAxisSize, halfInterlacedAxisSize);
+        workspaceTop += halfRows * halfInterlacedAxisSize;
+        var operandB = new Matrix(workspace, workspaceTop, halfInterlacedAxisSize, halfColumns, halfColumns);
+        workspaceTop += halfInterlacedAxisSize * halfColumns;
+        var M = new Matrix(workspace, workspaceTop, halfRows, halfColumns, halfColumns);
+        int nextWorkspaceTop = workspaceTop + halfRows * halfColumns;
+
+        // M1 = (A11 + A22)(B11 + B22), C11 = M1 + M4 - M5 + M7 and C22 = M1 - M2 + M3 + M6
+        sum(A11, A22, operandA, modulus);
+        sum(B11, B22, operandB, modulus);
+        recursiveStrassenMultiply(operandA, operandB, M, workspace, nextWorkspaceTop, leafSize, modulus);
+        C11.copyFrom(M);
+        C22.copyFrom(M);
+
+        // M2 = (A21 + A22)B11, C21 = M2 + M4
+        sum(A21, A22, operandA, modulus);
+        recursiveStrassenMultiply(operandA, B11, M, workspace, nextWorkspaceTop, leafSize, modulus);
+        C21.copyFrom(M);
+        subtract(C22, M, C22, modulus);
+
+        // M3 = A11(B12 - B22), C12 = M3 + M5
+        subtract(B12, B22, operandB, modulus);
+        recursiveStrassenMultiply(A11, operandB, M, workspace, nextWorkspaceTop, leafSize, modulus);
+        C12.copyFrom(M);
+        sum(C22, M, C22, modulus);
+
+        // M4 = A22(B21 - B11)
+        subtract(B21, B11, operandB, modulus);
+        recursiveStrassenMultiply(A22, operandB, M, workspace, nextWorkspaceTop, leafSize, modulus);
+        sum(C11, M, C11, modulus);
+        sum(C21, M, C21, modulus);
+
+        // M5 = (A11 + A12)B22
+        sum(A11, A12, operandA, modulus);
+        recursiveStrassenMultiply(operandA, B22, M, workspace, nextWorkspaceTop, leafSize, modulus);
+        subtract(C11, M, C11, modulus);
+        sum(C12, M, C12, modulus);
+
+        // M6 = (A21 - A11)(B11 + B12)
+        subtract(A21, A11, operandA, modulus);
+        sum(B11, B12, operandB, modulus);
+        recursiveStrassenMultiply(operandA, operandB, M, workspace, nextWorkspaceTop, leafSize, modulus);
+        sum(C22, M, C22, modulus);
+
+        // M7 = (A12 - A22)(B21 + B22)
+        subtract(A12, A22, operandA, modulus);
+        sum(B21, B22, operandB, modulus);
+        recursiveStrassenMultiply(operandA, operandB, M, workspace, nextWorkspaceTop, leafSize, modulus);
+        sum(C11, M, C11, modulus);
+    }
 
-            for (int i = 0; i < matrixA.length; i++) {
-                System.arraycopy(matrixA[i], 0, evenMatrixA[i], 0, matrixA.length);
-                System.arraycopy(matrixB[i], 0, evenMatrixB[i], 0, matrixA.length);
+    public static int[][] strassenMatrixMultiply(int[][] matrixA, int[][] matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new int[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices is empty, which is an invalid operation");
+        }
+
+        return strassenMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB)).toArray();
+    }
+
+    public static Matrix strassenMatrixMultiply(Matrix matrixA, Matrix matrixB) throws Exception {
+        return strassenMatrixMultiply(matrixA, matrixB, new StrassenWorkspace());
+    }
+
+    // reuse the scratch memory of the given workspace across calls, in steady state only the product is allocated
+    public static Matrix strassenMatrixMultiply(Matrix matrixA, Matrix matrixB, StrassenWorkspace workspace) throws Exception {
+        return strassenMatrixMultiply(matrixA, matrixB, workspace, leafSize);
+    }
+
+    public static Matrix strassenMatrixMultiply(Matrix matrixA, Matrix matrixB, StrassenWorkspace workspace,
+                                                int leafSize) throws Exception {
+        if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+            return new Matrix(0, 0);
+        }
+
+        var metrics = MultiplicationMetrics.start("strassen", matrixA.rows(), matrixA.columns(), matrixB.columns());
+        var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+        strassenMatrixMultiply(matrixA, matrixB, matrixC, workspace, leafSize);
+        if (metrics != null) {
+            recordRecursion(metrics, 0, matrixA.rows(), matrixA.columns(), matrixB.columns(), leafSize);
+            metrics.addAllocatedBytes((long) matrixC.rows() * matrixC.columns() * Integer.BYTES
+                    + workspace.lastAllocatedBytes());
+            metrics.finish();
+        }
+        return matrixC;
+    }
+
+    // write the product into matrixC, which can be a view into a bigger buffer but must not alias the operands
+    public static void strassenMatrixMultiply(Matrix matrixA, Matrix matrixB, Matrix matrixC,
+                                              StrassenWorkspace workspace, int leafSize) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows(), matrixB.columns(),
+                matrixC.rows(), matrixC.columns(), leafSize)) {
+            return;
+        }
+
+        multiply(matrixA, matrixB, matrixC, workspace, leafSize, 0, true);
+    }
+
+    // GEMM into a caller owned matrix, matrixC = alpha * matrixA * matrixB + beta * matrixC. With a beta of 0 the
+    // recursion writes straight into matrixC (its previous content is ignored), otherwise the product goes through a
+    // buffer of the workspace first. Either way nothing is allocated once the workspace has grown to the shape.
+    // matrixC must not alias the operands.
+    public static void strassenMatrixMultiply(Matrix matrixA, Matrix matrixB, Matrix matrixC,
+                                              StrassenWorkspace workspace, int leafSize,
+                                              int alpha, int beta) throws Exception {
+        strassenMatrixMultiply(matrixA, matrixB, matrixC, workspace, leafSize, alpha, beta, true);
+    }
+
+    // The same GEMM, never padded when padding is false: odd levels are then always peeled, and the workspace only
+    // grows by the recursion scratch and, with a non zero beta, one product buffer, for callers holding it to a
+    // memory budget (see OutOfCoreOptions).
+    public static void strassenMatrixMultiply(Matrix matrixA, Matrix matrixB, Matrix matrixC,
+                                              StrassenWorkspace workspace, int leafSize,
+                                              int alpha, int beta, boolean padding) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows(), matrixB.columns(),
+                matrixC.rows(), matrixC.columns(), leafSize)) {
+            return;
+        }
+
+        int rows = matrixA.rows();
+        int interlacedAxisSize = matrixA.columns();
+        int columns = matrixB.columns();
+        var metrics = MultiplicationMetrics.start("strassen", rows, interlacedAxisSize, columns);
+
+        // no recursion at all, the blocked kernel scales and accumulates in place by itself
+        if (isLeaf(rows, interlacedAxisSize, columns, leafSize)) {
+            BlockedMatrixKernel.multiplyAdd(matrixA, matrixB, matrixC, alpha, beta);
+            if (metrics != null) {
+                metrics.finish();
             }
+            return;
+        }
+
+        if (beta == 0) {
+            multiply(matrixA, matrixB, matrixC, workspace, leafSize, 0, padding);
+            combine(matrixC, matrixC, alpha, 0);
+        } else {
+            var product = multiply(matrixA, matrixB, null, workspace, leafSize, 0, padding);
+            combine(product, matrixC, alpha, beta);
+        }
+
+        if (metrics != null) {
+            recordRecursion(metrics, 0, rows, interlacedAxisSize, columns, leafSize, padding);
+            metrics.addAllocatedBytes(workspace.lastAllocatedBytes());
+            metrics.finish();
+        }
+    }
+
+    // The depth, the padding and the peeled sub-problems of the sequential recursion, derived from the shape: every
+    // sub-problem of a level has the same shape, so it is cheaper than counting them during the recursion. The sub-problems of the
+    // parallel engines pass the depth they were forked at.
+    public static void recordRecursion(MultiplicationMetrics metrics, int depth, int rows, int interlacedAxisSize,
+                                       int columns, int leafSize) {
+        recordRecursion(metrics, depth, rows, interlacedAxisSize, columns, leafSize, true);
+    }
 
-            evenMatrixC = recursiveStrassenMultiply(evenMatrixA, evenMatrixB);
+    private static void recordRecursion(MultiplicationMetrics metrics, int depth, int rows, int interlacedAxisSize,
+                                        int columns, int leafSize, boolean padding) {
+        int[] paddedShape = padding ? paddedShape(rows, interlacedAxisSize, columns, leafSize) : null;
+        if (paddedShape != null) {
+            metrics.addPaddedCalls(1);
+            rows = paddedShape[0];
+            interlacedAxisSize = paddedShape[1];
+            columns = paddedShape[2];
+        }
 
-            // strip the zeros
-            for(int i = 0; i < matrixA.length; i++) {
-                System.arraycopy(evenMatrixC[i], 0, matrixC[i], 0, matrixA.length);
+        long subProblems = 1;
+        while (!isLeaf(rows, interlacedAxisSize, columns, leafSize)) {
+            if (rows % 2 != 0 || interlacedAxisSize % 2 != 0 || columns % 2 != 0) {
+                metrics.addPeeledEdges(subProblems);
+                rows &= ~1;
+                interlacedAxisSize &= ~1;
+                columns &= ~1;
+                continue;
             }
-            return matrixC;
-        }
-
-        // base, irreducible case has been reached
-        if (matrixA.length == 1 && matrixA[0].length == 1) {
-            matrixC[0][0] = matrixA[0][0] * matrixB[0][0];
-        } else { // default code path, recurse
-            // shallow split the matrices
-            var A11 = getMatrixQuadrant(matrixA, 1);
-            var A12 = getMatrixQuadrant(matrixA, 2);
-            var A21 = getMatrixQuadrant(matrixA, 3);
-            var A22 = getMatrixQuadrant(matrixA, 4);
-
-            var B11 = getMatrixQuadrant(matrixB, 1);
-            var B12 = getMatrixQuadrant(matrixB, 2);
-            var B21 = getMatrixQuadrant(matrixB, 3);
-            var B22 = getMatrixQuadrant(matrixB, 4);
-
-
-            // compute the seven Strassen sub-matrices
-            var M1 = recursiveStrassenMultiply(sum(A11, A22), sum(B11, B22));
-            var M2 = recursiveStrassenMultiply(sum(A21, A22), B11);
-            var M3 = recursiveStrassenMultiply(A11, subtract(B12, B22));
-            var M4 = recursiveStrassenMultiply(A22, subtract(B21, B11));
-            var M5 = recursiveStrassenMultiply(sum(A11, A12), B22);
-            var M6 = recursiveStrassenMultiply(subtract(A21, A11), sum(B11, B12));
-            var M7 = recursiveStrassenMultiply(subtract(A12, A22), sum(B21, B22));
-
-            // compute the quadrants
-            var C11 = sum(subtract(sum(M1, M4), M5), M7);
-            var C12 = sum(M3, M5);
-            var C21 = sum(M2, M4);
-            var C22 = sum(sum(subtract(M1, M2), M3), M6);
-
-            // reassemble the quadrants
-            fillMatrixQuadrant(matrixC, C11, 1);
-            fillMatrixQuadrant(matrixC, C12, 2);
-            fillMatrixQuadrant(matrixC, C21, 3);
-            fillMatrixQuadrant(matrixC, C22, 4);
+            rows /= 2;
+            interlacedAxisSize /= 2;
+            columns /= 2;
+            subProblems *= 7;
+            depth++;
         }
+        metrics.reachedDepth(depth);
+    }
 
-        return matrixC;
+    // matrixC = alpha * product + beta * matrixC, product may be matrixC itself when beta is 0
+    private static void combine(Matrix product, Matrix matrixC, int alpha, int beta) {
+        if (alpha == 1 && beta == 0) {
+            return;
+        }
+
+        int[] p = product.data();
+        int[] c = matrixC.data();
+        for (int i = 0; i < matrixC.rows(); i++) {
+            int rowP = product.index(i, 0);
+            int rowC = matrixC.index(i, 0);
+            for (int j = 0; j < matrixC.columns(); j++) {
+                c[rowC + j] = alpha * p[rowP + j] + beta * c[rowC + j];
+            }
+        }
     }
 
-    public static int[][] strassenMatrixMultiply(int[][] matrixA, int[][] matrixB) throws Exception {
+    // product modulo p of operands already reduced to [0, modulus), see ModularMatrixKernel.reduce.
+    // Every intermediate sum stays a residue, so unlike the plain int recursion nothing can overflow.
+    public static int[][] modularStrassenMatrixMultiply(int[][] matrixA, int[][] matrixB,
+                                                        int modulus) throws Exception {
         // validate the matrices
         if (matrixA.length == 0 && matrixB.length == 0) {
             return new int[0][0];
         } else if (matrixA.length == 0 ^ matrixB.length == 0) {
             throw new Exception("Only one of the two matrices is empty, which is an invalid operation");
-        }  else if (matrixA.length != matrixB.length || matrixA[0].length != matrixB[0].length) {
-            throw new Exception("matrices of non-identical dimensions are not supported");
-        } else if (matrixA.length != matrixA[0].length) {
-            // support could be added technically
-            throw new Exception("non-square matrices are not supported");
         }
 
-        /*if (matrixA.length % 2 != 0) {
-            var evenMatrixA = new int[matrixA.length + 1][matrixA.length + 1];
-            var evenMatrixB = new int[matrixA.length + 1][matrixA.length + 1];
+        return modularStrassenMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB), modulus).toArray();
+    }
+
+    public static Matrix modularStrassenMatrixMultiply(Matrix matrixA, Matrix matrixB, int modulus) throws Exception {
+        if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+            return new Matrix(0, 0);
+        }
+
+        var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+        modularStrassenMatrixMultiply(matrixA, matrixB, matrixC, new StrassenWorkspace(), leafSize, modulus);
+        return matrixC;
+    }
 
-            System.arraycopy(matrixA, 0, evenMatrixA, 0, matrixA.length);
-            System.arraycopy(matrixB, 0, evenMatrixB, 0, matrixA.length);
+    public static void modularStrassenMatrixMultiply(Matrix matrixA, Matrix matrixB, Matrix matrixC,
+                                                     StrassenWorkspace workspace, int leafSize,
+                                                     int modulus) throws Exception {
+        if (modulus < 2) {
+            throw new Exception("The modulus must be at least 2");
+        } else if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows(), matrixB.columns(),
+                matrixC.rows(), matrixC.columns(), leafSize)) {
+            return;
+        }
 
-            return recursiveStrassenMultiply(evenMatrixA, evenMatrixB);
-        } else {
-            return recursiveStrassenMultiply(matrixA, matrixB);
-        }*/
-        return recursiveStrassenMultiply(matrixA, matrixB);
+        multiply(matrixA, matrixB, matrixC, workspace, leafSize, modulus, true);
+    }
+
+    // shared by every element type of the Strassen recursion, true when both matrices are empty (nothing to compute)
+    static boolean validate(int rowsA, int columnsA, int rowsB, int columnsB, int rowsC, int columnsC,
+                            int leafSize) throws Exception {
+        // validate the matrices
+        if (rowsA == 0 && rowsB == 0) {
+            return true;
+        } else if (rowsA == 0 ^ rowsB == 0) {
+            throw new Exception("Only one of the two matrices is empty, which is an invalid operation");
+        } else if (columnsA != rowsB) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        } else if (rowsC != rowsA || columnsC != columnsB) {
+            throw new Exception("The output matrix does not have the shape of the product");
+        } else if (leafSize < 1) {
+            throw new Exception("The leaf size must be at least 1");
+        }
+        return false;
+    }
+
+    // time the candidate crossovers on random operands of the given length and keep the fastest as the leaf size
+    public static int calibrateLeafSize(int length) throws Exception {
+        var random = new Random(42);
+        var matrixA = new Matrix(length, length);
+        var matrixB = new Matrix(length, length);
+        for (int i = 0; i < length; i++) {
+            for (int j = 0; j < length; j++) {
+                matrixA.set(i, j, random.nextInt(100));
+                matrixB.set(i, j, random.nextInt(100));
+            }
+        }
+
+        var workspace = new StrassenWorkspace();
+        int bestLeafSize = length;
+        long bestTime = Long.MAX_VALUE;
+
+        for (int candidate = 16; candidate <= length; candidate *= 2) {
+            // first run warms up the JIT and the workspace
+            strassenMatrixMultiply(matrixA, matrixB, workspace, candidate);
+
+            long candidateTime = Long.MAX_VALUE;
+            for (int run = 0; run < 3; run++) {
+                long start = System.nanoTime();
+                strassenMatrixMultiply(matrixA, matrixB, workspace, candidate);
+                candidateTime = Math.min(candidateTime, System.nanoTime() - start);
+            }
+
+            if (candidateTime < bestTime) {
+                bestTime = candidateTime;
+                bestLeafSize = candidate;
+            }
+        }
+
+        setLeafSize(bestLeafSize);
+        return bestLeafSize;
     }
 
     public static void main(String[] args) throws Exception {
@@ -229,6 +694,55 @@ public class StrassenMatrixMultiply {
                                             {915, 1008, 1101, 1194, 1287, 1380}};
 
         var result = strassenMatrixMultiply(matrixA, matrixB);
+        var flatResult = strassenMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB));
+        assert flatResult.contentEquals(Matrix.of(expectedReferenceResult));
+
+        int modulus = 7;
+        var residuesA = Matrix.of(matrixA);
+        var residuesB = Matrix.of(matrixB);
+        var modularResult = Matrix.of(expectedReferenceResult);
+        ModularMatrixKernel.reduce(residuesA, modulus);
+        ModularMatrixKernel.reduce(residuesB, modulus);
+        ModularMatrixKernel.reduce(modularResult, modulus);
+        assert modularStrassenMatrixMultiply(residuesA, residuesB, modulus).contentEquals(modularResult);
+
+        // C = 3 * A * B - C recursing down to 1x1 leaves, twice on the same output: 3P - (3P - 1) = 1 everywhere
+        var ones = new Matrix(6, 6);
+        ones.fill(1);
+        var accumulated = ones.copy();
+        var workspace = new StrassenWorkspace();
+        strassenMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB), accumulated, workspace, 1, 3, -1);
+        assert accumulated.get(0, 0) == 3 * 195 - 1;
+        strassenMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB), accumulated, workspace, 1, 3, -1);
+        assert accumulated.contentEquals(ones);
+
+        // the M1 operand sums overflow an int here, the long recursion keeps them exact
+        var largeMatrix = LongMatrix.of(Matrix.of(new int[][]{{1 << 30, 1 << 30}, {1 << 30, 1 << 30}}));
+        var widenedResult = LongStrassenMatrixMultiply.strassenMatrixMultiply(largeMatrix, largeMatrix,
+                new StrassenWorkspace(), 1);
+        assert widenedResult.get(0, 0) == 1L << 61 && widenedResult.get(1, 1) == 1L << 61;
+
+        // 63 = 64 - 1 is padded once to 64 rather than peeled at every level, unless the GEMM is told not to pad
+        var random = new Random(42);
+        var oddA = new Matrix(63, 63);
+        var oddB = new Matrix(63, 63);
+        for (int i = 0; i < 63; i++) {
+            for (int j = 0; j < 63; j++) {
+                oddA.set(i, j, random.nextInt(100));
+                oddB.set(i, j, random.nextInt(100));
+            }
+        }
+        var reference = new Matrix(63, 63);
+        BlockedMatrixKernel.multiplyAdd(oddA, oddB, reference, 1, 0);
+        var summary = new MultiplicationSummary();
+        MultiplicationMetrics.addListener(summary);
+        assert strassenMatrixMultiply(oddA, oddB, workspace, 16).contentEquals(reference);
+        var oddC = new Matrix(63, 63);
+        strassenMatrixMultiply(oddA, oddB, oddC, workspace, 16, 1, 0, false);
+        MultiplicationMetrics.removeListener(summary);
+        assert oddC.contentEquals(reference);
+        assert summary.get("strassen").getCalls() == 2 && summary.get("strassen").getPaddedCalls() == 1;
+        assert summary.get("strassen").getPeeledEdges() > 0;
 
 
         for (int i = 0; i < expectedReferenceResult.length; i++) {
@@ -0,0 +1,161 @@
+import java.util.ArrayDeque;
+
+// Reusable scratch memory for StrassenMatrixMultiply.
+// One flat buffer holds every temporary of every recursion level: each level carves its two operand sums and its
+// current M product (each a quarter of an operand or of the result) just above the region used by its caller, so
+// the whole recursion fits in (mk + kn + mn) / 3 ints for an m x k by k x n product and nothing is allocated once
+// the buffer is big enough. The int, long and double variants of the recursion each get their own buffer, sized by the
+// same bound. A shape padded once up front (see StrassenMatrixMultiply.paddedShape) also keeps its zero padded operands
+// and product here. Keep one workspace per thread, it is not safe to share between concurrent calls.
+// The fork-join engines also take the scratch of their parallel levels from the workspace of the worker thread, see
+// acquireLevel.
+public class StrassenWorkspace {
+    private int[] buffer = new int[0];
+    private long[] longBuffer = new long[0];
+    private double[] doubleBuffer = new double[0];
+    private int[] productBuffer = new int[0]; // the product of a GEMM call before it is combined into its output
+    private int[] paddedBuffer = new int[0]; // the operands and product of a padded multiplication
+    private final ArrayDeque<int[]> levelBuffers = new ArrayDeque<>(); // released scratch of the fork-join levels
+    private long lastAllocatedBytes = 0;
+
+    // number of ints the recursion needs for square operands of the given length
+    public static long requiredLength(int length, int leafSize) {
+        return requiredLength(length, length, length, leafSize);
+    }
+
+    // number of ints the recursion needs for an m x k by k x n product, odd dimensions peeled (a padded product is
+    // prepared with its padded shape)
+    public static long requiredLength(int rows, int interlacedAxisSize, int columns, int leafSize) {
+        long required = 0;
+
+        while (Math.min(rows, Math.min(interlacedAxisSize, columns)) > leafSize) {
+            rows /= 2;
+            interlacedAxisSize /= 2;
+            columns /= 2;
+            // sum of the A operands, sum of the B operands and the M product
+            required += (long) rows * interlacedAxisSize + (long) interlacedAxisSize * columns + (long) rows * columns;
+        }
+        return required;
+    }
+
+    // grow the buffer if the next multiplication needs more room than any previous one
+    int[] prepare(int rows, int interlacedAxisSize, int columns, int leafSize) {
+        int required = checkedRequiredLength(rows, interlacedAxisSize, columns, leafSize);
+
+        if (required > buffer.length) {
+            buffer = new int[required];
+            lastAllocatedBytes = (long) required * Integer.BYTES;
+        } else {
+            lastAllocatedBytes = 0;
+        }
+        return buffer;
+    }
+
+    // room for a rows x columns product next to the recursion scratch, call it after prepare
+    int[] prepareProduct(int rows, int columns) {
+        long required = (long) rows * columns;
+
+        if (required > productBuffer.length) {
+            productBuffer = new int[Math.toIntExact(required)];
+            lastAllocatedBytes += required * Integer.BYTES;
+        }
+        return productBuffer;
+    }
+
+    // room for the zero padded operands and product of a multiplication StrassenMatrixMultiply.paddedShape pads,
+    // call it after prepare
+    int[] preparePadded(int length) {
+        if (length > paddedBuffer.length) {
+            paddedBuffer = new int[length];
+            lastAllocatedBytes += (long) length * Integer.BYTES;
+        }
+        return paddedBuffer;
+    }
+
+    long[] prepareLong(int rows, int interlacedAxisSize, int columns, int leafSize) {
+        int required = checkedRequiredLength(rows, interlacedAxisSize, columns, leafSize);
+
+        if (required > longBuffer.length) {
+            longBuffer = new long[required];
+            lastAllocatedBytes = (long) required * Long.BYTES;
+        } else {
+            lastAllocatedBytes = 0;
+        }
+        return longBuffer;
+    }
+
+    double[] prepareDouble(int rows, int interlacedAxisSize, int columns, int leafSize) {
+        int required = checkedRequiredLength(rows, interlacedAxisSize, columns, leafSize);
+
+        if (required > doubleBuffer.length) {
+            doubleBuffer = new double[required];
+            lastAllocatedBytes = (long) required * Double.BYTES;
+        } else {
+            lastAllocatedBytes = 0;
+        }
+        return doubleBuffer;
+    }
+
+    // Scratch of at least length ints for one fork-join level, it stays in use while the level waits for its forked
+    // products so it cannot come from the recursion buffer. A thread joining runs other tasks meanwhile, whose levels
+    // then nest above it: each one gets its own buffer, the smallest released one that is big enough. Hand it back
+    // with releaseLevel once the level is combined, in steady state no level allocates anymore.
+    public int[] acquireLevel(long length) {
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The scratch of a fork-join level of " + length
+                    + " ints does not fit in an array");
+        }
+
+        int[] bestFit = null;
+        int[] largest = null;
+        for (int[] buffer : levelBuffers) {
+            if (buffer.length >= length && (bestFit == null || buffer.length < bestFit.length)) {
+                bestFit = buffer;
+            }
+            if (largest == null || buffer.length > largest.length) {
+                largest = buffer;
+            }
+        }
+
+        lastAllocatedBytes = 0;
+        if (bestFit != null) {
+            levelBuffers.remove(bestFit);
+            return bestFit;
+        }
+        // none is big enough, the biggest one is replaced so that the number of buffers stays the nesting depth
+        if (largest != null) {
+            levelBuffers.remove(largest);
+        }
+        lastAllocatedBytes = length * Integer.BYTES;
+        return new int[(int) length];
+    }
+
+    public void releaseLevel(int[] buffer) {
+        levelBuffers.push(buffer);
+    }
+
+    private static int checkedRequiredLength(int rows, int interlacedAxisSize, int columns, int leafSize) {
+        long required = requiredLength(rows, interlacedAxisSize, columns, leafSize);
+
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The Strassen workspace for a " + rows + "x" + interlacedAxisSize
+                    + " by " + interlacedAxisSize + "x" + columns + " product does not fit in an array");
+        }
+        return (int) required;
+    }
+
+    // bytes of scratch memory allocated by the last multiplication or acquireLevel, 0 when the buffer was reused
+    // (the returned product itself is not counted)
+    public long lastAllocatedBytes() {
+        return lastAllocatedBytes;
+    }
+
+    public long capacityBytes() {
+        long levelLength = 0;
+        for (int[] levelBuffer : levelBuffers) {
+            levelLength += levelBuffer.length;
+        }
+        return (levelLength + buffer.length + productBuffer.length + paddedBuffer.length) * Integer.BYTES
+                + (long) longBuffer.length * Long.BYTES + (long) doubleBuffer.length * Double.BYTES;
+    }
+}
@@ -0,0 +1,195 @@
+// Winograd's variant of Strassen: the same 7 products per level, but with 15 additions instead of 18 since the operand
+// sums are chained (S2 = S1 - A11, S4 = A12 - S2, ...) and so are the output combinations (U3 = U2 + P7, ...).
+// The schedule only needs two temporaries per level, the A and B operand sums, the products are written straight into
+// the quadrants of the output. Four of the output combinations are an accumulation of a product into a quadrant, the
+// product is then computed with C += A * B: below the crossover that is the blocked kernel accumulating into its
+// output, so those sums cost no extra pass over memory. 11 full passes are left per level instead of 18, plus a copy.
+// It shares the workspace of StrassenMatrixMultiply, and needs at most as much of it.
+public class WinogradStrassenMatrixMultiply {
+    public static Matrix winogradMatrixMultiply(Matrix matrixA, Matrix matrixB) throws Exception {
+        return winogradMatrixMultiply(matrixA, matrixB, new StrassenWorkspace());
+    }
+
+    // reuse the scratch memory of the given workspace across calls, in steady state only the product is allocated
+    public static Matrix winogradMatrixMultiply(Matrix matrixA, Matrix matrixB,
+                                                StrassenWorkspace workspace) throws Exception {
+        return winogradMatrixMultiply(matrixA, matrixB, workspace, StrassenMatrixMultiply.getLeafSize());
+    }
+
+    public static Matrix winogradMatrixMultiply(Matrix matrixA, Matrix matrixB, StrassenWorkspace workspace,
+                                                int leafSize) throws Exception {
+        if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+            return new Matrix(0, 0);
+        }
+
+        var metrics = MultiplicationMetrics.start("winograd", matrixA.rows(), matrixA.columns(), matrixB.columns());
+        var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+        winogradMatrixMultiply(matrixA, matrixB, matrixC, workspace, leafSize);
+        if (metrics != null) {
+            StrassenMatrixMultiply.recordRecursion(metrics, 0, matrixA.rows(), matrixA.columns(), matrixB.columns(),
+                    leafSize);
+            metrics.addAllocatedBytes((long) matrixC.rows() * matrixC.columns() * Integer.BYTES
+                    + workspace.lastAllocatedBytes());
+            metrics.finish();
+        }
+        return matrixC;
+    }
+
+    // write the product into matrixC, which can be a view into a bigger buffer but must not alias the operands
+    public static void winogradMatrixMultiply(Matrix matrixA, Matrix matrixB, Matrix matrixC,
+                                              StrassenWorkspace workspace, int leafSize) throws Exception {
+        if (StrassenMatrixMultiply.validate(matrixA.rows(), matrixA.columns(), matrixB.rows(), matrixB.columns(),
+                matrixC.rows(), matrixC.columns(), leafSize)) {
+            return;
+        }
+
+        int rows = matrixA.rows();
+        int interlacedAxisSize = matrixA.columns();
+        int columns = matrixB.columns();
+
+        // padded once or peeled, the same way as StrassenMatrixMultiply
+        int[] paddedShape = StrassenMatrixMultiply.paddedShape(rows, interlacedAxisSize, columns, leafSize);
+        if (paddedShape == null) {
+            int[] scratch = workspace.prepare(rows, interlacedAxisSize, columns, leafSize);
+            recursiveWinogradMultiply(matrixA, matrixB, matrixC, 1, false, scratch, 0, leafSize);
+            return;
+        }
+
+        int[] scratch = workspace.prepare(paddedShape[0], paddedShape[1], paddedShape[2], leafSize);
+        var padded = StrassenMatrixMultiply.pad(matrixA, matrixB, paddedShape, workspace);
+        recursiveWinogradMultiply(padded[0], padded[1], padded[2], 1, false, scratch, 0, leafSize);
+        matrixC.copyFrom(padded[2].view(0, 0, rows, columns));
+    }
+
+    // https://en.wikipedia.org/wiki/Strassen_algorithm#Winograd_form
+    // matrixC = matrixA * matrixB, or matrixC += alpha * matrixA * matrixB (alpha being 1 or -1) when accumulate.
+    // Temporaries are carved in the workspace above workspaceTop: the two operand sums of this level, and the
+    // product of an accumulating call that is not a leaf (a quarter of the caller output).
+    private static void recursiveWinogradMultiply(Matrix matrixA, Matrix matrixB, Matrix matrixC, int alpha,
+                                                  boolean accumulate, int[] workspace, int workspaceTop,
+                                                  int leafSize) {
+        int rows = matrixA.rows();
+        int interlacedAxisSize = matrixA.columns();
+        int columns = matrixB.columns();
+
+        // below the crossover (see StrassenMatrixMultiply.isLeaf) the additions cost more than they save, finish
+        // classically, accumulating in place
+        if (StrassenMatrixMultiply.isLeaf(rows, interlacedAxisSize, columns, leafSize)) {
+            BlockedMatrixKernel.multiplyAdd(matrixA, matrixB, matrixC, alpha, accumulate ? 1 : 0);
+            return;
+        }
+
+        // above the leaves an accumulation is a product into scratch followed by a sum
+        if (accumulate) {
+            var product = new Matrix(workspace, workspaceTop, rows, columns, columns);
+            recursiveWinogradMultiply(matrixA, matrixB, product, 1, false, workspace, workspaceTop + rows * columns,
+                    leafSize);
+            if (alpha == 1) {
+                StrassenMatrixMultiply.sum(matrixC, product, matrixC);
+            } else {
+                StrassenMatrixMultiply.subtract(matrixC, product, matrixC);
+            }
+            return;
+        }
+
+        // if a dimension is odd, recurse on the even part and peel the remaining row and column off
+        if (rows % 2 != 0 || interlacedAxisSize % 2 != 0 || columns % 2 != 0) {
+            int evenRows = rows & ~1;
+            int evenInterlacedAxisSize = interlacedAxisSize & ~1;
+            int evenColumns = columns & ~1;
+
+            recursiveWinogradMultiply(matrixA.view(0, 0, evenRows, evenInterlacedAxisSize),
+                    matrixB.view(0, 0, evenInterlacedAxisSize, evenColumns),
+                    matrixC.view(0, 0, evenRows, evenColumns), 1, false, workspace, workspaceTop, leafSize);
+            StrassenMatrixMultiply.multiplyPeeledEdges(matrixA, matrixB, matrixC);
+            return;
+        }
+
+        int halfRows = rows / 2;
+        int halfInterlacedAxisSize = interlacedAxisSize / 2;
+        int halfColumns = columns / 2;
+
+        var A11 = matrixA.view(0, 0, halfRows, halfInterlacedAxisSize);
+        var A12 = matrixA.view(0, halfInterlacedAxisSize, halfRows, halfInterlacedAxisSize);
+        var A21 = matrixA.view(halfRows, 0, halfRows, halfInterlacedAxisSize);
+        var A22 = matrixA.view(halfRows, halfInterlacedAxisSize, halfRows, halfInterlacedAxisSize);
+
+        var B11 = matrixB.view(0, 0, halfInterlacedAxisSize, halfColumns);
+        var B12 = matrixB.view(0, halfColumns, halfInterlacedAxisSize, halfColumns);
+        var B21 = matrixB.view(halfInterlacedAxisSize, 0, halfInterlacedAxisSize, halfColumns);
+        var B22 = matrixB.view(halfInterlacedAxisSize, halfColumns, halfInterlacedAxisSize, halfColumns);
+
+        var C11 = matrixC.view(0, 0, halfRows, halfColumns);
+        var C12 = matrixC.view(0, halfColumns, halfRows, halfColumns);
+        var C21 = matrixC.view(halfRows, 0, halfRows, halfColumns);
+        var C22 = matrixC.view(halfRows, halfColumns, halfRows, halfColumns);
+
+        var operandA = new Matrix(workspace, workspaceTop, halfRows, halfInterlacedAxisSize, halfInterlacedAxisSize);
+        workspaceTop += halfRows * halfInterlacedAxisSize;
+        var operandB = new Matrix(workspace, workspaceTop, halfInterlacedAxisSize, halfColumns, halfColumns);
+        int nextWorkspaceTop = workspaceTop + halfInterlacedAxisSize * halfColumns;
+
+        // C21 = P7 = S3 T3 with S3 = A11 - A21 and T3 = B22 - B12
+        StrassenMatrixMultiply.subtract(A11, A21, operandA);
+        StrassenMatrixMultiply.subtract(B22, B12, operandB);
+        recursiveWinogradMultiply(operandA, operandB, C21, 1, false, workspace, nextWorkspaceTop, leafSize);
+
+        // C22 = P5 = S1 T1 with S1 = A21 + A22 and T1 = B12 - B11
+        StrassenMatrixMultiply.sum(A21, A22, operandA);
+        StrassenMatrixMultiply.subtract(B12, B11, operandB);
+        recursiveWinogradMultiply(operandA, operandB, C22, 1, false, workspace, nextWorkspaceTop, leafSize);
+
+        // C12 = P1 = A11 B11, then C11 = U1 = P1 + P2 with P2 = A12 B21
+        recursiveWinogradMultiply(A11, B11, C12, 1, false, workspace, nextWorkspaceTop, leafSize);
+        C11.copyFrom(C12);
+        recursiveWinogradMultiply(A12, B21, C11, 1, true, workspace, nextWorkspaceTop, leafSize);
+
+        // C12 = U2 = P1 + P6 with P6 = S2 T2, S2 = S1 - A11 and T2 = B22 - T1 (formed over S1 and T1)
+        StrassenMatrixMultiply.subtract(operandA, A11, operandA);
+        StrassenMatrixMultiply.subtract(B22, operandB, operandB);
+        recursiveWinogradMultiply(operandA, operandB, C12, 1, true, workspace, nextWorkspaceTop, leafSize);
+
+        // C21 = U3 = U2 + P7, C12 = U4 = U2 + P5, C22 = U7 = U3 + P5
+        StrassenMatrixMultiply.sum(C21, C12, C21);
+        StrassenMatrixMultiply.sum(C12, C22, C12);
+        StrassenMatrixMultiply.sum(C22, C21, C22);
+
+        // C12 = U5 = U4 + P3 with P3 = S4 B22 and S4 = A12 - S2
+        StrassenMatrixMultiply.subtract(A12, operandA, operandA);
+        recursiveWinogradMultiply(operandA, B22, C12, 1, true, workspace, nextWorkspaceTop, leafSize);
+
+        // C21 = U6 = U3 - P4 with P4 = A22 T4 and T4 = T2 - B21
+        StrassenMatrixMultiply.subtract(operandB, B21, operandB);
+        recursiveWinogradMultiply(A22, operandB, C21, -1, true, workspace, nextWorkspaceTop, leafSize);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[][] matrixA = { {1, 2, 3, 4, 5, 6},
+                            {7, 8, 9, 10, 11, 12},
+                            {13, 14, 15, 16, 17, 18},
+                            {13, 14, 15, 16, 17, 18},
+                            {13, 14, 15, 16, 17, 18},
+                            {13, 14, 15, 16, 17, 18}};
+
+        int[][] matrixB = { {13, 14, 15, 16, 17, 18},
+                            {13, 14, 15, 16, 17, 18},
+                            {13, 14, 15, 16, 17, 18},
+                            {1, 2, 3, 4, 5, 6},
+                            {7, 8, 9, 10, 11, 12},
+                            {13, 14, 15, 16, 17, 18}};
+
+        int[][] expectedReferenceResult = { {195, 216, 237, 258, 279, 300},
+                                            {555, 612, 669, 726, 783, 840},
+                                            {915, 1008, 1101, 1194, 1287, 1380},
+                                            {915, 1008, 1101, 1194, 1287, 1380},
+                                            {915, 1008, 1101, 1194, 1287, 1380},
+                                            {915, 1008, 1101, 1194, 1287, 1380}};
+
+        var workspace = new StrassenWorkspace();
+        var result = winogradMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB), workspace, 64);
+        assert result.contentEquals(Matrix.of(expectedReferenceResult));
+        // leaf size 1 recurses down to 1x1 through the odd 3x3 quadrants, with accumulations above the leaves
+        result = winogradMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB), workspace, 1);
+        assert result.contentEquals(Matrix.of(expectedReferenceResult));
+    }
+}
@@ -10,10 +10,13 @@ repositories {
 }
 
 dependencies {
+    implementation("org.example", "matrix", "1.0-SNAPSHOT")
     testCompile("junit", "junit", "4.12")
 }
 
+// same toolchain as the matrix build it depends on
 java {
-    sourceCompatibility = JavaVersion.VERSION_11
-    targetCompatibility = JavaVersion.VERSION_11
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }
 }
\ No newline at end of file
@@ -1,2 +1,4 @@
 rootProject.name = "threadedNaiveMatrixMultiplication"
 
+// shared flat matrix type
+includeBuild("../matrix")
@@ -0,0 +1,356 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// Long-lived tiled parallel multiplier, create it once and share it: it is safe for any number of concurrent callers
+// since every call only writes its own result matrix.
+// It runs on a ForkJoinPool it owns (shut down by close), on a caller supplied ForkJoinPool, or on any Executor.
+// Fork-join pools get the adaptive MultiplyTileTask splitting, a plain Executor gets a fixed grid of tiles instead.
+// Callers block on completion, they never spin.
+public class ParallelMatrixMultiplier implements AutoCloseable {
+    private final ForkJoinPool pool;
+    private final Executor executor;
+    private final int parallelism;
+    private final boolean ownsPool;
+
+    // the instance behind ThreadedNaiveMatrixMultiplication.parallelNaiveMatrixMultiply, its workers are daemons
+    private static class SharedHolder {
+        static final ParallelMatrixMultiplier shared =
+                new ParallelMatrixMultiplier(new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    public static ParallelMatrixMultiplier shared() {
+        return SharedHolder.shared;
+    }
+
+    public ParallelMatrixMultiplier() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelMatrixMultiplier(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.executor = pool;
+        this.parallelism = parallelism;
+        this.ownsPool = true;
+    }
+
+    // the pool stays under the caller's control, close does not shut it down
+    public ParallelMatrixMultiplier(ForkJoinPool pool) {
+        this.pool = pool;
+        this.executor = pool;
+        this.parallelism = pool.getParallelism();
+        this.ownsPool = false;
+    }
+
+    // parallelism is the number of threads the executor can devote to one call, it decides how many tiles are cut.
+    // The calling thread computes one of the tiles itself, but it must not be one of the executor threads when the
+    // executor is bounded or nested calls could wait on each other.
+    public ParallelMatrixMultiplier(Executor executor, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1");
+        }
+        this.pool = executor instanceof ForkJoinPool ? (ForkJoinPool) executor : null;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.ownsPool = false;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int[][] multiply(int[][] matrixA, int[][] matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new int[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        }
+
+        return multiply(Matrix.of(matrixA), Matrix.of(matrixB)).toArray();
+    }
+
+    public Matrix multiply(Matrix matrixA, Matrix matrixB) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows())) {
+            return new Matrix(0, 0);
+        }
+
+        var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+        int interlacedAxisSize = matrixA.columns();
+        run(matrixC.rows(), matrixC.columns(), (startRow, rows, startColumn, columns) -> BlockedMatrixKernel.multiply(
+                matrixA.view(startRow, 0, rows, interlacedAxisSize),
+                matrixB.view(0, startColumn, interlacedAxisSize, columns),
+                matrixC.view(startRow, startColumn, rows, columns)));
+        return matrixC;
+    }
+
+    // GEMM into a caller owned matrix, matrixC = alpha * matrixA * matrixB + beta * matrixC. Every tile scales its
+    // own region of matrixC then adds its products, no matrix memory is allocated (only the small task objects).
+    // matrixC must not alias the operands, a beta of 0 ignores its previous content.
+    public void multiply(Matrix matrixA, Matrix matrixB, Matrix matrixC, int alpha, int beta) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows())) {
+            return;
+        } else if (matrixC.rows() != matrixA.rows() || matrixC.columns() != matrixB.columns()) {
+            throw new Exception("The output matrix does not have the shape of the product");
+        }
+
+        int interlacedAxisSize = matrixA.columns();
+        run(matrixC.rows(), matrixC.columns(), (startRow, rows, startColumn, columns) ->
+                BlockedMatrixKernel.multiplyAdd(matrixA.view(startRow, 0, rows, interlacedAxisSize),
+                        matrixB.view(0, startColumn, interlacedAxisSize, columns),
+                        matrixC.view(startRow, startColumn, rows, columns), alpha, beta));
+    }
+
+    // int operands accumulated in long, every product is exact and the sum only wraps past 2^63
+    public LongMatrix multiplyWidened(Matrix matrixA, Matrix matrixB) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows())) {
+            return new LongMatrix(0, 0);
+        }
+
+        var matrixC = new LongMatrix(matrixA.rows(), matrixB.columns());
+        int interlacedAxisSize = matrixA.columns();
+        run(matrixC.rows(), matrixC.columns(), (startRow, rows, startColumn, columns) -> WideMatrixKernel.multiply(
+                matrixA.view(startRow, 0, rows, interlacedAxisSize),
+                matrixB.view(0, startColumn, interlacedAxisSize, columns),
+                matrixC.view(startRow, startColumn, rows, columns)));
+        return matrixC;
+    }
+
+    public LongMatrix multiply(LongMatrix matrixA, LongMatrix matrixB) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows())) {
+            return new LongMatrix(0, 0);
+        }
+
+        var matrixC = new LongMatrix(matrixA.rows(), matrixB.columns());
+        int interlacedAxisSize = matrixA.columns();
+        run(matrixC.rows(), matrixC.columns(), (startRow, rows, startColumn, columns) -> WideMatrixKernel.multiply(
+                matrixA.view(startRow, 0, rows, interlacedAxisSize),
+                matrixB.view(0, startColumn, interlacedAxisSize, columns),
+                matrixC.view(startRow, startColumn, rows, columns)));
+        return matrixC;
+    }
+
+    public DoubleMatrix multiply(DoubleMatrix matrixA, DoubleMatrix matrixB) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows())) {
+            return new DoubleMatrix(0, 0);
+        }
+
+        var matrixC = new DoubleMatrix(matrixA.rows(), matrixB.columns());
+        int interlacedAxisSize = matrixA.columns();
+        run(matrixC.rows(), matrixC.columns(), (startRow, rows, startColumn, columns) -> WideMatrixKernel.multiply(
+                matrixA.view(startRow, 0, rows, interlacedAxisSize),
+                matrixB.view(0, startColumn, interlacedAxisSize, columns),
+                matrixC.view(startRow, startColumn, rows, columns)));
+        return matrixC;
+    }
+
+    public FloatMatrix multiply(FloatMatrix matrixA, FloatMatrix matrixB) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows())) {
+            return new FloatMatrix(0, 0);
+        }
+
+        var matrixC = new FloatMatrix(matrixA.rows(), matrixB.columns());
+        int interlacedAxisSize = matrixA.columns();
+        run(matrixC.rows(), matrixC.columns(), (startRow, rows, startColumn, columns) -> WideMatrixKernel.multiply(
+                matrixA.view(startRow, 0, rows, interlacedAxisSize),
+                matrixB.view(0, startColumn, interlacedAxisSize, columns),
+                matrixC.view(startRow, startColumn, rows, columns)));
+        return matrixC;
+    }
+
+    // product modulo p of operands already reduced to [0, modulus), see ModularMatrixKernel
+    public Matrix multiplyModular(Matrix matrixA, Matrix matrixB, int modulus) throws Exception {
+        if (validate(matrixA.rows(), matrixA.columns(), matrixB.rows())) {
+            return new Matrix(0, 0);
+        }
+        ModularMatrixKernel.reductionInterval(modulus); // fail before any tile is scheduled on an invalid modulus
+
+        var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+        int interlacedAxisSize = matrixA.columns();
+        run(matrixC.rows(), matrixC.columns(), (startRow, rows, startColumn, columns) -> ModularMatrixKernel.multiply(
+                matrixA.view(startRow, 0, rows, interlacedAxisSize),
+                matrixB.view(0, startColumn, interlacedAxisSize, columns),
+                matrixC.view(startRow, startColumn, rows, columns), modulus));
+        return matrixC;
+    }
+
+    // Many independent products in one call, matricesC[i] = matricesA[i] * matricesB[i] for every i. The whole batch is
+    // validated before anything runs, then runs of consecutive products are spread over the pool: a product of 8x8 to
+    // 64x64 operands is computed whole by one thread, tiling it would cost more than it saves. The results are written
+    // into the caller's matrices (which can be views), they must not alias any operand.
+    public void multiplyBatch(Matrix[] matricesA, Matrix[] matricesB, Matrix[] matricesC) throws Exception {
+        if (matricesA.length != matricesB.length || matricesA.length != matricesC.length) {
+            throw new Exception("The batches do not hold the same number of matrices");
+        }
+
+        long multiplyAdds = 0;
+        for (int i = 0; i < matricesA.length; i++) {
+            validate(matricesA[i].rows(), matricesA[i].columns(), matricesB[i].rows());
+            if (matricesC[i].rows() != matricesA[i].rows() || matricesC[i].columns() != matricesB[i].columns()) {
+                throw new Exception("The output matrix does not have the shape of the product");
+            }
+            multiplyAdds += (long) matricesA[i].rows() * matricesA[i].columns() * matricesB[i].columns();
+        }
+
+        runBatch(matricesA.length, multiplyAdds,
+                index -> BlockedMatrixKernel.multiply(matricesA[index], matricesB[index], matricesC[index]));
+    }
+
+    // Same as above for count products of one shape packed in flat buffers: the i-th m x k operand A starts at
+    // bufferA[offsetA + i * batchStrideA] and is stored row after row, same for B and C. A batch stride of 0 reuses
+    // one operand for the whole batch (e.g. many A times the same B), the outputs must not overlap.
+    public void multiplyBatch(int count, int rows, int interlacedAxisSize, int columns,
+                              int[] bufferA, int offsetA, int batchStrideA,
+                              int[] bufferB, int offsetB, int batchStrideB,
+                              int[] bufferC, int offsetC, int batchStrideC) throws Exception {
+        if (count < 0 || rows < 1 || interlacedAxisSize < 1 || columns < 1) {
+            throw new Exception("The matrices have an invalid shape");
+        }
+        checkBatchLayout(count, rows * interlacedAxisSize, bufferA.length, offsetA, batchStrideA, true);
+        checkBatchLayout(count, interlacedAxisSize * columns, bufferB.length, offsetB, batchStrideB, true);
+        checkBatchLayout(count, rows * columns, bufferC.length, offsetC, batchStrideC, false);
+
+        runBatch(count, (long) count * rows * interlacedAxisSize * columns, index -> BlockedMatrixKernel.multiply(
+                new Matrix(bufferA, offsetA + index * batchStrideA, rows, interlacedAxisSize, interlacedAxisSize),
+                new Matrix(bufferB, offsetB + index * batchStrideB, interlacedAxisSize, columns, columns),
+                new Matrix(bufferC, offsetC + index * batchStrideC, rows, columns, columns)));
+    }
+
+    // count matrices of size cells each, batchStride apart from offset, must fit in the buffer without overlapping
+    // (unless they are the same matrix repeated with a batch stride of 0, which only an operand may be)
+    private static void checkBatchLayout(int count, int size, int bufferLength, int offset, int batchStride,
+                                         boolean canRepeat) {
+        if (offset < 0 || batchStride < 0 || (batchStride < size && !(canRepeat && batchStride == 0))) {
+            throw new IllegalArgumentException("Invalid batch layout (offset " + offset + ", batch stride "
+                    + batchStride + ") for matrices of " + size + " cells");
+        }
+        if (count > 0 && offset + (long) (count - 1) * batchStride + size > bufferLength) {
+            throw new IllegalArgumentException("The batch does not fit in its buffer");
+        }
+    }
+
+    // true when both matrices are empty, the product is then empty too
+    private static boolean validate(int rowsA, int columnsA, int rowsB) throws Exception {
+        if (rowsA == 0 && rowsB == 0) {
+            return true;
+        } else if (rowsA == 0 ^ rowsB == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        } else if (columnsA != rowsB) {
+            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
+            throw new Exception("The matrices have an invalid shape");
+        }
+        return false;
+    }
+
+    // compute every tile of a rows x columns product with the given kernel
+    private void run(int rows, int columns, ThreadedNaiveMatrixMultiplication.TileKernel kernel) {
+        long maxTileArea = ThreadedNaiveMatrixMultiplication.maxTileArea(rows, columns, parallelism);
+
+        if (pool != null) {
+            pool.invoke(new ThreadedNaiveMatrixMultiplication.MultiplyTileTask(kernel,
+                    0, rows, 0, columns, maxTileArea));
+        } else {
+            multiplyOnExecutor(rows, columns, kernel, maxTileArea);
+        }
+    }
+
+    // a plain executor cannot split tasks on the fly, cut a grid of tiles of at most maxTileArea cells up front
+    private void multiplyOnExecutor(int rows, int columns, ThreadedNaiveMatrixMultiplication.TileKernel kernel,
+                                    long maxTileArea) {
+        int edge = (int) Math.max(ThreadedNaiveMatrixMultiplication.MultiplyTileTask.MIN_TILE_EDGE,
+                Math.sqrt((double) maxTileArea));
+        int tileRows = Math.min(edge, rows);
+        int tileColumns = (int) Math.max(1, Math.min(columns, maxTileArea / tileRows));
+
+        int rowTiles = (rows + tileRows - 1) / tileRows;
+        int columnTiles = (columns + tileColumns - 1) / tileColumns;
+        var tiles = new CompletableFuture<?>[rowTiles * columnTiles - 1];
+
+        int tile = 0;
+        for (int startRow = 0; startRow < rows; startRow += tileRows) {
+            for (int startColumn = 0; startColumn < columns; startColumn += tileColumns) {
+                var task = new ThreadedNaiveMatrixMultiplication.MultiplyTileTask(kernel,
+                        startRow, Math.min(tileRows, rows - startRow),
+                        startColumn, Math.min(tileColumns, columns - startColumn),
+                        Long.MAX_VALUE);
+
+                if (tile == tiles.length) {
+                    // the last tile is computed by the calling thread instead of idling
+                    task.compute();
+                } else {
+                    tiles[tile++] = CompletableFuture.runAsync(task::compute, executor);
+                }
+            }
+        }
+        CompletableFuture.allOf(tiles).join();
+    }
+
+    // compute the products 0..count-1 of a batch, in runs big enough to amortize a task and numerous enough to keep
+    // every worker busy
+    private void runBatch(int count, long multiplyAdds, IntConsumer product) {
+        if (count == 0) {
+            return;
+        }
+        long runsWanted = 4L * parallelism;
+        long grain = Math.max((count + runsWanted - 1) / runsWanted,
+                MultiplyBatchTask.MIN_RUN_MULTIPLY_ADDS * count / Math.max(1, multiplyAdds));
+        int productsPerRun = (int) Math.max(1, Math.min(count, grain));
+
+        if (pool != null) {
+            pool.invoke(new MultiplyBatchTask(product, 0, count, productsPerRun));
+            return;
+        }
+
+        // a plain executor gets the runs up front, the calling thread computes the last one
+        var runs = new CompletableFuture<?>[(count - 1) / productsPerRun];
+        for (int run = 0; run < runs.length; run++) {
+            var task = new MultiplyBatchTask(product, run * productsPerRun, productsPerRun, productsPerRun);
+            runs[run] = CompletableFuture.runAsync(task::compute, executor);
+        }
+        int start = runs.length * productsPerRun;
+        new MultiplyBatchTask(product, start, count - start, productsPerRun).compute();
+        CompletableFuture.allOf(runs).join();
+    }
+
+    // a run of consecutive products of a batch, halved until it holds at most productsPerRun products
+    private static class MultiplyBatchTask extends RecursiveAction {
+        // about a 64x64x64 product, below that forking a task costs a noticeable part of the work it carries
+        static final long MIN_RUN_MULTIPLY_ADDS = 64 * 64 * 64;
+
+        final IntConsumer product;
+        final int start;
+        final int count;
+        final int productsPerRun;
+
+        MultiplyBatchTask(IntConsumer product, int start, int count, int productsPerRun) {
+            this.product = product;
+            this.start = start;
+            this.count = count;
+            this.productsPerRun = productsPerRun;
+        }
+
+        @Override
+        protected void compute() {
+            if (count <= productsPerRun) {
+                for (int index = start; index < start + count; index++) {
+                    product.accept(index);
+                }
+                return;
+            }
+
+            int half = count / 2;
+            invokeAll(new MultiplyBatchTask(product, start, half, productsPerRun),
+                    new MultiplyBatchTask(product, start + half, count - half, productsPerRun));
+        }
+    }
+
+    // shut down the pool if this multiplier created it, pending calls still complete
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Consumer;
+
+// C = A * B for a fixed B and an A that arrives as an unbounded sequence of row blocks: every r x k block of A gives
+// the r x n block of C at the same rows, as soon as it arrives. B is prepared once up front (see
+// BlockedMatrixKernel.pack), a block then only packs its own rows of A. Blocks are multiplied on the calling
+// thread, or spread by rows over a fork-join pool (the parallel path) so the latency of one block shrinks with the
+// cores instead of blocks piling up.
+// Blocks come from an Iterator (pull, e.g. over a BlockingQueue fed by another thread) or from a Flow.Publisher
+// through processor(): it only requests the next block of A once the previous block of C was accepted downstream,
+// with at most maxBufferedBlocks blocks of C waiting per subscriber, so memory does not grow with the stream.
+// Each block of C is a new matrix handed over to the consumer, nothing is kept once it is delivered.
+public class StreamingMatrixMultiplication {
+    // a 64x64x64 product, below that forking a task costs a noticeable part of the work it carries
+    static final long MIN_TASK_MULTIPLY_ADDS = 64 * 64 * 64;
+
+    private final BlockedMatrixKernel.PackedMatrix packedB;
+    private final ForkJoinPool pool;
+
+    // sequential path, every block is multiplied by the thread that hands it over
+    public StreamingMatrixMultiplication(Matrix matrixB) {
+        this(matrixB, null);
+    }
+
+    // parallel path on the given pool, null for the sequential one. matrixB is packed into a private copy, it can
+    // change afterwards.
+    public StreamingMatrixMultiplication(Matrix matrixB, ForkJoinPool pool) {
+        this.packedB = BlockedMatrixKernel.pack(matrixB);
+        this.pool = pool;
+    }
+
+    public int getInterlacedAxisSize() {
+        return packedB.rows();
+    }
+
+    public int getColumns() {
+        return packedB.columns();
+    }
+
+    public Matrix multiply(Matrix blockA) throws Exception {
+        var blockC = new Matrix(blockA.rows(), packedB.columns());
+        multiply(blockA, blockC);
+        return blockC;
+    }
+
+    // blockC = blockA * B, blockC can be a view (e.g. the matching rows of a whole C) but must not alias blockA
+    public void multiply(Matrix blockA, Matrix blockC) throws Exception {
+        if (blockA.columns() != packedB.rows()) {
+            // every block of A must have as many columns as B has rows
+            throw new Exception("The matrices have an invalid shape");
+        } else if (blockC.rows() != blockA.rows() || blockC.columns() != packedB.columns()) {
+            throw new Exception("The output matrix does not have the shape of the product");
+        }
+
+        long multiplyAdds = (long) blockA.rows() * blockA.columns() * packedB.columns();
+        if (pool == null || multiplyAdds < 2 * MIN_TASK_MULTIPLY_ADDS) {
+            BlockedMatrixKernel.multiplyAdd(blockA, packedB, blockC, 1, 0);
+            return;
+        }
+        pool.invoke(new RowRangeTask(blockA, blockC, 0, blockA.rows()));
+    }
+
+    // pull mode: multiply every block the iterator yields and hand each product to the consumer in order, returns
+    // when the iterator is exhausted
+    public void multiply(Iterator<Matrix> blocksA, Consumer<Matrix> blocksC) throws Exception {
+        while (blocksA.hasNext()) {
+            blocksC.accept(multiply(blocksA.next()));
+        }
+    }
+
+    // Push mode: subscribe the processor to the publisher of the blocks of A and subscribe the consumers of C to it.
+    // Blocks are multiplied on the thread delivering them, the products are delivered on the executor. A slow
+    // subscriber of C holds up the multiplication of the next block once maxBufferedBlocks products wait for it,
+    // which in turn stops the requests to the publisher of A. An invalid block cancels the upstream subscription and
+    // fails the subscribers of C.
+    public Flow.Processor<Matrix, Matrix> processor(Executor executor, int maxBufferedBlocks) {
+        return new BlockProcessor(executor, maxBufferedBlocks);
+    }
+
+    public Flow.Processor<Matrix, Matrix> processor(int maxBufferedBlocks) {
+        return processor(pool != null ? pool : ForkJoinPool.commonPool(), maxBufferedBlocks);
+    }
+
+    private class BlockProcessor extends SubmissionPublisher<Matrix> implements Flow.Processor<Matrix, Matrix> {
+        private Flow.Subscription subscription;
+
+        BlockProcessor(Executor executor, int maxBufferedBlocks) {
+            super(executor, maxBufferedBlocks);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription newSubscription) {
+            subscription = newSubscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(Matrix blockA) {
+            Matrix blockC;
+            try {
+                blockC = multiply(blockA);
+            } catch (Exception exception) {
+                subscription.cancel();
+                closeExceptionally(exception);
+                return;
+            }
+
+            // blocks while a subscriber already has maxBufferedBlocks products waiting
+            submit(blockC);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            closeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            close();
+        }
+    }
+
+    // rows of one block, halved while both halves carry enough work, the halves stay aligned on micro-kernel rows
+    private class RowRangeTask extends RecursiveAction {
+        final Matrix blockA;
+        final Matrix blockC;
+        final int start;
+        final int rows;
+
+        RowRangeTask(Matrix blockA, Matrix blockC, int start, int rows) {
+            this.blockA = blockA;
+            this.blockC = blockC;
+            this.start = start;
+            this.rows = rows;
+        }
+
+        @Override
+        protected void compute() {
+            int half = rows / 2 / BlockedMatrixKernel.MICRO_ROWS * BlockedMatrixKernel.MICRO_ROWS;
+            if (half == 0 || (long) half * blockA.columns() * packedB.columns() < MIN_TASK_MULTIPLY_ADDS) {
+                BlockedMatrixKernel.multiplyAdd(blockA.view(start, 0, rows, blockA.columns()), packedB,
+                        blockC.view(start, 0, rows, blockC.columns()), 1, 0);
+                return;
+            }
+
+            invokeAll(new RowRangeTask(blockA, blockC, start, half),
+                    new RowRangeTask(blockA, blockC, start + half, rows - half));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[][] matrixA = {{1, 2, 3},
+                           {4, 5, 6},
+                           {7, 8, 9},
+                           {10, 11, 12}};
+        int[][] matrixB = {{10, 11},
+                           {20, 21},
+                           {30, 31}};
+        int[][] expectedReferenceResult = {{140, 146},
+                                           {320, 335},
+                                           {500, 524},
+                                           {680, 713}};
+
+        // A arrives as two blocks of two rows, each block of C matches the rows of the expected product
+        var streaming = new StreamingMatrixMultiplication(Matrix.of(matrixB));
+        var expected = Matrix.of(expectedReferenceResult);
+        var blocks = List.of(Matrix.of(matrixA).view(0, 0, 2, 3), Matrix.of(matrixA).view(2, 0, 2, 3));
+        var product = new Matrix(4, 2);
+        int[] row = {0};
+        streaming.multiply(blocks.iterator(), blockC -> {
+            product.view(row[0], 0, blockC.rows(), 2).copyFrom(blockC);
+            row[0] += blockC.rows();
+        });
+        assert product.contentEquals(expected);
+
+        // the same blocks pushed through the processor with room for one buffered product, on the parallel path
+        var parallel = new StreamingMatrixMultiplication(Matrix.of(matrixB), ForkJoinPool.commonPool());
+        var pushed = new Matrix(4, 2);
+        var done = new CompletableFuture<Void>();
+        var processor = parallel.processor(1);
+        processor.subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+            private int row = 0;
+
+            @Override
+            public void onSubscribe(Flow.Subscription newSubscription) {
+                subscription = newSubscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(Matrix blockC) {
+                pushed.view(row, 0, blockC.rows(), 2).copyFrom(blockC);
+                row += blockC.rows();
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        // closing the publisher of A completes the processor, then its subscribers
+        try (var publisher = new SubmissionPublisher<Matrix>()) {
+            publisher.subscribe(processor);
+            blocks.forEach(publisher::submit);
+        }
+        done.get();
+        assert pushed.contentEquals(expected);
+    }
+}
@@ -1,6 +1,4 @@
-import java.security.spec.RSAOtherPrimeInfo;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RecursiveAction;
 
 public class ThreadedNaiveMatrixMultiplication {
     // this function is threadsafe as the indexes are sent by copy and while the matrices references are shared between tasks,
@@ -14,34 +12,152 @@ public class ThreadedNaiveMatrixMultiplication {
         }
     }
 
+    // computes the rows x columns region of the product starting at (startRow, startColumn), one implementation per
+    // element type so the tiling below never sees (or boxes) the values
+    interface TileKernel {
+        void multiplyTile(int startRow, int rows, int startColumn, int columns);
+    }
+
+    // Computes one rectangular region of the product, splitting it in halves along its longest side until the region
+    // is small enough, so non-square shapes still produce balanced work for the work-stealing pool.
+    // Each leaf is a whole tile computed by the blocked kernel: the regions are disjoint so no synchronization is needed.
+    static class MultiplyTileTask extends RecursiveAction {
+        // a leaf tile is never cut below this edge, it keeps the kernel micro-tiles full and the B panel reusable
+        static final int MIN_TILE_EDGE = 64;
+
+        TileKernel kernel;
+        int startRow;
+        int rows;
+        int startColumn;
+        int columns;
+        long maxTileArea;
+
+        MultiplyTileTask(TileKernel kernel, int startRow, int rows, int startColumn, int columns, long maxTileArea) {
+            this.kernel = kernel;
+            this.startRow = startRow;
+            this.rows = rows;
+            this.startColumn = startColumn;
+            this.columns = columns;
+            this.maxTileArea = maxTileArea;
+        }
+
+        @Override
+        protected void compute() {
+            boolean canSplitRows = rows >= 2 * MIN_TILE_EDGE;
+            boolean canSplitColumns = columns >= 2 * MIN_TILE_EDGE;
+
+            if ((long) rows * columns <= maxTileArea || !(canSplitRows || canSplitColumns)) {
+                kernel.multiplyTile(startRow, rows, startColumn, columns);
+                return;
+            }
+
+            if (canSplitRows && (rows >= columns || !canSplitColumns)) {
+                int half = rows / 2;
+                invokeAll(
+                        new MultiplyTileTask(kernel, startRow, half, startColumn, columns, maxTileArea),
+                        new MultiplyTileTask(kernel, startRow + half, rows - half, startColumn, columns, maxTileArea));
+            } else {
+                int half = columns / 2;
+                invokeAll(
+                        new MultiplyTileTask(kernel, startRow, rows, startColumn, half, maxTileArea),
+                        new MultiplyTileTask(kernel, startRow, rows, startColumn + half, columns - half, maxTileArea));
+            }
+        }
+    }
+
+    // aim for a few tiles per worker so stealing can even out the load, but never for tiles that are too small to
+    // amortize the panel packing
+    static long maxTileArea(int rows, int columns, int parallelism) {
+        long tilesWanted = 4L * parallelism;
+        return Math.max((long) MultiplyTileTask.MIN_TILE_EDGE * MultiplyTileTask.MIN_TILE_EDGE,
+                ((long) rows * columns + tilesWanted - 1) / tilesWanted);
+    }
+
     public static int[][] parallelNaiveMatrixMultiply(int[][] matrixA, int[][] matrixB) throws Exception {
         // validate the matrices
         if (matrixA.length == 0 && matrixB.length == 0) {
             return new int[0][0];
         } else if (matrixA.length == 0 ^ matrixB.length == 0) {
             throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
-        } else if (matrixA[0].length != matrixB.length) {
-            // the number of columns in the first matrix must be equal to the number of rows in the second matrix.
-            throw new Exception("The matrices have an invalid shape");
         }
 
-        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        var matrixC = new int[matrixA.length][matrixB[0].length];
+        return parallelNaiveMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB)).toArray();
+    }
 
-        for (int i = 0; i < matrixC.length; i++) {
-            for (int j = 0; j < matrixC[i].length; j++) {
-                int finalI = i;
-                int finalJ = j;
+    // runs on the shared multiplier, see ParallelMatrixMultiplier to use a dedicated pool or executor
+    public static Matrix parallelNaiveMatrixMultiply(Matrix matrixA, Matrix matrixB) throws Exception {
+        return ParallelMatrixMultiplier.shared().multiply(matrixA, matrixB);
+    }
 
-                executor.execute(() ->
-                        setOneMatrixCell(matrixC, matrixA, matrixB, finalI, finalJ)
-                );
-            }
+    // matrixC = alpha * matrixA * matrixB + beta * matrixC on the shared multiplier, see ParallelMatrixMultiplier
+    public static void parallelNaiveMatrixMultiply(Matrix matrixA, Matrix matrixB, Matrix matrixC,
+                                                   int alpha, int beta) throws Exception {
+        ParallelMatrixMultiplier.shared().multiply(matrixA, matrixB, matrixC, alpha, beta);
+    }
+
+    // matricesC[i] = matricesA[i] * matricesB[i] for a whole batch of small products, on the shared multiplier
+    public static void parallelBatchMatrixMultiply(Matrix[] matricesA, Matrix[] matricesB, Matrix[] matricesC)
+            throws Exception {
+        ParallelMatrixMultiplier.shared().multiplyBatch(matricesA, matricesB, matricesC);
+    }
+
+    // int operands accumulated in long, see ParallelMatrixMultiplier for the flat and executor variants
+    public static long[][] parallelWidenedMatrixMultiply(int[][] matrixA, int[][] matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new long[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        }
+
+        return ParallelMatrixMultiplier.shared().multiplyWidened(Matrix.of(matrixA), Matrix.of(matrixB)).toArray();
+    }
+
+    public static long[][] parallelNaiveMatrixMultiply(long[][] matrixA, long[][] matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new long[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        }
+
+        return ParallelMatrixMultiplier.shared().multiply(LongMatrix.of(matrixA), LongMatrix.of(matrixB)).toArray();
+    }
+
+    public static double[][] parallelNaiveMatrixMultiply(double[][] matrixA, double[][] matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new double[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
         }
-        executor.shutdown();
-        while (!executor.isTerminated()) {}
 
-        return matrixC;
+        return ParallelMatrixMultiplier.shared().multiply(DoubleMatrix.of(matrixA), DoubleMatrix.of(matrixB)).toArray();
+    }
+
+    public static float[][] parallelNaiveMatrixMultiply(float[][] matrixA, float[][] matrixB) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new float[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        }
+
+        return ParallelMatrixMultiplier.shared().multiply(FloatMatrix.of(matrixA), FloatMatrix.of(matrixB)).toArray();
+    }
+
+    // product modulo p of operands already reduced to [0, modulus)
+    public static int[][] parallelModularMatrixMultiply(int[][] matrixA, int[][] matrixB,
+                                                        int modulus) throws Exception {
+        // validate the matrices
+        if (matrixA.length == 0 && matrixB.length == 0) {
+            return new int[0][0];
+        } else if (matrixA.length == 0 ^ matrixB.length == 0) {
+            throw new Exception("Only one of the two matrices are empty, which is an invalid operation");
+        }
+
+        return ParallelMatrixMultiplier.shared()
+                .multiplyModular(Matrix.of(matrixA), Matrix.of(matrixB), modulus).toArray();
     }
 
     public static void main(String[] args) throws Exception {
@@ -54,6 +170,22 @@ public class ThreadedNaiveMatrixMultiplication {
                                            {320, 335}};
 
         var result = parallelNaiveMatrixMultiply(matrixA, matrixB);
+        var flatResult = parallelNaiveMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB));
+        assert flatResult.contentEquals(Matrix.of(expectedReferenceResult));
+
+        int[][] largeMatrix = {{1 << 16}};
+        assert parallelWidenedMatrixMultiply(largeMatrix, largeMatrix)[0][0] == 1L << 32;
+        assert parallelNaiveMatrixMultiply(new double[][]{{0.5, 2}}, new double[][]{{4}, {0.25}})[0][0] == 2.5;
+        assert parallelModularMatrixMultiply(new int[][]{{6}}, new int[][]{{5}}, 7)[0][0] == 2;
+
+        var accumulated = Matrix.of(new int[][]{{1, 1}, {1, 1}});
+        parallelNaiveMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB), accumulated, 2, -1);
+        assert accumulated.contentEquals(Matrix.of(new int[][]{{279, 291}, {639, 669}}));
+
+        var batchResults = new Matrix[]{new Matrix(2, 2), new Matrix(1, 1)};
+        parallelBatchMatrixMultiply(new Matrix[]{Matrix.of(matrixA), Matrix.of(new int[][]{{3}})},
+                new Matrix[]{Matrix.of(matrixB), Matrix.of(new int[][]{{4}})}, batchResults);
+        assert batchResults[0].contentEquals(Matrix.of(expectedReferenceResult)) && batchResults[1].get(0, 0) == 12;
 
         /*for (int i = 0; i < expectedReferenceResult.length; i++) {
             for (int j = 0; j < expectedReferenceResult[i].length; j++) {
@@ -10,5 +10,7 @@ repositories {
 }
 
 dependencies {
+    implementation("org.example", "matrix", "1.0-SNAPSHOT")
+    implementation("org.example", "strassen", "1.0-SNAPSHOT")
     testCompile("junit", "junit", "4.12")
 }
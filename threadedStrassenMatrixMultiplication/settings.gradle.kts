@@ -1,2 +1,6 @@
 rootProject.name = "threadedStrassenMatrixMultiplication"
 
+// shared flat matrix type
+includeBuild("../matrix")
+// sequential Strassen, shared leaf size calibration
+includeBuild("../strassen")
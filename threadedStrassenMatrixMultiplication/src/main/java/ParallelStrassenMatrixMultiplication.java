@@ -1,6 +1,6 @@
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.ForkJoinTask;
-import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RecursiveAction;
 
 public class ParallelStrassenMatrixMultiplication {
   public static boolean isOddAndIsNotOne(int nbr) {
@@ -36,154 +36,276 @@ public class ParallelStrassenMatrixMultiplication {
     return matrixC;
   }
 
-  // in-place transform
-  private static int[][] fillMatrixQuadrant(int[][] dest, int[][] source, int quadrantRelativeOrder)
-      throws Exception {
-    var halfOfRowNbr = dest.length / 2;
-    var halfOfColumnNbr = dest[0].length / 2;
+  // assume matrices of identical dimensions, matrixC may alias matrixA or matrixB
+  public static void subtract(Matrix matrixA, Matrix matrixB, Matrix matrixC) {
+    if (VectorSupport.isEnabled()) {
+      VectorMatrixKernel.subtract(matrixA, matrixB, matrixC);
+      return;
+    }
 
-    int startI = 0;
-    int startJ = 0;
+    int[] a = matrixA.data();
+    int[] b = matrixB.data();
+    int[] c = matrixC.data();
 
-    // encode where the indexes are initially positioned in the output matrix
-    if (quadrantRelativeOrder == 1) {
-      // NTD
-    } else if (quadrantRelativeOrder == 2) {
-      startJ = halfOfColumnNbr;
-    } else if (quadrantRelativeOrder == 3) {
-      startI = halfOfRowNbr;
-    } else if (quadrantRelativeOrder == 4) {
-      startI = halfOfRowNbr;
-      startJ = halfOfColumnNbr;
-    } else
-      throw new Exception(
-          "The specified quadrantRelativeOrder should be comprised between 1 and 4;");
+    for (int i = 0; i < matrixA.rows(); i++) {
+      int rowA = matrixA.index(i, 0);
+      int rowB = matrixB.index(i, 0);
+      int rowC = matrixC.index(i, 0);
+      for (int j = 0; j < matrixA.columns(); j++) {
+        c[rowC + j] = a[rowA + j] - b[rowB + j];
+      }
+    }
+  }
+
+  // assume matrices of identical dimensions, matrixC may alias matrixA or matrixB
+  public static void sum(Matrix matrixA, Matrix matrixB, Matrix matrixC) {
+    if (VectorSupport.isEnabled()) {
+      VectorMatrixKernel.sum(matrixA, matrixB, matrixC);
+      return;
+    }
+
+    int[] a = matrixA.data();
+    int[] b = matrixB.data();
+    int[] c = matrixC.data();
 
-    for (int row = 0, i = startI; row < halfOfRowNbr; row++, i++) {
-      for (int col = 0, j = startJ; col < halfOfColumnNbr; col++, j++) {
-        // it is effectively the inverse function of getMatrixQuadrant
-        dest[i][j] = source[row][col];
+    for (int i = 0; i < matrixA.rows(); i++) {
+      int rowA = matrixA.index(i, 0);
+      int rowB = matrixB.index(i, 0);
+      int rowC = matrixC.index(i, 0);
+      for (int j = 0; j < matrixA.columns(); j++) {
+        c[rowC + j] = a[rowA + j] + b[rowB + j];
       }
     }
-    return dest;
   }
 
-  // return the requested relative matrix quadrant (quarter)
-  private static int[][] getMatrixQuadrant(int[][] matrix, int quadrantRelativeOrder)
-      throws Exception {
-    var halfOfRowNbr = matrix.length / 2;
-    var halfOfColumnNbr = matrix[0].length / 2;
+  // assume matrices of identical dimensions
+  public static Matrix subtract(Matrix matrixA, Matrix matrixB) {
+    var matrixC = new Matrix(matrixA.rows(), matrixA.columns());
+    subtract(matrixA, matrixB, matrixC);
+    return matrixC;
+  }
 
-    var quadrant = new int[halfOfRowNbr][halfOfColumnNbr];
+  // assume matrices of identical dimensions
+  public static Matrix sum(Matrix matrixA, Matrix matrixB) {
+    var matrixC = new Matrix(matrixA.rows(), matrixA.columns());
+    sum(matrixA, matrixB, matrixC);
+    return matrixC;
+  }
 
-    int startI = 0;
-    int startJ = 0;
+  // return the requested relative matrix quadrant (quarter) as a view sharing the matrix buffer,
+  // nothing is copied
+  public static Matrix getMatrixQuadrant(Matrix matrix, int quadrantRelativeOrder)
+      throws Exception {
+    var halfOfRowNbr = matrix.rows() / 2;
+    var halfOfColumnNbr = matrix.columns() / 2;
 
     // encode where the indexes are initially positioned in the input matrix
     if (quadrantRelativeOrder == 1) {
-      // NTD
+      return matrix.view(0, 0, halfOfRowNbr, halfOfColumnNbr);
     } else if (quadrantRelativeOrder == 2) {
-      startJ = halfOfColumnNbr;
+      return matrix.view(0, halfOfColumnNbr, halfOfRowNbr, halfOfColumnNbr);
     } else if (quadrantRelativeOrder == 3) {
-      startI = halfOfRowNbr;
+      return matrix.view(halfOfRowNbr, 0, halfOfRowNbr, halfOfColumnNbr);
     } else if (quadrantRelativeOrder == 4) {
-      startI = halfOfRowNbr;
-      startJ = halfOfColumnNbr;
+      return matrix.view(halfOfRowNbr, halfOfColumnNbr, halfOfRowNbr, halfOfColumnNbr);
     } else
       throw new Exception(
           "The specified quadrantRelativeOrder should be comprised between 1 and 4;");
-
-    for (int row = 0, i = startI; row < halfOfRowNbr; row++, i++) {
-      for (int col = 0, j = startJ; col < halfOfColumnNbr; col++, j++) {
-        quadrant[row][col] = matrix[i][j];
-      }
-    }
-    return quadrant;
   }
 
+  // sequential sub-problems reuse the scratch memory of their worker thread
+  private static final ThreadLocal<StrassenWorkspace> workspaces =
+      ThreadLocal.withInitial(StrassenWorkspace::new);
+
   // https://www.baeldung.com/java-fork-join
-  static class StrassenMultiplyTask extends RecursiveTask<int[][]> {
-    int[][] matrixA;
-    int[][] matrixB;
+  // matrixA, matrixB and matrixC can be views into bigger buffers, the product is written into
+  // matrixC
+  static class StrassenMultiplyTask extends RecursiveAction {
+    Matrix matrixA;
+    Matrix matrixB;
+    Matrix matrixC;
+    int depth;
+    int leafSize;
+    int forkThreshold;
+    int maxForkDepth;
+    ParallelStrassenStats stats;
+    // null unless metrics are enabled
+    MultiplicationMetrics metrics;
+
+    public StrassenMultiplyTask(
+        Matrix matrixA, Matrix matrixB, Matrix matrixC, ParallelStrassenOptions options,
+        ParallelStrassenStats stats, MultiplicationMetrics metrics) {
+      this.matrixA = matrixA;
+      this.matrixB = matrixB;
+      this.matrixC = matrixC;
+      this.depth = 0;
+      this.leafSize = options.getLeafSize();
+      this.forkThreshold = options.getForkThreshold();
+      this.maxForkDepth = options.getMaxForkDepth();
+      this.stats = stats;
+      this.metrics = metrics;
+    }
 
-    public StrassenMultiplyTask(int[][] matrixA, int[][] matrixB) {
+    // sub-problem of the parent task, one level deeper
+    StrassenMultiplyTask(
+        Matrix matrixA, Matrix matrixB, Matrix matrixC, StrassenMultiplyTask parent) {
       this.matrixA = matrixA;
       this.matrixB = matrixB;
+      this.matrixC = matrixC;
+      this.depth = parent.depth + 1;
+      this.leafSize = parent.leafSize;
+      this.forkThreshold = parent.forkThreshold;
+      this.maxForkDepth = parent.maxForkDepth;
+      this.stats = parent.stats;
+      this.metrics = parent.metrics;
     }
 
     @Override
     // https://en.wikipedia.org/wiki/Strassen_algorithm#Algorithm
-    protected int[][] compute() {
-      var matrixC = new int[matrixA.length][matrixA.length];
+    protected void compute() {
+      int rows = matrixA.rows();
+      int interlacedAxisSize = matrixA.columns();
+      int columns = matrixB.columns();
 
       try {
-        // if the matrices are not even, call itself with padding
-        if (isOddAndIsNotOne(matrixA.length)) {
-          int evenLength = matrixA.length + 1;
-
-          var evenMatrixA = new int[evenLength][evenLength];
-          var evenMatrixB = new int[evenLength][evenLength];
-          int[][] evenMatrixC = new int[evenLength][evenLength];
-
-          for (int i = 0; i < matrixA.length; i++) {
-            System.arraycopy(matrixA[i], 0, evenMatrixA[i], 0, matrixA.length);
-            System.arraycopy(matrixB[i], 0, evenMatrixB[i], 0, matrixA.length);
+        stats.reachedDepth(depth);
+
+        // forking is not worth it anymore, finish with the sequential Strassen (which itself
+        // switches to the classical kernel below the leaf size)
+        if (Math.min(rows, Math.min(interlacedAxisSize, columns)) <= forkThreshold
+            || depth >= maxForkDepth) {
+          stats.sequentialTasks.increment();
+          long start = metrics != null ? System.nanoTime() : 0;
+          StrassenMatrixMultiply.strassenMatrixMultiply(
+              matrixA, matrixB, matrixC, workspaces.get(), leafSize);
+          if (metrics != null) {
+            metrics.addSequentialNanos(System.nanoTime() - start);
+            metrics.addAllocatedBytes(workspaces.get().lastAllocatedBytes());
+            StrassenMatrixMultiply.recordRecursion(
+                metrics, depth, rows, interlacedAxisSize, columns, leafSize);
           }
+          return;
+        }
 
-          evenMatrixC = new StrassenMultiplyTask(evenMatrixA, evenMatrixB).invoke();
-
-          // strip the zeros
-          for (int i = 0; i < matrixA.length; i++) {
-            System.arraycopy(evenMatrixC[i], 0, matrixC[i], 0, matrixA.length);
+        // if a dimension is odd, recurse on the even part and peel the remaining row and column
+        // off, nothing is padded
+        if (rows % 2 != 0 || interlacedAxisSize % 2 != 0 || columns % 2 != 0) {
+          int evenRows = rows & ~1;
+          int evenInterlacedAxisSize = interlacedAxisSize & ~1;
+          int evenColumns = columns & ~1;
+
+          var evenTask =
+              new StrassenMultiplyTask(
+                  matrixA.view(0, 0, evenRows, evenInterlacedAxisSize),
+                  matrixB.view(0, 0, evenInterlacedAxisSize, evenColumns),
+                  matrixC.view(0, 0, evenRows, evenColumns),
+                  this);
+          // peeling does not go one level deeper
+          evenTask.depth = depth;
+          evenTask.invoke();
+
+          if (metrics != null) {
+            metrics.addPeeledEdges(1);
           }
-          return matrixC;
+          StrassenMatrixMultiply.multiplyPeeledEdges(matrixA, matrixB, matrixC);
+          return;
         }
 
-        // base, irreducible case has been reached
-        if (matrixA.length == 1 && matrixA[0].length == 1) {
-          matrixC[0][0] = matrixA[0][0] * matrixB[0][0];
-        } else { // default code path, recurse
-          // shallow split the matrices
-          var A11 = getMatrixQuadrant(matrixA, 1);
-          var A12 = getMatrixQuadrant(matrixA, 2);
-          var A21 = getMatrixQuadrant(matrixA, 3);
-          var A22 = getMatrixQuadrant(matrixA, 4);
-
-          var B11 = getMatrixQuadrant(matrixB, 1);
-          var B12 = getMatrixQuadrant(matrixB, 2);
-          var B21 = getMatrixQuadrant(matrixB, 3);
-          var B22 = getMatrixQuadrant(matrixB, 4);
-
-          // compute the seven Strassen sub-matrices in parallel through work stealing
-          var M1 = new StrassenMultiplyTask(sum(A11, A22), sum(B11, B22)).fork();
-          var M2 = new StrassenMultiplyTask(sum(A21, A22), B11).fork();
-          var M3 = new StrassenMultiplyTask(A11, subtract(B12, B22)).fork();
-          var M4 = new StrassenMultiplyTask(A22, subtract(B21, B11)).fork();
-          var M5 = new StrassenMultiplyTask(sum(A11, A12), B22).fork();
-          var M6 = new StrassenMultiplyTask(subtract(A21, A11), sum(B11, B12)).fork();
-          var M7 = new StrassenMultiplyTask(subtract(A12, A22), sum(B21, B22)).fork();
-
-          // compute the quadrants
-          var C11 = sum(subtract(sum(M1.join(), M4.join()), M5.join()), M7.join());
-          var C12 = sum(M3.join(), M5.join());
-          var C21 = sum(M2.join(), M4.join());
-          var C22 = sum(sum(subtract(M1.join(), M2.join()), M3.join()), M6.join());
-
-          // reassemble the quadrants
-          fillMatrixQuadrant(matrixC, C11, 1);
-          fillMatrixQuadrant(matrixC, C12, 2);
-          fillMatrixQuadrant(matrixC, C21, 3);
-          fillMatrixQuadrant(matrixC, C22, 4);
+        // default code path, recurse on views of the operands
+        var A11 = getMatrixQuadrant(matrixA, 1);
+        var A12 = getMatrixQuadrant(matrixA, 2);
+        var A21 = getMatrixQuadrant(matrixA, 3);
+        var A22 = getMatrixQuadrant(matrixA, 4);
+
+        var B11 = getMatrixQuadrant(matrixB, 1);
+        var B12 = getMatrixQuadrant(matrixB, 2);
+        var B21 = getMatrixQuadrant(matrixB, 3);
+        var B22 = getMatrixQuadrant(matrixB, 4);
+
+        int halfRows = rows / 2;
+        int halfInterlacedAxisSize = interlacedAxisSize / 2;
+        int halfColumns = columns / 2;
+        long additionStart = metrics != null ? System.nanoTime() : 0;
+        var M1 = new Matrix(halfRows, halfColumns);
+        var M2 = new Matrix(halfRows, halfColumns);
+        var M3 = new Matrix(halfRows, halfColumns);
+        var M4 = new Matrix(halfRows, halfColumns);
+        var M5 = new Matrix(halfRows, halfColumns);
+        var M6 = new Matrix(halfRows, halfColumns);
+        var M7 = new Matrix(halfRows, halfColumns);
+
+        // the operand sums are formed before forking
+        var tasks =
+            new StrassenMultiplyTask[] {
+              new StrassenMultiplyTask(sum(A11, A22), sum(B11, B22), M1, this),
+              new StrassenMultiplyTask(sum(A21, A22), B11, M2, this),
+              new StrassenMultiplyTask(A11, subtract(B12, B22), M3, this),
+              new StrassenMultiplyTask(A22, subtract(B21, B11), M4, this),
+              new StrassenMultiplyTask(sum(A11, A12), B22, M5, this),
+              new StrassenMultiplyTask(subtract(A21, A11), sum(B11, B12), M6, this),
+              new StrassenMultiplyTask(subtract(A12, A22), sum(B21, B22), M7, this)
+            };
+        if (metrics != null) {
+          metrics.addAdditionNanos(System.nanoTime() - additionStart);
+          // the seven M products, five sums of A quadrants and five of B quadrants
+          metrics.addAllocatedBytes(
+              (7L * halfRows * halfColumns
+                      + 5L * halfRows * halfInterlacedAxisSize
+                      + 5L * halfInterlacedAxisSize * halfColumns)
+                  * Integer.BYTES);
         }
 
-        return matrixC;
+        // compute the seven Strassen sub-matrices in parallel through work stealing
+        stats.forkedTasks.add(7);
+        invokeAll(tasks);
+        additionStart = metrics != null ? System.nanoTime() : 0;
+
+        // compute the quadrants directly into the output region
+        var C11 = getMatrixQuadrant(matrixC, 1);
+        var C12 = getMatrixQuadrant(matrixC, 2);
+        var C21 = getMatrixQuadrant(matrixC, 3);
+        var C22 = getMatrixQuadrant(matrixC, 4);
+
+        sum(M1, M4, C11);
+        subtract(C11, M5, C11);
+        sum(C11, M7, C11);
+
+        sum(M3, M5, C12);
+
+        sum(M2, M4, C21);
+
+        subtract(M1, M2, C22);
+        sum(C22, M3, C22);
+        sum(C22, M6, C22);
+
+        if (metrics != null) {
+          metrics.addAdditionNanos(System.nanoTime() - additionStart);
+        }
+      } catch (RuntimeException e) {
+        throw e;
       } catch (Exception e) {
-        e.printStackTrace();
-        return matrixC;
+        // compute() cannot throw checked exceptions, invoke() unwraps it for the caller
+        throw new CompletionException(e);
       }
     }
   }
 
+  // The exception a task failed with, as thrown inside the task: the checked ones travel wrapped in
+  // a CompletionException, and a task joined from another thread may come back wrapped in a new
+  // instance of its own class.
+  static Exception unwrap(RuntimeException exception) {
+    Throwable cause = exception;
+    while (cause.getCause() != null
+        && (cause instanceof CompletionException
+            || cause.getCause().getClass() == cause.getClass())) {
+      cause = cause.getCause();
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return (Exception) cause;
+  }
+
   public static int[][] parallelStrassenMatrixMultiply(int[][] matrixA, int[][] matrixB)
       throws Exception {
     // validate the matrices
@@ -191,20 +313,95 @@ public class ParallelStrassenMatrixMultiplication {
       return new int[0][0];
     } else if (matrixA.length == 0 ^ matrixB.length == 0) {
       throw new Exception("Only one of the two matrices is empty, which is an invalid operation");
-    } else if (matrixA.length != matrixB.length || matrixA[0].length != matrixB[0].length) {
-      throw new Exception("matrices of non-identical dimensions are not supported");
-    } else if (matrixA.length != matrixA[0].length) {
-      // support could be added technically
-      throw new Exception("non-square matrices are not supported");
     }
 
-    ForkJoinPool commonPool = ForkJoinPool.commonPool();
+    return parallelStrassenMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB)).toArray();
+  }
+
+  public static Matrix parallelStrassenMatrixMultiply(Matrix matrixA, Matrix matrixB)
+      throws Exception {
+    return parallelStrassenMatrixMultiply(matrixA, matrixB, new ParallelStrassenOptions());
+  }
+
+  public static Matrix parallelStrassenMatrixMultiply(Matrix matrixA, Matrix matrixB, int leafSize)
+      throws Exception {
+    return parallelStrassenMatrixMultiply(
+        matrixA, matrixB, new ParallelStrassenOptions().setLeafSize(leafSize));
+  }
+
+  public static Matrix parallelStrassenMatrixMultiply(
+      Matrix matrixA, Matrix matrixB, ParallelStrassenOptions options) throws Exception {
+    return parallelStrassenMatrixMultiply(matrixA, matrixB, options, new ParallelStrassenStats());
+  }
+
+  // the stats are reset then filled with the counters of this call
+  public static Matrix parallelStrassenMatrixMultiply(
+      Matrix matrixA, Matrix matrixB, ParallelStrassenOptions options, ParallelStrassenStats stats)
+      throws Exception {
+    // validate the matrices
+    if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+      return new Matrix(0, 0);
+    } else if (matrixA.rows() == 0 ^ matrixB.rows() == 0) {
+      throw new Exception("Only one of the two matrices is empty, which is an invalid operation");
+    } else if (matrixA.columns() != matrixB.rows()) {
+      // the number of columns in the first matrix must be equal to the number of rows in the
+      // second matrix.
+      throw new Exception("The matrices have an invalid shape");
+    }
+
+    var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+    invoke(matrixA, matrixB, matrixC, options, stats, true);
+    return matrixC;
+  }
+
+  // write the product into matrixC, which can be a view into a bigger buffer but must not alias
+  // the operands, the stats are reset then filled with the counters of this call
+  public static void parallelStrassenMatrixMultiply(
+      Matrix matrixA, Matrix matrixB, Matrix matrixC, ParallelStrassenOptions options,
+      ParallelStrassenStats stats)
+      throws Exception {
+    // validate the matrices
+    if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+      return;
+    } else if (matrixA.rows() == 0 ^ matrixB.rows() == 0) {
+      throw new Exception("Only one of the two matrices is empty, which is an invalid operation");
+    } else if (matrixA.columns() != matrixB.rows()) {
+      throw new Exception("The matrices have an invalid shape");
+    } else if (matrixC.rows() != matrixA.rows() || matrixC.columns() != matrixB.columns()) {
+      throw new Exception("The output matrix does not have the shape of the product");
+    }
+
+    invoke(matrixA, matrixB, matrixC, options, stats, false);
+  }
 
-    var task = new StrassenMultiplyTask(matrixA, matrixB);
-    // actually execute the task(s)
-    commonPool.submit(task);
-    // wait for all sub-tasks to complete
-    return task.join();
+  private static void invoke(
+      Matrix matrixA, Matrix matrixB, Matrix matrixC, ParallelStrassenOptions options,
+      ParallelStrassenStats stats, boolean allocatedProduct) throws Exception {
+    ForkJoinPool pool = options.getPool();
+    var metrics =
+        MultiplicationMetrics.start(
+            "parallelStrassen", matrixA.rows(), matrixA.columns(), matrixB.columns());
+
+    stats.reset();
+    long stealsBefore = pool.getStealCount();
+    long start = System.nanoTime();
+
+    // actually execute the task(s) and wait for all sub-tasks to complete
+    try {
+      pool.invoke(new StrassenMultiplyTask(matrixA, matrixB, matrixC, options, stats, metrics));
+    } catch (RuntimeException e) {
+      throw unwrap(e);
+    }
+
+    stats.elapsedNanos = System.nanoTime() - start;
+    stats.steals = pool.getStealCount() - stealsBefore;
+    if (metrics != null) {
+      stats.recordInto(metrics);
+      if (allocatedProduct) {
+        metrics.addAllocatedBytes((long) matrixC.rows() * matrixC.columns() * Integer.BYTES);
+      }
+      metrics.finish();
+    }
   }
 
   public static void main(String[] args) throws Exception {
@@ -254,6 +451,19 @@ public class ParallelStrassenMatrixMultiplication {
     };
 
     var result = parallelStrassenMatrixMultiply(matrixA, matrixB);
+    var flatResult = parallelStrassenMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB));
+    assert flatResult.contentEquals(Matrix.of(expectedReferenceResult));
+
+    // with a listener registered the call reports its forks, its depth and its peeled 3x3 quadrants
+    var summary = new MultiplicationSummary();
+    MultiplicationMetrics.addListener(summary);
+    var options = new ParallelStrassenOptions().setLeafSize(1).setForkThreshold(2);
+    flatResult = parallelStrassenMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB), options);
+    MultiplicationMetrics.removeListener(summary);
+    assert flatResult.contentEquals(Matrix.of(expectedReferenceResult));
+    var parallelStrassen = summary.get("parallelStrassen");
+    assert parallelStrassen.getCalls() == 1 && parallelStrassen.getForkedTasks() == 7;
+    assert parallelStrassen.getPeeledEdges() == 7 && parallelStrassen.getAllocatedBytes() > 0;
 
     /*for (int i = 0; i < expectedReferenceResult.length; i++) {
       for (int j = 0; j < expectedReferenceResult[i].length; j++) {
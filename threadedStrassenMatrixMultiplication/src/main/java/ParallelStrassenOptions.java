@@ -0,0 +1,73 @@
+import java.util.concurrent.ForkJoinPool;
+
+// Tuning of ParallelStrassenMatrixMultiplication, the setters return this so the options can be
+// chained.
+// Subtasks are only forked while the sub-problem is longer than the fork threshold and shallower
+// than the fork depth, below that a task finishes with the sequential (allocation free)
+// StrassenMatrixMultiply. This keeps the number of tasks in the thousands instead of flooding the
+// pool with tiny ones.
+public class ParallelStrassenOptions {
+  private ForkJoinPool pool = ForkJoinPool.commonPool();
+  private int leafSize = -1;
+  private int forkThreshold = 256;
+  private int maxForkDepth = -1;
+
+  public ForkJoinPool getPool() {
+    return pool;
+  }
+
+  // a dedicated pool keeps the multiplication from competing with the other users of the common
+  // pool
+  public ParallelStrassenOptions setPool(ForkJoinPool pool) {
+    this.pool = pool;
+    return this;
+  }
+
+  // defaults to the shared StrassenMatrixMultiply leaf size, see
+  // StrassenMatrixMultiply.calibrateLeafSize
+  public int getLeafSize() {
+    return leafSize == -1 ? StrassenMatrixMultiply.getLeafSize() : leafSize;
+  }
+
+  public ParallelStrassenOptions setLeafSize(int leafSize) {
+    if (leafSize < 1) {
+      throw new IllegalArgumentException("The leaf size must be at least 1");
+    }
+    this.leafSize = leafSize;
+    return this;
+  }
+
+  public int getForkThreshold() {
+    return forkThreshold;
+  }
+
+  // sub-problems of this length or smaller are not forked anymore
+  public ParallelStrassenOptions setForkThreshold(int forkThreshold) {
+    if (forkThreshold < 1) {
+      throw new IllegalArgumentException("The fork threshold must be at least 1");
+    }
+    this.forkThreshold = forkThreshold;
+    return this;
+  }
+
+  // defaults to the smallest depth giving at least 8 tasks per worker (7^depth >= 8 * parallelism)
+  public int getMaxForkDepth() {
+    if (maxForkDepth != -1) {
+      return maxForkDepth;
+    }
+
+    int depth = 0;
+    for (long tasks = 1; tasks < 8L * pool.getParallelism(); tasks *= 7) {
+      depth++;
+    }
+    return depth;
+  }
+
+  public ParallelStrassenOptions setMaxForkDepth(int maxForkDepth) {
+    if (maxForkDepth < 0) {
+      throw new IllegalArgumentException("The fork depth cannot be negative");
+    }
+    this.maxForkDepth = maxForkDepth;
+    return this;
+  }
+}
@@ -0,0 +1,64 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters of one ParallelStrassenMatrixMultiplication call, pass an instance to the multiply call
+// to have it filled.
+// The steal count is the difference of the pool counter around the call: it is approximate, and
+// only meaningful on a dedicated pool.
+public class ParallelStrassenStats {
+  final LongAdder forkedTasks = new LongAdder();
+  final LongAdder sequentialTasks = new LongAdder();
+  final AtomicInteger maxDepth = new AtomicInteger();
+  volatile long steals;
+  volatile long elapsedNanos;
+
+  void reset() {
+    forkedTasks.reset();
+    sequentialTasks.reset();
+    maxDepth.set(0);
+    steals = 0;
+    elapsedNanos = 0;
+  }
+
+  void reachedDepth(int depth) {
+    maxDepth.accumulateAndGet(depth, Math::max);
+  }
+
+  // hand the counters of the call to its metrics, the fork depth only bounds the recursion depth
+  void recordInto(MultiplicationMetrics metrics) {
+    metrics.addForkedTasks(getForkedTasks());
+    metrics.addSequentialTasks(getSequentialTasks());
+    metrics.reachedDepth(getMaxDepth());
+    metrics.setSteals(steals);
+  }
+
+  public long getForkedTasks() {
+    return forkedTasks.sum();
+  }
+
+  // sub-problems handed to the sequential Strassen below the fork threshold or depth
+  public long getSequentialTasks() {
+    return sequentialTasks.sum();
+  }
+
+  public int getMaxDepth() {
+    return maxDepth.get();
+  }
+
+  public long getSteals() {
+    return steals;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "forked tasks: " + getForkedTasks()
+        + ", sequential tasks: " + getSequentialTasks()
+        + ", max depth: " + getMaxDepth()
+        + ", steals: " + steals
+        + ", elapsed: " + elapsedNanos / 1_000_000 + " ms";
+  }
+}
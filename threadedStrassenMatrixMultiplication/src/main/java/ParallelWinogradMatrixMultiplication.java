@@ -0,0 +1,295 @@
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Fork-join flavor of WinogradStrassenMatrixMultiply, same options and stats as
+// ParallelStrassenMatrixMultiplication. A level forms its 8 operand sums (the chained S and T of
+// Winograd), runs the 7 products in parallel, then combines them with 7 additions instead of 8.
+// Four of the products are written straight into the output quadrants, the 8 sums and the other 3
+// products are carved from the workspace of the worker thread (see StrassenWorkspace.acquireLevel),
+// so in steady state a level allocates nothing. Small sub-problems finish with the sequential
+// Winograd on that same workspace.
+public class ParallelWinogradMatrixMultiplication {
+  // sequential sub-problems reuse the scratch memory of their worker thread
+  private static final ThreadLocal<StrassenWorkspace> workspaces =
+      ThreadLocal.withInitial(StrassenWorkspace::new);
+
+  static class WinogradMultiplyTask extends RecursiveAction {
+    Matrix matrixA;
+    Matrix matrixB;
+    Matrix matrixC;
+    int depth;
+    int leafSize;
+    int forkThreshold;
+    int maxForkDepth;
+    ParallelStrassenStats stats;
+    // null unless metrics are enabled
+    MultiplicationMetrics metrics;
+
+    public WinogradMultiplyTask(
+        Matrix matrixA, Matrix matrixB, Matrix matrixC, ParallelStrassenOptions options,
+        ParallelStrassenStats stats, MultiplicationMetrics metrics) {
+      this.matrixA = matrixA;
+      this.matrixB = matrixB;
+      this.matrixC = matrixC;
+      this.depth = 0;
+      this.leafSize = options.getLeafSize();
+      this.forkThreshold = options.getForkThreshold();
+      this.maxForkDepth = options.getMaxForkDepth();
+      this.stats = stats;
+      this.metrics = metrics;
+    }
+
+    // sub-problem of the parent task, one level deeper
+    WinogradMultiplyTask(
+        Matrix matrixA, Matrix matrixB, Matrix matrixC, WinogradMultiplyTask parent) {
+      this.matrixA = matrixA;
+      this.matrixB = matrixB;
+      this.matrixC = matrixC;
+      this.depth = parent.depth + 1;
+      this.leafSize = parent.leafSize;
+      this.forkThreshold = parent.forkThreshold;
+      this.maxForkDepth = parent.maxForkDepth;
+      this.stats = parent.stats;
+      this.metrics = parent.metrics;
+    }
+
+    @Override
+    // https://en.wikipedia.org/wiki/Strassen_algorithm#Winograd_form
+    protected void compute() {
+      int rows = matrixA.rows();
+      int interlacedAxisSize = matrixA.columns();
+      int columns = matrixB.columns();
+
+      try {
+        stats.reachedDepth(depth);
+
+        // forking is not worth it anymore, finish with the sequential Winograd (which itself
+        // switches to the classical kernel below the leaf size)
+        if (Math.min(rows, Math.min(interlacedAxisSize, columns)) <= forkThreshold
+            || depth >= maxForkDepth) {
+          stats.sequentialTasks.increment();
+          long start = metrics != null ? System.nanoTime() : 0;
+          WinogradStrassenMatrixMultiply.winogradMatrixMultiply(
+              matrixA, matrixB, matrixC, workspaces.get(), leafSize);
+          if (metrics != null) {
+            metrics.addSequentialNanos(System.nanoTime() - start);
+            metrics.addAllocatedBytes(workspaces.get().lastAllocatedBytes());
+            StrassenMatrixMultiply.recordRecursion(
+                metrics, depth, rows, interlacedAxisSize, columns, leafSize);
+          }
+          return;
+        }
+
+        // if a dimension is odd, recurse on the even part and peel the remaining row and column
+        // off, nothing is padded
+        if (rows % 2 != 0 || interlacedAxisSize % 2 != 0 || columns % 2 != 0) {
+          int evenRows = rows & ~1;
+          int evenInterlacedAxisSize = interlacedAxisSize & ~1;
+          int evenColumns = columns & ~1;
+
+          var evenTask =
+              new WinogradMultiplyTask(
+                  matrixA.view(0, 0, evenRows, evenInterlacedAxisSize),
+                  matrixB.view(0, 0, evenInterlacedAxisSize, evenColumns),
+                  matrixC.view(0, 0, evenRows, evenColumns),
+                  this);
+          // peeling does not go one level deeper
+          evenTask.depth = depth;
+          evenTask.invoke();
+
+          if (metrics != null) {
+            metrics.addPeeledEdges(1);
+          }
+          StrassenMatrixMultiply.multiplyPeeledEdges(matrixA, matrixB, matrixC);
+          return;
+        }
+
+        // default code path, recurse on views of the operands
+        var A11 = ParallelStrassenMatrixMultiplication.getMatrixQuadrant(matrixA, 1);
+        var A12 = ParallelStrassenMatrixMultiplication.getMatrixQuadrant(matrixA, 2);
+        var A21 = ParallelStrassenMatrixMultiplication.getMatrixQuadrant(matrixA, 3);
+        var A22 = ParallelStrassenMatrixMultiplication.getMatrixQuadrant(matrixA, 4);
+
+        var B11 = ParallelStrassenMatrixMultiplication.getMatrixQuadrant(matrixB, 1);
+        var B12 = ParallelStrassenMatrixMultiplication.getMatrixQuadrant(matrixB, 2);
+        var B21 = ParallelStrassenMatrixMultiplication.getMatrixQuadrant(matrixB, 3);
+        var B22 = ParallelStrassenMatrixMultiplication.getMatrixQuadrant(matrixB, 4);
+
+        var C11 = ParallelStrassenMatrixMultiplication.getMatrixQuadrant(matrixC, 1);
+        var C12 = ParallelStrassenMatrixMultiplication.getMatrixQuadrant(matrixC, 2);
+        var C21 = ParallelStrassenMatrixMultiplication.getMatrixQuadrant(matrixC, 3);
+        var C22 = ParallelStrassenMatrixMultiplication.getMatrixQuadrant(matrixC, 4);
+
+        // The four S and four T operand sums and the three products that have no quadrant to live
+        // in are carved from one scratch buffer of this thread: they are all read by the forked
+        // products at the same time, so unlike the sequential engine they cannot share room.
+        int halfRows = rows / 2;
+        int halfInterlacedAxisSize = interlacedAxisSize / 2;
+        int halfColumns = columns / 2;
+        int sizeA = halfRows * halfInterlacedAxisSize;
+        int sizeB = halfInterlacedAxisSize * halfColumns;
+        int sizeC = halfRows * halfColumns;
+        var workspace = workspaces.get();
+        int[] scratch = workspace.acquireLevel(4L * sizeA + 4L * sizeB + 3L * sizeC);
+        if (metrics != null) {
+          metrics.addAllocatedBytes(workspace.lastAllocatedBytes());
+        }
+
+        var S1 = carve(scratch, 0, halfRows, halfInterlacedAxisSize);
+        var S2 = carve(scratch, sizeA, halfRows, halfInterlacedAxisSize);
+        var S3 = carve(scratch, 2 * sizeA, halfRows, halfInterlacedAxisSize);
+        var S4 = carve(scratch, 3 * sizeA, halfRows, halfInterlacedAxisSize);
+        int top = 4 * sizeA;
+        var T1 = carve(scratch, top, halfInterlacedAxisSize, halfColumns);
+        var T2 = carve(scratch, top + sizeB, halfInterlacedAxisSize, halfColumns);
+        var T3 = carve(scratch, top + 2 * sizeB, halfInterlacedAxisSize, halfColumns);
+        var T4 = carve(scratch, top + 3 * sizeB, halfInterlacedAxisSize, halfColumns);
+        top += 4 * sizeB;
+        // P2, P3, P5 and P7 are computed in the quadrant they end up in
+        var P1 = carve(scratch, top, halfRows, halfColumns);
+        var P4 = carve(scratch, top + sizeC, halfRows, halfColumns);
+        var P6 = carve(scratch, top + 2 * sizeC, halfRows, halfColumns);
+
+        // the chained operand sums, each one reused by the next
+        long additionStart = metrics != null ? System.nanoTime() : 0;
+        ParallelStrassenMatrixMultiplication.sum(A21, A22, S1);
+        ParallelStrassenMatrixMultiplication.subtract(S1, A11, S2);
+        ParallelStrassenMatrixMultiplication.subtract(A11, A21, S3);
+        ParallelStrassenMatrixMultiplication.subtract(A12, S2, S4);
+        ParallelStrassenMatrixMultiplication.subtract(B12, B11, T1);
+        ParallelStrassenMatrixMultiplication.subtract(B22, T1, T2);
+        ParallelStrassenMatrixMultiplication.subtract(B22, B12, T3);
+        ParallelStrassenMatrixMultiplication.subtract(T2, B21, T4);
+        if (metrics != null) {
+          metrics.addAdditionNanos(System.nanoTime() - additionStart);
+        }
+
+        // compute the seven Winograd sub-matrices in parallel through work stealing
+        stats.forkedTasks.add(7);
+        invokeAll(
+            new WinogradMultiplyTask(A11, B11, P1, this),
+            new WinogradMultiplyTask(A12, B21, C11, this),
+            new WinogradMultiplyTask(S4, B22, C12, this),
+            new WinogradMultiplyTask(A22, T4, P4, this),
+            new WinogradMultiplyTask(S1, T1, C22, this),
+            new WinogradMultiplyTask(S2, T2, P6, this),
+            new WinogradMultiplyTask(S3, T3, C21, this));
+        additionStart = metrics != null ? System.nanoTime() : 0;
+
+        // U2 = P1 + P6 and U4 = U2 + P5 are built in P6, C11 = U1 = P1 + P2,
+        // C21 = U6 = U2 + P7 - P4, C22 = U7 = U2 + P7 + P5 and C12 = U5 = U4 + P3
+        ParallelStrassenMatrixMultiplication.sum(P1, P6, P6);
+        ParallelStrassenMatrixMultiplication.sum(C11, P1, C11);
+        ParallelStrassenMatrixMultiplication.sum(C21, P6, C21);
+        ParallelStrassenMatrixMultiplication.sum(P6, C22, P6);
+        ParallelStrassenMatrixMultiplication.sum(C22, C21, C22);
+        ParallelStrassenMatrixMultiplication.sum(C12, P6, C12);
+        ParallelStrassenMatrixMultiplication.subtract(C21, P4, C21);
+
+        // the forked products are done with it, and so is this level
+        workspace.releaseLevel(scratch);
+        if (metrics != null) {
+          metrics.addAdditionNanos(System.nanoTime() - additionStart);
+        }
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        // compute() cannot throw checked exceptions, the caller gets them unwrapped
+        throw new CompletionException(e);
+      }
+    }
+  }
+
+  // a rows x columns matrix over scratch[offset...]
+  private static Matrix carve(int[] scratch, int offset, int rows, int columns) {
+    return new Matrix(scratch, offset, rows, columns, columns);
+  }
+
+  public static Matrix parallelWinogradMatrixMultiply(Matrix matrixA, Matrix matrixB)
+      throws Exception {
+    return parallelWinogradMatrixMultiply(matrixA, matrixB, new ParallelStrassenOptions());
+  }
+
+  public static Matrix parallelWinogradMatrixMultiply(
+      Matrix matrixA, Matrix matrixB, ParallelStrassenOptions options) throws Exception {
+    return parallelWinogradMatrixMultiply(matrixA, matrixB, options, new ParallelStrassenStats());
+  }
+
+  // the stats are reset then filled with the counters of this call
+  public static Matrix parallelWinogradMatrixMultiply(
+      Matrix matrixA, Matrix matrixB, ParallelStrassenOptions options, ParallelStrassenStats stats)
+      throws Exception {
+    // validate the matrices
+    if (matrixA.rows() == 0 && matrixB.rows() == 0) {
+      return new Matrix(0, 0);
+    } else if (matrixA.rows() == 0 ^ matrixB.rows() == 0) {
+      throw new Exception("Only one of the two matrices is empty, which is an invalid operation");
+    } else if (matrixA.columns() != matrixB.rows()) {
+      // the number of columns in the first matrix must be equal to the number of rows in the
+      // second matrix.
+      throw new Exception("The matrices have an invalid shape");
+    }
+
+    ForkJoinPool pool = options.getPool();
+    var metrics =
+        MultiplicationMetrics.start(
+            "parallelWinograd", matrixA.rows(), matrixA.columns(), matrixB.columns());
+    var matrixC = new Matrix(matrixA.rows(), matrixB.columns());
+
+    stats.reset();
+    long stealsBefore = pool.getStealCount();
+    long start = System.nanoTime();
+
+    try {
+      pool.invoke(new WinogradMultiplyTask(matrixA, matrixB, matrixC, options, stats, metrics));
+    } catch (RuntimeException e) {
+      throw ParallelStrassenMatrixMultiplication.unwrap(e);
+    }
+
+    stats.elapsedNanos = System.nanoTime() - start;
+    stats.steals = pool.getStealCount() - stealsBefore;
+    if (metrics != null) {
+      stats.recordInto(metrics);
+      metrics.addAllocatedBytes((long) matrixC.rows() * matrixC.columns() * Integer.BYTES);
+      metrics.finish();
+    }
+    return matrixC;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int[][] matrixA = {
+      {1, 2, 3, 4, 5, 6},
+      {7, 8, 9, 10, 11, 12},
+      {13, 14, 15, 16, 17, 18},
+      {13, 14, 15, 16, 17, 18},
+      {13, 14, 15, 16, 17, 18},
+      {13, 14, 15, 16, 17, 18}
+    };
+
+    int[][] matrixB = {
+      {13, 14, 15, 16, 17, 18},
+      {13, 14, 15, 16, 17, 18},
+      {13, 14, 15, 16, 17, 18},
+      {1, 2, 3, 4, 5, 6},
+      {7, 8, 9, 10, 11, 12},
+      {13, 14, 15, 16, 17, 18}
+    };
+
+    int[][] expectedReferenceResult = {
+      {195, 216, 237, 258, 279, 300},
+      {555, 612, 669, 726, 783, 840},
+      {915, 1008, 1101, 1194, 1287, 1380},
+      {915, 1008, 1101, 1194, 1287, 1380},
+      {915, 1008, 1101, 1194, 1287, 1380},
+      {915, 1008, 1101, 1194, 1287, 1380}
+    };
+
+    // fork down to 1x1 so every level of the parallel schedule runs
+    var options = new ParallelStrassenOptions().setLeafSize(1).setForkThreshold(1);
+    var result = parallelWinogradMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB), options);
+    assert result.contentEquals(Matrix.of(expectedReferenceResult));
+    result = parallelWinogradMatrixMultiply(Matrix.of(matrixA), Matrix.of(matrixB));
+    assert result.contentEquals(Matrix.of(expectedReferenceResult));
+  }
+}